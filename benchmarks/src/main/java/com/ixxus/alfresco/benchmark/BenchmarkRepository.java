@@ -0,0 +1,79 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.benchmark;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.cmr.site.SiteService;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+
+import com.ixxus.alfresco.NodeAssert;
+import com.ixxus.alfresco.SiteAssert;
+import com.ixxus.alfresco.WorkflowAssert;
+import com.ixxus.alfresco.memory.InMemoryServices;
+
+/**
+ * In-memory services with counting proxies installed on the assertions, plus
+ * helpers to build fixtures through the uncounted services
+ */
+final class BenchmarkRepository {
+    private final InMemoryServices services = new InMemoryServices();
+
+    private final NodeRef root = services.getNodeService().getRootNode(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE);
+
+    BenchmarkRepository() {
+        final NodeService nodeService = RepositoryCalls.counting(NodeService.class, services.getNodeService());
+        NodeAssert.setNodeService(nodeService);
+        NodeAssert.setContentService(RepositoryCalls.counting(ContentService.class, services.getContentService()));
+        NodeAssert.setNodeBulkLoader(null);
+        SiteAssert.setSiteService(RepositoryCalls.counting(SiteService.class, services.getSiteService()));
+        WorkflowAssert.setNodeService(nodeService);
+    }
+
+    NodeService nodeService() {
+        return services.getNodeService();
+    }
+
+    ContentService contentService() {
+        return services.getContentService();
+    }
+
+    SiteService siteService() {
+        return services.getSiteService();
+    }
+
+    NodeRef createNode(final NodeRef parent, final QName type, final int propertyCount) {
+        final Map<QName, Serializable> properties = new HashMap<>();
+        for (int i = 0; i < propertyCount; i++) {
+            properties.put(QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "benchmark" + i), "value " + i);
+        }
+        properties.put(ContentModel.PROP_COMPANYEMAIL, "my@email.com");
+        return nodeService().createNode(parent != null ? parent : root, ContentModel.ASSOC_CONTAINS, ContentModel.ASSOC_CONTAINS, type, properties)
+                        .getChildRef();
+    }
+
+    void clear() {
+        services.clear();
+    }
+}
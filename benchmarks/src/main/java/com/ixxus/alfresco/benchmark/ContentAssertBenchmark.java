@@ -0,0 +1,150 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ixxus.alfresco.NodeAssert;
+
+/**
+ * Content assertions on content of different sizes. The searched value sits
+ * at the very end of the content, so every search reads all of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentAssertBenchmark {
+    private static final String NEEDLE = "<needle/>";
+
+    private static final Pattern PATTERN = Pattern.compile("<ne+dle/>");
+
+    @Param({ "1024", "1048576", "16777216" })
+    public int contentSize;
+
+    private BenchmarkRepository repository;
+
+    private NodeRef nodeRef;
+
+    private NodeRef copy;
+
+    private String content;
+
+    private String digest;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        repository = new BenchmarkRepository();
+        final char[] chars = new char[Math.max(0, contentSize - NEEDLE.length())];
+        Arrays.fill(chars, 'x');
+        content = new String(chars) + NEEDLE;
+        nodeRef = repository.createNode(null, ContentModel.TYPE_CONTENT, 0);
+        copy = repository.createNode(null, ContentModel.TYPE_CONTENT, 0);
+        write(nodeRef);
+        write(copy);
+        file = Files.createTempFile("ContentAssertBenchmark", ".txt");
+        Files.write(file, content.getBytes("UTF-8"));
+        digest = sha256(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        repository.clear();
+    }
+
+    @Benchmark
+    public NodeAssert hasContent(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).hasContent();
+    }
+
+    @Benchmark
+    public NodeAssert hasContentEqualTo(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).hasContent(content);
+    }
+
+    @Benchmark
+    public NodeAssert containsContent(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).containsContent(NEEDLE);
+    }
+
+    @Benchmark
+    public NodeAssert containsContentMatching(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).containsContentMatching(PATTERN);
+    }
+
+    @Benchmark
+    public NodeAssert hasContentDigest(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).hasContentDigest("SHA-256", digest);
+    }
+
+    @Benchmark
+    public NodeAssert hasContentDigestMatching(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).hasContentDigestMatching(file);
+    }
+
+    @Benchmark
+    public NodeAssert hasSameContentAs(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(copy).hasSameContentAs(nodeRef);
+    }
+
+    private void write(final NodeRef target) {
+        final ContentWriter writer = repository.contentService().getWriter(target, ContentModel.PROP_CONTENT, true);
+        writer.setEncoding("UTF-8");
+        writer.putContent(content);
+    }
+
+    private static String sha256(final Path path) throws IOException {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(path));
+            final StringBuilder hex = new StringBuilder();
+            for (final byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.benchmark;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.QName;
+import org.assertj.core.api.Condition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ixxus.alfresco.NodeAssert;
+
+/**
+ * Node, aspect, property and association assertions on a single node
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeAssertBenchmark {
+    private static final NodeRef MISSING = new NodeRef("workspace://SpacesStore/missing");
+
+    private static final Condition<Serializable> IS_EMAIL = new Condition<>(value -> ((String) value).contains("@"), "is an email");
+
+    @Param({ "10", "100" })
+    public int propertyCount;
+
+    @Param({ "10", "1000" })
+    public int childCount;
+
+    private BenchmarkRepository repository;
+
+    private NodeRef nodeRef;
+
+    private NodeRef target;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new BenchmarkRepository();
+        nodeRef = repository.createNode(null, ContentModel.TYPE_FOLDER, propertyCount);
+        target = repository.createNode(null, ContentModel.TYPE_CONTENT, 0);
+        repository.nodeService().addAspect(nodeRef, ContentModel.ASPECT_CHECKED_OUT, null);
+        repository.nodeService().setProperty(nodeRef, ContentModel.PROP_ADDRESSEES, (Serializable) Arrays.asList("foo", "bar"));
+        repository.nodeService().createAssociation(nodeRef, target, ContentModel.ASSOC_REFERENCES);
+        for (int i = 0; i < childCount; i++) {
+            repository.createNode(nodeRef, ContentModel.TYPE_CONTENT, 0);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.clear();
+    }
+
+    @Benchmark
+    public NodeAssert exists(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).exists();
+    }
+
+    @Benchmark
+    public NodeAssert doesNotExist(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(MISSING).doesNotExist();
+    }
+
+    @Benchmark
+    public NodeAssert isType(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).isType(ContentModel.TYPE_FOLDER);
+    }
+
+    @Benchmark
+    public NodeAssert hasAspect(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).hasAspect(ContentModel.ASPECT_CHECKED_OUT);
+    }
+
+    @Benchmark
+    public NodeAssert doesNotHaveAspect(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).doesNotHaveAspect(ContentModel.ASPECT_EMAILED);
+    }
+
+    @Benchmark
+    public NodeAssert hasPropertyValue(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).hasPropertyValue(ContentModel.PROP_COMPANYEMAIL, "my@email.com");
+    }
+
+    @Benchmark
+    public NodeAssert doesNotHavePropertyValue(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).doesNotHavePropertyValue(ContentModel.PROP_COMPANYEMAIL, "other@email.com");
+    }
+
+    @Benchmark
+    public NodeAssert propertyValue(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).propertyValue(ContentModel.PROP_COMPANYEMAIL, IS_EMAIL);
+    }
+
+    @Benchmark
+    public NodeAssert hasMultiplePropertyMember(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).hasMultiplePropertyMember(ContentModel.PROP_ADDRESSEES, "bar");
+    }
+
+    @Benchmark
+    public NodeAssert doesNotHaveMultiplePropertyMember(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).doesNotHaveMultiplePropertyMember(ContentModel.PROP_ADDRESSEES, "baz");
+    }
+
+    @Benchmark
+    public NodeAssert doesNotHaveTargetAssociation(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).doesNotHaveTargetAssociation(ContentModel.ASSOC_ORIGINAL);
+    }
+
+    @Benchmark
+    public NodeAssert doesNotHaveTargetAssociationTo(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).doesNotHaveTargetAssociationTo(ContentModel.ASSOC_REFERENCES, MISSING);
+    }
+
+    @Benchmark
+    public NodeAssert hasTargetAssociationCount(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).hasTargetAssociationCount(ContentModel.ASSOC_REFERENCES, 1);
+    }
+
+    @Benchmark
+    public NodeAssert hasChildCount(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).hasChildCount(childCount);
+    }
+
+    @Benchmark
+    public NodeAssert hasAtMostChildren(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).hasAtMostChildren(childCount);
+    }
+
+    @Benchmark
+    public NodeAssert hasAtLeastChildren(final RepositoryCalls calls) {
+        return NodeAssert.assertThat(nodeRef).hasAtLeastChildren(childCount);
+    }
+
+    /**
+     * A typical chain of checks, evaluated against the repository
+     */
+    @Benchmark
+    public NodeAssert chain(final RepositoryCalls calls) {
+        return checkChain(NodeAssert.assertThat(nodeRef));
+    }
+
+    /**
+     * The same chain of checks, evaluated against a snapshot
+     */
+    @Benchmark
+    public NodeAssert snapshotChain(final RepositoryCalls calls) {
+        return checkChain(NodeAssert.assertThat(nodeRef).snapshot());
+    }
+
+    private static NodeAssert checkChain(final NodeAssert nodeAssert) {
+        final QName type = ContentModel.TYPE_FOLDER;
+        return nodeAssert.exists()
+                        .isType(type)
+                        .hasAspect(ContentModel.ASPECT_CHECKED_OUT)
+                        .doesNotHaveAspect(ContentModel.ASPECT_EMAILED)
+                        .hasPropertyValue(ContentModel.PROP_COMPANYEMAIL, "my@email.com")
+                        .propertyValue(ContentModel.PROP_COMPANYEMAIL, IS_EMAIL)
+                        .hasMultiplePropertyMember(ContentModel.PROP_ADDRESSEES, "bar")
+                        .doesNotHaveMultiplePropertyMember(ContentModel.PROP_ADDRESSEES, "baz");
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ixxus.alfresco.NodeAssert;
+import com.ixxus.alfresco.NodesAssert;
+
+/**
+ * Assertions over collections of nodes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodesAssertBenchmark {
+    @Param({ "100", "10000" })
+    public int nodeCount;
+
+    @Param({ "10", "100" })
+    public int propertyCount;
+
+    private BenchmarkRepository repository;
+
+    private final List<NodeRef> nodeRefs = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new BenchmarkRepository();
+        for (int i = 0; i < nodeCount; i++) {
+            final NodeRef nodeRef = repository.createNode(null, ContentModel.TYPE_CONTENT, propertyCount);
+            repository.nodeService().addAspect(nodeRef, ContentModel.ASPECT_CHECKED_OUT, null);
+            nodeRefs.add(nodeRef);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        nodeRefs.clear();
+        repository.clear();
+    }
+
+    @Benchmark
+    public NodesAssert allExist(final RepositoryCalls calls) {
+        return NodeAssert.assertThatNodes(nodeRefs).allExist();
+    }
+
+    @Benchmark
+    public NodesAssert allAreType(final RepositoryCalls calls) {
+        return NodeAssert.assertThatNodes(nodeRefs).allAreType(ContentModel.TYPE_CONTENT);
+    }
+
+    @Benchmark
+    public NodesAssert allHaveAspect(final RepositoryCalls calls) {
+        return NodeAssert.assertThatNodes(nodeRefs).allHaveAspect(ContentModel.ASPECT_CHECKED_OUT);
+    }
+
+    @Benchmark
+    public NodesAssert noneHaveAspect(final RepositoryCalls calls) {
+        return NodeAssert.assertThatNodes(nodeRefs).noneHaveAspect(ContentModel.ASPECT_EMAILED);
+    }
+
+    @Benchmark
+    public NodesAssert allHavePropertyValue(final RepositoryCalls calls) {
+        return NodeAssert.assertThatNodes(nodeRefs).allHavePropertyValue(ContentModel.PROP_COMPANYEMAIL, "my@email.com");
+    }
+
+    /**
+     * The same checks one node at a time, for comparison
+     */
+    @Benchmark
+    public int oneNodeAtATime(final RepositoryCalls calls) {
+        for (final NodeRef nodeRef : nodeRefs) {
+            NodeAssert.assertThat(nodeRef).hasAspect(ContentModel.ASPECT_CHECKED_OUT);
+        }
+        return nodeRefs.size();
+    }
+}
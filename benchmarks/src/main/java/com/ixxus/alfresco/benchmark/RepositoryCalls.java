@@ -0,0 +1,83 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.benchmark;
+
+import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.aop.framework.ProxyFactory;
+
+/**
+ * Number of service calls made by the measured assertions. JMH reports each
+ * counter as a rate next to the benchmark's own score, so calls per operation
+ * is the counter divided by the score.
+ *
+ * Every benchmark thread has its own counters and only ever updates those, so
+ * the counts stay exact when JMH runs with several threads.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class RepositoryCalls {
+    private static final ThreadLocal<RepositoryCalls> CURRENT = new ThreadLocal<>();
+
+    public long nodeServiceCalls;
+
+    public long contentServiceCalls;
+
+    public long siteServiceCalls;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        nodeServiceCalls = 0;
+        contentServiceCalls = 0;
+        siteServiceCalls = 0;
+        CURRENT.set(this);
+    }
+
+    /**
+     * Wrap a service so every call is counted for the calling benchmark thread
+     *
+     * @param serviceInterface the service interface to proxy
+     * @param service the service to call
+     * @return the counting proxy
+     */
+    static <T> T counting(final Class<T> serviceInterface, final T service) {
+        final ProxyFactory factory = new ProxyFactory(serviceInterface, (MethodInterceptor) invocation -> {
+            final RepositoryCalls calls = CURRENT.get();
+            if ((calls != null) && (invocation.getMethod().getDeclaringClass() != Object.class)) {
+                calls.record(serviceInterface);
+            }
+            return invocation.proceed();
+        });
+        factory.setTarget(service);
+        return serviceInterface.cast(factory.getProxy());
+    }
+
+    private void record(final Class<?> service) {
+        if (service == NodeService.class) {
+            nodeServiceCalls++;
+        } else if (service == ContentService.class) {
+            contentServiceCalls++;
+        } else {
+            siteServiceCalls++;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.site.SiteInfo;
+import org.alfresco.service.cmr.site.SiteService;
+import org.alfresco.service.cmr.site.SiteVisibility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ixxus.alfresco.SiteAssert;
+
+/**
+ * Site assertions, with documents at different depths below the document
+ * library
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SiteAssertBenchmark {
+    private static final String SITE = "benchmark";
+
+    @Param({ "1", "10" })
+    public int folderDepth;
+
+    @Param({ "10", "1000" })
+    public int memberCount;
+
+    private BenchmarkRepository repository;
+
+    private SiteInfo siteInfo;
+
+    private NodeRef document;
+
+    private NodeRef outsideDocument;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new BenchmarkRepository();
+        siteInfo = repository.siteService().createSite("preset", SITE, SITE, SITE, SiteVisibility.PUBLIC);
+        NodeRef folder = repository.siteService().createContainer(SITE, SiteService.DOCUMENT_LIBRARY, ContentModel.TYPE_FOLDER,
+                        Collections.emptyMap());
+        for (int i = 0; i < folderDepth; i++) {
+            folder = repository.createNode(folder, ContentModel.TYPE_FOLDER, 0);
+        }
+        document = repository.createNode(folder, ContentModel.TYPE_CONTENT, 0);
+        outsideDocument = repository.createNode(null, ContentModel.TYPE_CONTENT, 0);
+        for (int i = 0; i < memberCount; i++) {
+            repository.siteService().setMembership(SITE, "user" + i, "SiteConsumer");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.clear();
+    }
+
+    @Benchmark
+    public SiteAssert assertThatShortName(final RepositoryCalls calls) {
+        return SiteAssert.assertThat(SITE);
+    }
+
+    @Benchmark
+    public SiteAssert isSitePreset(final RepositoryCalls calls) {
+        return SiteAssert.assertThat(siteInfo).isSitePreset("preset");
+    }
+
+    @Benchmark
+    public SiteAssert isSiteName(final RepositoryCalls calls) {
+        return SiteAssert.assertThat(siteInfo).isSiteName(SITE);
+    }
+
+    @Benchmark
+    public SiteAssert hasSite(final RepositoryCalls calls) {
+        return SiteAssert.assertThat(siteInfo).hasSite(SITE);
+    }
+
+    @Benchmark
+    public SiteAssert isMember(final RepositoryCalls calls) {
+        return SiteAssert.assertThat(siteInfo).isMember("user0");
+    }
+
+    @Benchmark
+    public SiteAssert hasContainer(final RepositoryCalls calls) {
+        return SiteAssert.assertThat(siteInfo).hasContainer(SiteService.DOCUMENT_LIBRARY);
+    }
+
+    @Benchmark
+    public SiteAssert doesNotHaveContainer(final RepositoryCalls calls) {
+        return SiteAssert.assertThat(siteInfo).doesNotHaveContainer("forums");
+    }
+
+    @Benchmark
+    public SiteAssert isNodeInSite(final RepositoryCalls calls) {
+        return SiteAssert.assertThat(siteInfo).isNodeInSite(document);
+    }
+
+    @Benchmark
+    public SiteAssert isNodeNotInSite(final RepositoryCalls calls) {
+        return SiteAssert.assertThat(siteInfo).isNodeNotInSite(outsideDocument);
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.benchmark;
+
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.workflow.WorkflowModel;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.workflow.WorkflowInstance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ixxus.alfresco.WorkflowAssert;
+
+/**
+ * Workflow assertions on packages of different sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkflowAssertBenchmark {
+    private static final String DESCRIPTION = "benchmark";
+
+    @Param({ "10", "2000" })
+    public int packageSize;
+
+    private BenchmarkRepository repository;
+
+    private WorkflowInstance workflowInstance;
+
+    private final Set<NodeRef> items = new LinkedHashSet<>();
+
+    private NodeRef firstItem;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new BenchmarkRepository();
+        final NodeRef initiator = repository.createNode(null, ContentModel.TYPE_PERSON, 0);
+        repository.nodeService().setProperty(initiator, ContentModel.PROP_USERNAME, "admin");
+        final NodeRef workflowPackage = repository.createNode(null, WorkflowModel.TYPE_PACKAGE, 0);
+        for (int i = 0; i < packageSize; i++) {
+            final NodeRef item = repository.createNode(null, ContentModel.TYPE_CONTENT, 0);
+            repository.nodeService().addChild(workflowPackage, item, WorkflowModel.ASSOC_PACKAGE_CONTAINS, ContentModel.ASSOC_CONTAINS);
+            items.add(item);
+        }
+        firstItem = items.iterator().next();
+        workflowInstance = new WorkflowInstance("benchmark$1", null, DESCRIPTION, initiator, workflowPackage, null, true, new Date(), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        items.clear();
+        repository.clear();
+    }
+
+    @Benchmark
+    public WorkflowAssert isInitiator(final RepositoryCalls calls) {
+        return WorkflowAssert.assertThat(workflowInstance).isInitiator("admin");
+    }
+
+    @Benchmark
+    public WorkflowAssert hasDescription(final RepositoryCalls calls) {
+        return WorkflowAssert.assertThat(workflowInstance).hasDescription(DESCRIPTION);
+    }
+
+    @Benchmark
+    public WorkflowAssert hasPackageItemAttached(final RepositoryCalls calls) {
+        return WorkflowAssert.assertThat(workflowInstance).hasPackageItemAttached(firstItem);
+    }
+
+    @Benchmark
+    public WorkflowAssert hasPackageItemsAttached(final RepositoryCalls calls) {
+        return WorkflowAssert.assertThat(workflowInstance).hasPackageItemsAttached(items);
+    }
+
+    @Benchmark
+    public WorkflowAssert hasNumberOfPackageItems(final RepositoryCalls calls) {
+        return WorkflowAssert.assertThat(workflowInstance).hasNumberOfPackageItems(packageSize);
+    }
+
+    @Benchmark
+    public WorkflowAssert hasAtMostPackageItems(final RepositoryCalls calls) {
+        return WorkflowAssert.assertThat(workflowInstance).hasAtMostPackageItems(packageSize);
+    }
+
+    /**
+     * A chain of package checks sharing the cached package items
+     */
+    @Benchmark
+    public WorkflowAssert chain(final RepositoryCalls calls) {
+        return WorkflowAssert.assertThat(workflowInstance)
+                        .hasPackageItemAttached(firstItem)
+                        .hasPackageItemsAttached(items)
+                        .hasNumberOfPackageItems(packageSize);
+    }
+}
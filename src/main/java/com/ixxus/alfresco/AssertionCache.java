@@ -0,0 +1,195 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
+import org.alfresco.service.cmr.repository.NodeRef;
+
+/**
+ * Node state read by the assertions, cached for the rest of the current
+ * transaction and shared by NodeAssert, SiteAssert and WorkflowAssert, so
+ * repeated assertions on the same nodes are served from memory. The cache
+ * is bound to the transaction with {@link AlfrescoTransactionSupport} and an
+ * entry is dropped as soon as a node service or content service policy
+ * reports a change to its node, see {@link NodeChangeNotifier}. Any move or
+ * parent association change drops the cached site of every node, as it may
+ * move a whole subtree.
+ *
+ * The cache is off by default. Turn it on for all threads with
+ * {@link #setEnabled(boolean)}, or for one context with
+ * {@link AssertionContext#setCacheEnabled(boolean)}, only in tests that do
+ * not change nodes with behaviours disabled: changes made while
+ * {@code BehaviourFilter.disableBehaviour} is in effect raise no policies, so
+ * the cache keeps serving the old state. Call {@link #clear()} after making
+ * such changes in the same transaction as the assertions. Values are cached
+ * per run-as user, as the services check permissions. Outside a
+ * transaction, or without the notifier, nothing is cached.
+ */
+public final class AssertionCache {
+    /**
+     * Type, aspects and properties of a node
+     */
+    static final String NODE_STATE = "nodeState";
+
+    /**
+     * Site a node resides in
+     */
+    static final String SITE = "site";
+
+    /**
+     * Items of a workflow package node
+     */
+    static final String PACKAGE_ITEMS = "packageItems";
+
+    private static final String RESOURCE_KEY = AssertionCache.class.getName();
+
+    private static final Object NULL = new Object();
+
+    private static final LongAdder HITS = new LongAdder();
+
+    private static final LongAdder MISSES = new LongAdder();
+
+    private static volatile boolean enabled;
+
+    private static volatile boolean invalidated;
+
+    private AssertionCache() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled whether the assertions may cache node state in every
+     *            context, false by default
+     */
+    public static void setEnabled(final boolean enabled) {
+        AssertionCache.enabled = enabled;
+    }
+
+    /**
+     * @return the number of reads served from the cache
+     */
+    public static long getHits() {
+        return HITS.sum();
+    }
+
+    /**
+     * @return the number of reads that went to the repository while the
+     *         cache was active
+     */
+    public static long getMisses() {
+        return MISSES.sum();
+    }
+
+    /**
+     * Reset the hit and miss counters
+     */
+    public static void resetStatistics() {
+        HITS.reset();
+        MISSES.reset();
+    }
+
+    /**
+     * Drop everything cached in the current transaction
+     */
+    public static void clear() {
+        if (AlfrescoTransactionSupport.getTransactionReadState() != TxnReadState.TXN_NONE) {
+            AlfrescoTransactionSupport.unbindResource(RESOURCE_KEY);
+        }
+    }
+
+    /**
+     * @return whether reads are cached in the current transaction
+     */
+    static boolean isActive() {
+        return (enabled || AssertionContext.current().isCacheEnabled()) && invalidated && (AlfrescoTransactionSupport.getTransactionReadState() != TxnReadState.TXN_NONE);
+    }
+
+    /**
+     * Called once the notifier invalidating entries is in place
+     */
+    static void invalidatedByPolicies() {
+        invalidated = true;
+    }
+
+    /**
+     * Read a value about a node from the cache, loading it on a miss
+     *
+     * @param nodeRef the node the value is about
+     * @param key what is read, e.g. {@link #NODE_STATE}
+     * @param loader reads the value from the repository, may return null
+     * @return the cached or loaded value
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T get(final NodeRef nodeRef, final String key, final Supplier<T> loader) {
+        if (!isActive()) {
+            return loader.get();
+        }
+        Map<NodeRef, Map<String, Object>> cache = AlfrescoTransactionSupport.getResource(RESOURCE_KEY);
+        if (cache == null) {
+            cache = new HashMap<>();
+            AlfrescoTransactionSupport.bindResource(RESOURCE_KEY, cache);
+        }
+        final Map<String, Object> values = cache.computeIfAbsent(nodeRef, node -> new HashMap<>());
+        final String userKey = key + '@' + AuthenticationUtil.getRunAsUser();
+        final Object cached = values.get(userKey);
+        if (cached != null) {
+            HITS.increment();
+            return cached == NULL ? null : (T) cached;
+        }
+        MISSES.increment();
+        final T loaded = loader.get();
+        values.put(userKey, loaded == null ? NULL : loaded);
+        return loaded;
+    }
+
+    /**
+     * Drop everything cached about a node in the current transaction
+     *
+     * @param nodeRef the changed node
+     */
+    static void invalidate(final NodeRef nodeRef) {
+        if (AlfrescoTransactionSupport.getTransactionReadState() == TxnReadState.TXN_NONE) {
+            return;
+        }
+        final Map<NodeRef, Map<String, Object>> cache = AlfrescoTransactionSupport.getResource(RESOURCE_KEY);
+        if (cache != null) {
+            cache.remove(nodeRef);
+        }
+    }
+
+    /**
+     * Drop the cached site of every node in the current transaction
+     */
+    static void invalidateSites() {
+        if (AlfrescoTransactionSupport.getTransactionReadState() == TxnReadState.TXN_NONE) {
+            return;
+        }
+        final Map<NodeRef, Map<String, Object>> cache = AlfrescoTransactionSupport.getResource(RESOURCE_KEY);
+        if (cache != null) {
+            cache.values().forEach(values -> values.keySet().removeIf(userKey -> userKey.startsWith(SITE + '@')));
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.util.concurrent.Callable;
+
+import org.alfresco.repo.node.NodeBulkLoader;
+import org.alfresco.service.cmr.dictionary.DictionaryService;
+import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.security.AuthorityService;
+import org.alfresco.service.cmr.site.SiteService;
+import org.alfresco.service.transaction.TransactionService;
+
+/**
+ * The services used by the assertions. Each repository context defines one
+ * (see module-context.xml) and installs it as the default; a context can also
+ * be bound to the current thread, so test classes running in parallel
+ * against several repository contexts or tenants in one JVM each use their
+ * own services:
+ *
+ * <pre>
+ * try (AssertionContext.Binding binding = assertionContext.bind()) {
+ *     assertThat(nodeRef).exists();
+ * }
+ * </pre>
+ *
+ * {@link AssertionContextRule} binds a context around each test method. The
+ * static setters of the assertion classes set the services of the default
+ * context. An assertion object uses the context that was current when it
+ * was created.
+ */
+public class AssertionContext {
+    private static final AssertionContext DEFAULT_CONTEXT = new AssertionContext();
+
+    private static final ThreadLocal<AssertionContext> BOUND_CONTEXT = new ThreadLocal<>();
+
+    private volatile NodeService nodeService;
+
+    private volatile ContentService contentService;
+
+    private volatile SiteService siteService;
+
+    private volatile AuthorityService authorityService;
+
+    private volatile DictionaryService dictionaryService;
+
+    private volatile NodeBulkLoader nodeBulkLoader;
+
+    private volatile TransactionService transactionService;
+
+    private volatile NodeChangeNotifier nodeChangeNotifier;
+
+    private volatile boolean cacheEnabled;
+
+    /**
+     * @return the context bound to the current thread, or the default context
+     */
+    public static AssertionContext current() {
+        final AssertionContext bound = BOUND_CONTEXT.get();
+        return bound != null ? bound : DEFAULT_CONTEXT;
+    }
+
+    /**
+     * @return the context used by threads without a bound context
+     */
+    public static AssertionContext getDefault() {
+        return DEFAULT_CONTEXT;
+    }
+
+    /**
+     * Copy the services of this context into the default context
+     */
+    public void installAsDefault() {
+        if (this != DEFAULT_CONTEXT) {
+            DEFAULT_CONTEXT.copyFrom(this);
+        }
+    }
+
+    /**
+     * Bind this context to the current thread until the binding is closed
+     *
+     * @return the binding, restoring the previously bound context on close
+     */
+    public Binding bind() {
+        final AssertionContext previous = BOUND_CONTEXT.get();
+        BOUND_CONTEXT.set(this);
+        return new Binding(previous);
+    }
+
+    /**
+     * @param task the task to run
+     * @return the task, running with this context bound, e.g. on a worker
+     *         thread
+     */
+    public Runnable wrap(final Runnable task) {
+        return () -> {
+            try (Binding binding = bind()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * @param task the task to run
+     * @return the task, running with this context bound, e.g. on a worker
+     *         thread
+     */
+    public <T> Callable<T> wrap(final Callable<T> task) {
+        return () -> {
+            try (Binding binding = bind()) {
+                return task.call();
+            }
+        };
+    }
+
+    private void copyFrom(final AssertionContext other) {
+        this.nodeService = other.nodeService;
+        this.contentService = other.contentService;
+        this.siteService = other.siteService;
+        this.authorityService = other.authorityService;
+        this.dictionaryService = other.dictionaryService;
+        this.nodeBulkLoader = other.nodeBulkLoader;
+        this.transactionService = other.transactionService;
+        this.nodeChangeNotifier = other.nodeChangeNotifier;
+        this.cacheEnabled = other.cacheEnabled;
+    }
+
+    public NodeService getNodeService() {
+        return nodeService;
+    }
+
+    public void setNodeService(final NodeService nodeService) {
+        this.nodeService = nodeService;
+    }
+
+    public ContentService getContentService() {
+        return contentService;
+    }
+
+    public void setContentService(final ContentService contentService) {
+        this.contentService = contentService;
+    }
+
+    public SiteService getSiteService() {
+        return siteService;
+    }
+
+    public void setSiteService(final SiteService siteService) {
+        this.siteService = siteService;
+    }
+
+    public AuthorityService getAuthorityService() {
+        return authorityService;
+    }
+
+    public void setAuthorityService(final AuthorityService authorityService) {
+        this.authorityService = authorityService;
+    }
+
+    public DictionaryService getDictionaryService() {
+        return dictionaryService;
+    }
+
+    public void setDictionaryService(final DictionaryService dictionaryService) {
+        this.dictionaryService = dictionaryService;
+    }
+
+    public NodeBulkLoader getNodeBulkLoader() {
+        return nodeBulkLoader;
+    }
+
+    public void setNodeBulkLoader(final NodeBulkLoader nodeBulkLoader) {
+        this.nodeBulkLoader = nodeBulkLoader;
+    }
+
+    public TransactionService getTransactionService() {
+        return transactionService;
+    }
+
+    public void setTransactionService(final TransactionService transactionService) {
+        this.transactionService = transactionService;
+    }
+
+    public NodeChangeNotifier getNodeChangeNotifier() {
+        return nodeChangeNotifier;
+    }
+
+    public void setNodeChangeNotifier(final NodeChangeNotifier nodeChangeNotifier) {
+        this.nodeChangeNotifier = nodeChangeNotifier;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    /**
+     * @param cacheEnabled whether assertions using this context may cache
+     *            node state in the {@link AssertionCache}, false by default
+     */
+    public void setCacheEnabled(final boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    /**
+     * A context bound to the current thread
+     */
+    public static final class Binding implements AutoCloseable {
+        private final AssertionContext previous;
+
+        private Binding(final AssertionContext previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * Restore the context bound before
+         */
+        @Override
+        public void close() {
+            if (previous != null) {
+                BOUND_CONTEXT.set(previous);
+            } else {
+                BOUND_CONTEXT.remove();
+            }
+        }
+    }
+}
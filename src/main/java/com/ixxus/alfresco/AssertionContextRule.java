@@ -0,0 +1,59 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.util.function.Supplier;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * Binds an {@link AssertionContext} to the thread running each test, for
+ * test classes running in parallel against different repository contexts.
+ * The supplier is called when the test starts, after Spring has injected the
+ * test instance:
+ *
+ * <pre>
+ * &#64;Autowired
+ * private AssertionContext assertionContext;
+ *
+ * &#64;Rule
+ * public AssertionContextRule context = new AssertionContextRule(() -&gt; assertionContext);
+ * </pre>
+ */
+public class AssertionContextRule implements TestRule {
+    private final Supplier<AssertionContext> context;
+
+    /**
+     * @param context supplies the context to bind
+     */
+    public AssertionContextRule(final Supplier<AssertionContext> context) {
+        this.context = context;
+    }
+
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                try (AssertionContext.Binding binding = context.get().bind()) {
+                    base.evaluate();
+                }
+            }
+        };
+    }
+}
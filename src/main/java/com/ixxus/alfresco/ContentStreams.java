@@ -0,0 +1,559 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.alfresco.repo.content.filestore.FileContentReader;
+import org.alfresco.service.cmr.repository.ContentIOException;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.springframework.aop.framework.Advised;
+
+/**
+ * Helpers for checking content by streaming it through the reader's channel
+ * in fixed size chunks, so the memory used does not depend on the size of the
+ * content.
+ */
+final class ContentStreams {
+    static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Number of characters kept from the previous chunk when searching for a
+     * regular expression, i.e. the longest match that can span two chunks.
+     */
+    static final int REGEX_OVERLAP = 8192;
+
+    /**
+     * Size of the regions of a file mapped into memory at once when hashing
+     */
+    private static final long MAPPED_REGION_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Number of bytes shown on each side of a mismatch in a failure message
+     */
+    static final int EXCERPT_BYTES = 32;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Direct buffer reused by every digest calculation on the same thread
+     */
+    private static final ThreadLocal<ByteBuffer> DIGEST_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(64 * 1024));
+
+    private ContentStreams() {
+    }
+
+    /**
+     * The charset used to turn the content into a String, i.e. the reader's
+     * encoding or the platform default when the content has none, the same
+     * way {@link ContentReader#getContentString()} does.
+     *
+     * @param reader the content reader
+     * @return the charset of the content
+     */
+    static Charset charsetOf(final ContentReader reader) {
+        final String encoding = reader.getEncoding();
+        return encoding != null ? Charset.forName(encoding) : Charset.defaultCharset();
+    }
+
+    /**
+     * Number of bytes a String takes once encoded, calculated without
+     * allocating the encoded form.
+     *
+     * @param value the String to encode
+     * @param charset the charset to encode with
+     * @return the encoded length in bytes
+     */
+    static long encodedLength(final CharSequence value, final Charset charset) {
+        final ChunkedEncoder encoder = new ChunkedEncoder(value, charset);
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long length = 0;
+        while (encoder.fill(buffer)) {
+            length += buffer.remaining();
+        }
+        return length;
+    }
+
+    /**
+     * Compare content against an expected String, encoding the String chunk by
+     * chunk and stopping at the first byte that differs.
+     *
+     * The comparison is on bytes, where the content used to be decoded and
+     * compared as text. A byte order mark at the start of the content is
+     * therefore never skipped and is a mismatch unless the expected String
+     * starts with U+FEFF, and malformed bytes in the content no longer equal
+     * the U+FFFD replacement character they decode to. Characters of the
+     * expected String that the charset cannot encode are compared as the
+     * charset's replacement bytes.
+     *
+     * @param reader the content to compare
+     * @param expected the expected content
+     * @param charset the charset to encode the expected content with
+     * @return the offset of the first differing byte, or -1 if the content is
+     *         equal
+     */
+    static long mismatch(final ContentReader reader, final CharSequence expected, final Charset charset) {
+        final ChunkedEncoder encoder = new ChunkedEncoder(expected, charset);
+        final ByteBuffer expectedBytes = ByteBuffer.allocate(BUFFER_SIZE);
+        final ByteBuffer actualBytes = ByteBuffer.allocate(BUFFER_SIZE);
+        long offset = 0;
+        try (ReadableByteChannel channel = reader.getReadableChannel()) {
+            while (encoder.fill(expectedBytes)) {
+                actualBytes.clear();
+                actualBytes.limit(expectedBytes.remaining());
+                final int read = readFully(channel, actualBytes);
+                actualBytes.flip();
+                final int mismatch = mismatch(expectedBytes, actualBytes);
+                if (mismatch >= 0) {
+                    return offset + mismatch;
+                }
+                if (read < expectedBytes.remaining()) {
+                    return offset + read;
+                }
+                offset += read;
+            }
+            actualBytes.clear();
+            actualBytes.limit(1);
+            return readFully(channel, actualBytes) > 0 ? offset : -1;
+        } catch (final IOException e) {
+            throw new ContentIOException("Failed to read content: " + reader, e);
+        }
+    }
+
+    /**
+     * The decoded text of the content around a byte offset, for failure
+     * messages. At most {@link #EXCERPT_BYTES} bytes are kept on each side of
+     * the offset; characters cut at either end are shown as U+FFFD. Content
+     * with a seekable channel, e.g. a local file, is only read from the start
+     * of the excerpt.
+     *
+     * @param reader the content
+     * @param offset the byte offset to show, e.g. the first mismatch
+     * @param charset the charset to decode the content with
+     * @return the excerpt, with "..." marking omitted content
+     */
+    static String excerpt(final ContentReader reader, final long offset, final Charset charset) {
+        final Excerpt excerpt = new Excerpt(offset);
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (ReadableByteChannel channel = reader.getReadableChannel()) {
+            if (channel instanceof SeekableByteChannel) {
+                excerpt.seek((SeekableByteChannel) channel);
+            }
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                if (!excerpt.add(buffer)) {
+                    break;
+                }
+                buffer.clear();
+            }
+        } catch (final IOException e) {
+            throw new ContentIOException("Failed to read content: " + reader, e);
+        }
+        return excerpt.toString(charset);
+    }
+
+    /**
+     * The text of a String around an offset in its encoded form, see
+     * {@link #excerpt(ContentReader, long, Charset)}
+     *
+     * @param value the String
+     * @param offset the byte offset to show
+     * @param charset the charset to encode the String with
+     * @return the excerpt, with "..." marking omitted text
+     */
+    static String excerpt(final CharSequence value, final long offset, final Charset charset) {
+        final Excerpt excerpt = new Excerpt(offset);
+        final ChunkedEncoder encoder = new ChunkedEncoder(value, charset);
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (encoder.fill(buffer) && excerpt.add(buffer)) {
+            // keep encoding until the excerpt is complete
+        }
+        return excerpt.toString(charset);
+    }
+
+    /**
+     * Search the content for a String with the Knuth-Morris-Pratt algorithm
+     * over the encoded bytes, so the content is read once and only a table the
+     * size of the searched value is kept in memory.
+     *
+     * @param reader the content to search
+     * @param expected the value to search for
+     * @param charset the charset to encode the value with
+     * @return true if the content contains the value
+     */
+    static boolean contains(final ContentReader reader, final String expected, final Charset charset) {
+        final byte[] needle = expected.getBytes(charset);
+        if (needle.length == 0) {
+            return true;
+        }
+        final int[] fallback = fallbackTable(needle);
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        int matched = 0;
+        try (ReadableByteChannel channel = reader.getReadableChannel()) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    final byte b = buffer.get();
+                    while ((matched > 0) && (needle[matched] != b)) {
+                        matched = fallback[matched - 1];
+                    }
+                    if (needle[matched] == b) {
+                        matched++;
+                        if (matched == needle.length) {
+                            return true;
+                        }
+                    }
+                }
+                buffer.clear();
+            }
+            return false;
+        } catch (final IOException e) {
+            throw new ContentIOException("Failed to read content: " + reader, e);
+        }
+    }
+
+    /**
+     * For every prefix of the needle, the length of its longest proper prefix
+     * that is also a suffix.
+     */
+    private static int[] fallbackTable(final byte[] needle) {
+        final int[] table = new int[needle.length];
+        int length = 0;
+        for (int i = 1; i < needle.length; i++) {
+            while ((length > 0) && (needle[i] != needle[length])) {
+                length = table[length - 1];
+            }
+            if (needle[i] == needle[length]) {
+                length++;
+            }
+            table[i] = length;
+        }
+        return table;
+    }
+
+    /**
+     * Search the decoded content for a regular expression one chunk at a time.
+     * The end of each chunk is kept in front of the next one, so matches of up
+     * to {@link #REGEX_OVERLAP} characters are found across chunk boundaries.
+     * Anchors and look-behind only see the current window.
+     *
+     * @param reader the content to search
+     * @param pattern the expression to find
+     * @param charset the charset to decode the content with
+     * @return true if the expression is found in the content
+     */
+    static boolean find(final ContentReader reader, final Pattern pattern, final Charset charset) {
+        final char[] window = new char[REGEX_OVERLAP + BUFFER_SIZE];
+        int length = 0;
+        try (ReadableByteChannel channel = reader.getReadableChannel();
+                        Reader chars = Channels.newReader(channel, charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                                        .onUnmappableCharacter(CodingErrorAction.REPLACE), BUFFER_SIZE)) {
+            final Matcher matcher = pattern.matcher("");
+            int read;
+            while ((read = chars.read(window, length, window.length - length)) >= 0) {
+                length += read;
+                if (length < window.length) {
+                    continue;
+                }
+                if (matcher.reset(CharBuffer.wrap(window, 0, length)).find()) {
+                    return true;
+                }
+                System.arraycopy(window, length - REGEX_OVERLAP, window, 0, REGEX_OVERLAP);
+                length = REGEX_OVERLAP;
+            }
+            return matcher.reset(CharBuffer.wrap(window, 0, length)).find();
+        } catch (final IOException e) {
+            throw new ContentIOException("Failed to read content: " + reader, e);
+        }
+    }
+
+    /**
+     * Hash the content in a single pass. Content backed by a readable local
+     * file is hashed through a memory-mapped view of the file, anything else
+     * through the reader's channel with a reused direct buffer. Readers
+     * wrapped by the metrics to count bytes are unwrapped first.
+     *
+     * @param reader the content to hash
+     * @param algorithm the name of a {@link MessageDigest} algorithm, e.g.
+     *            SHA-256
+     * @return the digest as lower case hex
+     */
+    static String digest(final ContentReader reader, final String algorithm) {
+        final MessageDigest digest = newDigest(algorithm);
+        final File file = localFile(reader);
+        try {
+            if (file != null) {
+                digest(file.toPath(), digest);
+            } else {
+                try (ReadableByteChannel channel = reader.getReadableChannel()) {
+                    digest(channel, digest);
+                }
+            }
+        } catch (final IOException e) {
+            throw new ContentIOException("Failed to read content: " + reader, e);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @return the readable file backing the content, or null if the content
+     *         is not stored in a local file
+     */
+    private static File localFile(final ContentReader reader) {
+        ContentReader target = reader;
+        if (target instanceof Advised) {
+            try {
+                final Object unwrapped = ((Advised) target).getTargetSource().getTarget();
+                if (unwrapped instanceof ContentReader) {
+                    target = (ContentReader) unwrapped;
+                }
+            } catch (final Exception e) {
+                return null;
+            }
+        }
+        if (target instanceof FileContentReader) {
+            final File file = ((FileContentReader) target).getFile();
+            if ((file != null) && file.canRead()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hash a local file through a memory-mapped view of it
+     *
+     * @param path the file to hash
+     * @param algorithm the name of a {@link MessageDigest} algorithm
+     * @return the digest as lower case hex
+     * @throws IOException if the file cannot be read
+     */
+    static String digest(final Path path, final String algorithm) throws IOException {
+        final MessageDigest digest = newDigest(algorithm);
+        digest(path, digest);
+        return toHex(digest.digest());
+    }
+
+    private static void digest(final Path path, final MessageDigest digest) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            for (long position = 0; position < size; position += MAPPED_REGION_SIZE) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_REGION_SIZE, size - position)));
+            }
+        }
+    }
+
+    private static void digest(final ReadableByteChannel channel, final MessageDigest digest) throws IOException {
+        final ByteBuffer buffer = DIGEST_BUFFER.get();
+        buffer.clear();
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+    }
+
+    private static MessageDigest newDigest(final String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unknown digest algorithm: " + algorithm, e);
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[(i * 2) + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Compare the bytes of two pieces of content chunk by chunk, stopping at
+     * the first difference
+     *
+     * @param first the first content
+     * @param second the second content
+     * @return the offset of the first differing byte, or -1 if the content is
+     *         equal
+     */
+    static long mismatch(final ContentReader first, final ContentReader second) {
+        final ByteBuffer firstBytes = ByteBuffer.allocate(BUFFER_SIZE);
+        final ByteBuffer secondBytes = ByteBuffer.allocate(BUFFER_SIZE);
+        long offset = 0;
+        try (ReadableByteChannel firstChannel = first.getReadableChannel();
+                        ReadableByteChannel secondChannel = second.getReadableChannel()) {
+            while (true) {
+                firstBytes.clear();
+                secondBytes.clear();
+                final int firstRead = readFully(firstChannel, firstBytes);
+                final int secondRead = readFully(secondChannel, secondBytes);
+                firstBytes.flip();
+                secondBytes.flip();
+                final int mismatch = mismatch(firstBytes, secondBytes);
+                if (mismatch >= 0) {
+                    return offset + mismatch;
+                }
+                if (firstRead != secondRead) {
+                    return offset + Math.min(firstRead, secondRead);
+                }
+                if (firstRead < BUFFER_SIZE) {
+                    return -1;
+                }
+                offset += firstRead;
+            }
+        } catch (final IOException e) {
+            throw new ContentIOException("Failed to compare content: " + first + " and " + second, e);
+        }
+    }
+
+    /**
+     * Index of the first differing byte within the common length of two
+     * buffers, or -1 if that part is equal. Positions are not changed.
+     */
+    static int mismatch(final ByteBuffer first, final ByteBuffer second) {
+        final int length = Math.min(first.remaining(), second.remaining());
+        for (int i = 0; i < length; i++) {
+            if (first.get(first.position() + i) != second.get(second.position() + i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read until the buffer is full or the channel is exhausted
+     *
+     * @return the number of bytes read
+     */
+    static int readFully(final ReadableByteChannel channel, final ByteBuffer buffer) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Collects the bytes around an offset from a sequence of buffers
+     */
+    private static final class Excerpt {
+        private final long start;
+
+        private final long end;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private long position;
+
+        Excerpt(final long offset) {
+            this.start = Math.max(0, offset - EXCERPT_BYTES);
+            this.end = offset + EXCERPT_BYTES;
+        }
+
+        /**
+         * Move the channel to the start of the excerpt, so the bytes before it
+         * are not read
+         */
+        void seek(final SeekableByteChannel channel) throws IOException {
+            channel.position(start);
+            position = start;
+        }
+
+        /**
+         * Keep the bytes of the buffer that fall in the excerpt. The buffer's
+         * position is not changed.
+         *
+         * @return true if more bytes are needed
+         */
+        boolean add(final ByteBuffer buffer) {
+            final long from = Math.max(start, position);
+            final long to = Math.min(end, position + buffer.remaining());
+            for (long i = from; i < to; i++) {
+                bytes.write(buffer.get(buffer.position() + (int) (i - position)));
+            }
+            position += buffer.remaining();
+            return position < end;
+        }
+
+        String toString(final Charset charset) {
+            return (start > 0 ? "..." : "") + new String(bytes.toByteArray(), charset) + (position > end ? "..." : "");
+        }
+    }
+
+    /**
+     * Encodes a CharSequence one buffer at a time, replacing malformed and
+     * unmappable characters like {@link String#getBytes(Charset)} does.
+     */
+    static final class ChunkedEncoder {
+        private final CharsetEncoder encoder;
+
+        private final CharBuffer chars;
+
+        private boolean encoded;
+
+        private boolean flushed;
+
+        ChunkedEncoder(final CharSequence value, final Charset charset) {
+            this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.chars = CharBuffer.wrap(value);
+        }
+
+        /**
+         * Clear the buffer and fill it with the next encoded bytes, leaving it
+         * ready to be read.
+         *
+         * @return false once all bytes have been produced
+         */
+        boolean fill(final ByteBuffer buffer) {
+            buffer.clear();
+            if (!encoded) {
+                final CoderResult result = encoder.encode(chars, buffer, true);
+                encoded = result.isUnderflow();
+            }
+            if (encoded && !flushed) {
+                flushed = encoder.flush(buffer).isUnderflow();
+            }
+            buffer.flip();
+            return buffer.hasRemaining();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.transaction.TransactionService;
+
+import com.ixxus.alfresco.metrics.AssertionMetrics;
+
+/**
+ * Node checks that are retried until they pass or a timeout expires, for
+ * state changed by asynchronous actions, rules or renditions:
+ *
+ * <pre>
+ * assertThat(nodeRef).eventually(Duration.ofSeconds(30)).hasAspect(RenditionModel.ASPECT_RENDITIONED);
+ * </pre>
+ *
+ * Each attempt runs in a new read-only transaction, so only committed state
+ * is seen. Between attempts the thread waits for a change to the node to be
+ * signalled by {@link NodeChangeNotifier}, or for an exponentially growing
+ * backoff to elapse, which covers changes no policy reports.
+ */
+public class EventuallyNodeAssert {
+    private static final long INITIAL_BACKOFF_NANOS = Duration.ofMillis(10).toNanos();
+
+    private static final long MAX_BACKOFF_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final NodeRef nodeRef;
+
+    private final Duration timeout;
+
+    private final AssertionContext context;
+
+    /**
+     * Only constructor - use NodeAssert.eventually
+     *
+     * @param nodeRef the node to check
+     * @param timeout how long each check may take to pass
+     * @param context the services to use
+     */
+    EventuallyNodeAssert(final NodeRef nodeRef, final Duration timeout, final AssertionContext context) {
+        this.nodeRef = nodeRef;
+        this.timeout = timeout;
+        this.context = context;
+    }
+
+    /**
+     * Setter for Alfresco TransactionService of the default
+     * {@link AssertionContext}
+     *
+     * @param transactionService an instance of TransactionService
+     */
+    public static void setTransactionService(final TransactionService transactionService) {
+        AssertionContext.getDefault().setTransactionService(transactionService);
+    }
+
+    /**
+     * Setter for the notifier waking up waiting checks, of the default
+     * {@link AssertionContext}
+     *
+     * @param nodeChangeNotifier an instance of NodeChangeNotifier
+     */
+    public static void setNodeChangeNotifier(final NodeChangeNotifier nodeChangeNotifier) {
+        AssertionContext.getDefault().setNodeChangeNotifier(nodeChangeNotifier);
+    }
+
+    /**
+     * @see NodeAssert#exists()
+     * @return The created eventual assertion object
+     */
+    public EventuallyNodeAssert exists() {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("EventuallyNodeAssert.exists")) {
+            return satisfies(NodeAssert::exists);
+        }
+    }
+
+    /**
+     * @see NodeAssert#doesNotExist()
+     * @return The created eventual assertion object
+     */
+    public EventuallyNodeAssert doesNotExist() {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("EventuallyNodeAssert.doesNotExist")) {
+            return satisfies(NodeAssert::doesNotExist);
+        }
+    }
+
+    /**
+     * @see NodeAssert#hasAspect(QName)
+     * @param aspect the expected aspect
+     * @return The created eventual assertion object
+     */
+    public EventuallyNodeAssert hasAspect(final QName aspect) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("EventuallyNodeAssert.hasAspect")) {
+            return satisfies(node -> node.hasAspect(aspect));
+        }
+    }
+
+    /**
+     * @see NodeAssert#doesNotHaveAspect(QName)
+     * @param aspect the aspect expected to be removed
+     * @return The created eventual assertion object
+     */
+    public EventuallyNodeAssert doesNotHaveAspect(final QName aspect) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("EventuallyNodeAssert.doesNotHaveAspect")) {
+            return satisfies(node -> node.doesNotHaveAspect(aspect));
+        }
+    }
+
+    /**
+     * @see NodeAssert#hasPropertyValue(QName, Serializable)
+     * @param property the property to check
+     * @param expectedValue the expected value
+     * @return The created eventual assertion object
+     */
+    public EventuallyNodeAssert hasPropertyValue(final QName property, final Serializable expectedValue) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("EventuallyNodeAssert.hasPropertyValue")) {
+            return satisfies(node -> node.hasPropertyValue(property, expectedValue));
+        }
+    }
+
+    /**
+     * @see NodeAssert#hasContent()
+     * @return The created eventual assertion object
+     */
+    public EventuallyNodeAssert hasContent() {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("EventuallyNodeAssert.hasContent")) {
+            return satisfies(NodeAssert::hasContent);
+        }
+    }
+
+    /**
+     * @see NodeAssert#hasContent(String)
+     * @param expected the expected content
+     * @return The created eventual assertion object
+     */
+    public EventuallyNodeAssert hasContent(final String expected) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("EventuallyNodeAssert.hasContent")) {
+            return satisfies(node -> node.hasContent(expected));
+        }
+    }
+
+    /**
+     * @see NodeAssert#hasChildCount(int)
+     * @param expectedCount the expected number of children
+     * @return The created eventual assertion object
+     */
+    public EventuallyNodeAssert hasChildCount(final int expectedCount) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("EventuallyNodeAssert.hasChildCount")) {
+            return satisfies(node -> node.hasChildCount(expectedCount));
+        }
+    }
+
+    /**
+     * Retry any chain of node checks until it passes
+     *
+     * @param assertions the checks to run on the node
+     * @return The created eventual assertion object
+     */
+    public EventuallyNodeAssert satisfies(final Consumer<NodeAssert> assertions) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("EventuallyNodeAssert.satisfies")) {
+            final NodeChangeNotifier nodeChangeNotifier = context.getNodeChangeNotifier();
+            final NodeChangeNotifier.Signal signal = nodeChangeNotifier != null ? nodeChangeNotifier.watch(nodeRef) : null;
+            try {
+                final long deadline = System.nanoTime() + timeout.toNanos();
+                long backoff = INITIAL_BACKOFF_NANOS;
+                while (true) {
+                    // Read the change count before checking, so a change committed
+                    // during the check wakes the next wait immediately
+                    final long seen = signal != null ? signal.changes() : 0L;
+                    final AssertionError failure = attempt(assertions);
+                    if (failure == null) {
+                        return this;
+                    }
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new AssertionError(String.format("Not satisfied within <%s> ms: %s", timeout.toMillis(), failure.getMessage()), failure);
+                    }
+                    final long wait = Math.min(backoff, remaining);
+                    if (signal != null) {
+                        signal.awaitChange(seen, wait);
+                    } else {
+                        Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+                    }
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for node " + nodeRef, e);
+            } finally {
+                if (signal != null) {
+                    nodeChangeNotifier.unwatch(nodeRef);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the failure, or null if the checks passed
+     */
+    private AssertionError attempt(final Consumer<NodeAssert> assertions) {
+        final TransactionService transactionService = context.getTransactionService();
+        if (transactionService == null) {
+            return check(assertions);
+        }
+        // Caught inside the transaction, as errors thrown from a callback are
+        // wrapped by the transaction helper
+        return transactionService.getRetryingTransactionHelper().doInTransaction(() -> check(assertions), true, true);
+    }
+
+    private AssertionError check(final Consumer<NodeAssert> assertions) {
+        try (AssertionContext.Binding binding = context.bind()) {
+            assertions.accept(NodeAssert.assertThat(nodeRef));
+            return null;
+        } catch (final AssertionError e) {
+            return e;
+        }
+    }
+}
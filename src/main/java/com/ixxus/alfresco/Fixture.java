@@ -0,0 +1,110 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.transaction.TransactionService;
+
+/**
+ * The nodes created by {@link FixtureBuilder}, indexed by their path below
+ * the fixture root, e.g. <code>reports/2017/report-42.txt</code>
+ */
+public final class Fixture {
+    private final NodeRef root;
+
+    private final SortedMap<String, NodeRef> index;
+
+    private final NodeService nodeService;
+
+    private final TransactionService transactionService;
+
+    Fixture(final NodeRef root, final Map<String, NodeRef> index, final NodeService nodeService, final TransactionService transactionService) {
+        this.root = root;
+        this.index = Collections.unmodifiableSortedMap(new TreeMap<>(index));
+        this.nodeService = nodeService;
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * @return the folder holding the fixture
+     */
+    public NodeRef getRoot() {
+        return root;
+    }
+
+    /**
+     * @param path the path of a node below the fixture root
+     * @return the node
+     */
+    public NodeRef get(final String path) {
+        final NodeRef nodeRef = index.get(path);
+        if (nodeRef == null) {
+            throw new IllegalArgumentException("No node <" + path + "> in the fixture");
+        }
+        return nodeRef;
+    }
+
+    /**
+     * @param folderPath the path of a folder below the fixture root, or ""
+     *            for the root
+     * @return the nodes created directly in the folder, ordered by name
+     */
+    public List<NodeRef> getChildren(final String folderPath) {
+        final String prefix = folderPath.isEmpty() ? "" : folderPath + '/';
+        final List<NodeRef> children = new ArrayList<>();
+        for (final Map.Entry<String, NodeRef> entry : index.subMap(prefix, prefix + Character.MAX_VALUE).entrySet()) {
+            if (entry.getKey().indexOf('/', prefix.length()) < 0) {
+                children.add(entry.getValue());
+            }
+        }
+        return children;
+    }
+
+    /**
+     * @return every node of the fixture, by path
+     */
+    public Map<String, NodeRef> getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the number of nodes created, not counting the root
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Delete the fixture. The root is temporary, so the whole tree is deleted
+     * in one call without being archived.
+     */
+    public void drop() {
+        transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+            if (nodeService.exists(root)) {
+                nodeService.deleteNode(root);
+            }
+            return null;
+        }, false, true);
+    }
+}
@@ -0,0 +1,353 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.batch.BatchProcessWorkProvider;
+import org.alfresco.repo.batch.BatchProcessor;
+import org.alfresco.repo.batch.BatchProcessor.BatchProcessWorkerAdaptor;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.transaction.TransactionService;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Creates large node trees for scale tests. Nodes are created level by level
+ * with Alfresco's {@link BatchProcessor}, in batches of one transaction each
+ * spread over worker threads, as the current user:
+ *
+ * <pre>
+ * final Fixture fixture = fixture().withThreads(4).withBatchSize(250)
+ *         .folder("reports/2017")
+ *         .addAll("reports/2017", 100000, i -&gt; document("report-" + i + ".txt").withAspect(ASPECT_TITLED).withContent("Report " + i))
+ *         .association("reports/2017/report-1.txt", "reports/2017/report-2.txt", ASSOC_REFERENCES)
+ *         .build(repository.getCompanyHome());
+ * assertThat(fixture.get("reports/2017/report-42.txt")).hasContent("Report 42");
+ * fixture.drop();
+ * </pre>
+ *
+ * The nodes are created in a new temporary folder below the given parent, so
+ * {@link Fixture#drop()} deletes the whole tree in one call, bypassing the
+ * archive store. If any batch fails, the nodes created so far are dropped.
+ */
+public class FixtureBuilder {
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    private static final int LOGGING_INTERVAL = 10000;
+
+    private static final Log LOGGER = LogFactory.getLog(FixtureBuilder.class);
+
+    private final NodeService nodeService;
+
+    private final ContentService contentService;
+
+    private final TransactionService transactionService;
+
+    private final Map<String, FixtureNode> nodes = new LinkedHashMap<>();
+
+    private final List<Association> associations = new ArrayList<>();
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Only constructor - use the fixture-method
+     *
+     * @param context the services to use
+     */
+    private FixtureBuilder(final AssertionContext context) {
+        this.nodeService = context.getNodeService();
+        this.contentService = context.getContentService();
+        this.transactionService = context.getTransactionService();
+    }
+
+    /**
+     * @return a new, empty fixture definition
+     */
+    public static FixtureBuilder fixture() {
+        return new FixtureBuilder(AssertionContext.current());
+    }
+
+    /**
+     * @param threads how many worker threads create the nodes, one per
+     *            available processor by default
+     * @return this
+     */
+    public FixtureBuilder withThreads(final int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive, but was " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param batchSize how many nodes are created per transaction, 100 by
+     *            default
+     * @return this
+     */
+    public FixtureBuilder withBatchSize(final int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive, but was " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Add the folders of a path that have not been added yet
+     *
+     * @param path the path of the folder, e.g. <code>reports/2017</code>
+     * @return this
+     */
+    public FixtureBuilder folder(final String path) {
+        String parentPath = "";
+        for (final String name : path.split("/")) {
+            final String folderPath = childPath(parentPath, name);
+            if (!nodes.containsKey(folderPath)) {
+                add(parentPath, FixtureNode.folder(name));
+            }
+            parentPath = folderPath;
+        }
+        return this;
+    }
+
+    /**
+     * @param folderPath the path of a folder already added, or "" for the
+     *            fixture root
+     * @param node the node to create in the folder
+     * @return this
+     */
+    public FixtureBuilder add(final String folderPath, final FixtureNode node) {
+        if (!folderPath.isEmpty()) {
+            final FixtureNode folder = nodes.get(folderPath);
+            if ((folder == null) || !folder.isFolder()) {
+                throw new IllegalArgumentException("No folder <" + folderPath + "> has been added to the fixture");
+            }
+        }
+        final String path = childPath(folderPath, node.getName());
+        if (nodes.putIfAbsent(path, node) != null) {
+            throw new IllegalArgumentException("The node <" + path + "> has already been added to the fixture");
+        }
+        return this;
+    }
+
+    /**
+     * @param folderPath the path of a folder already added, or "" for the
+     *            fixture root
+     * @param count how many nodes to create in the folder
+     * @param node the node to create for each index from 0 to count - 1
+     * @return this
+     */
+    public FixtureBuilder addAll(final String folderPath, final int count, final IntFunction<FixtureNode> node) {
+        for (int i = 0; i < count; i++) {
+            add(folderPath, node.apply(i));
+        }
+        return this;
+    }
+
+    /**
+     * @param sourcePath the path of the source node
+     * @param targetPath the path of the target node
+     * @param assocType the peer association type
+     * @return this
+     */
+    public FixtureBuilder association(final String sourcePath, final String targetPath, final QName assocType) {
+        for (final String path : new String[] { sourcePath, targetPath }) {
+            if (!nodes.containsKey(path)) {
+                throw new IllegalArgumentException("No node <" + path + "> has been added to the fixture");
+            }
+        }
+        associations.add(new Association(sourcePath, targetPath, assocType));
+        return this;
+    }
+
+    /**
+     * Create the fixture in a new temporary folder
+     *
+     * @param parent where to create the fixture root
+     * @return the created nodes
+     */
+    public Fixture build(final NodeRef parent) {
+        Objects.requireNonNull(transactionService, "transactionService is required");
+        final String runAsUser = AuthenticationUtil.getFullyAuthenticatedUser();
+        if (runAsUser == null) {
+            throw new IllegalStateException("The fixture is created as the current user, but no user is authenticated");
+        }
+        final NodeRef root = transactionService.getRetryingTransactionHelper().doInTransaction(() -> createRoot(parent), false, true);
+        final Map<String, NodeRef> index = new ConcurrentHashMap<>();
+        try {
+            for (final List<String> level : levels()) {
+                process("FixtureBuilder-nodes", level, runAsUser, path -> index.put(path, create(root, index, path)));
+            }
+            process("FixtureBuilder-associations", associations, runAsUser,
+                            association -> nodeService.createAssociation(index.get(association.sourcePath), index.get(association.targetPath),
+                                            association.assocType));
+        } catch (final RuntimeException e) {
+            new Fixture(root, index, nodeService, transactionService).drop();
+            throw e;
+        }
+        return new Fixture(root, index, nodeService, transactionService);
+    }
+
+    private NodeRef createRoot(final NodeRef parent) {
+        final String name = "fixture-" + UUID.randomUUID();
+        final Map<QName, Serializable> properties = new HashMap<>();
+        properties.put(ContentModel.PROP_NAME, name);
+        final NodeRef root = nodeService.createNode(parent, ContentModel.ASSOC_CONTAINS, QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, name),
+                        ContentModel.TYPE_FOLDER, properties).getChildRef();
+        nodeService.addAspect(root, ContentModel.ASPECT_TEMPORARY, null);
+        return root;
+    }
+
+    private NodeRef create(final NodeRef root, final Map<String, NodeRef> index, final String path) {
+        final FixtureNode node = nodes.get(path);
+        final int slash = path.lastIndexOf('/');
+        final NodeRef parent = slash < 0 ? root : index.get(path.substring(0, slash));
+        final NodeRef nodeRef = nodeService.createNode(parent, ContentModel.ASSOC_CONTAINS,
+                        QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, QName.createValidLocalName(node.getName())), node.getType(),
+                        new HashMap<>(node.getProperties())).getChildRef();
+        node.getAspects().forEach((aspect, properties) -> nodeService.addAspect(nodeRef, aspect, new HashMap<>(properties)));
+        if (node.getContent() != null) {
+            final ContentWriter writer = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+            writer.setMimetype(node.getMimetype());
+            writer.setEncoding("UTF-8");
+            writer.putContent(node.getContent());
+        }
+        return nodeRef;
+    }
+
+    /**
+     * @return the paths grouped by depth, so parents are created before
+     *         their children
+     */
+    private Collection<List<String>> levels() {
+        final Map<Integer, List<String>> levels = new TreeMap<>();
+        for (final String path : nodes.keySet()) {
+            final int depth = path.length() - path.replace("/", "").length();
+            levels.computeIfAbsent(depth, key -> new ArrayList<>()).add(path);
+        }
+        return levels.values();
+    }
+
+    private <T> void process(final String processName, final Collection<T> items, final String runAsUser, final Consumer<T> action) {
+        if (items.isEmpty()) {
+            return;
+        }
+        final BatchProcessor<T> processor = new BatchProcessor<>(processName, transactionService.getRetryingTransactionHelper(),
+                        new CollectionWorkProvider<>(items, batchSize), threads, batchSize, null, LOGGER, LOGGING_INTERVAL);
+        processor.process(new BatchProcessWorkerAdaptor<T>() {
+            @Override
+            public String getIdentifier(final T entry) {
+                return String.valueOf(entry);
+            }
+
+            @Override
+            public void beforeProcess() {
+                // With one thread the batches run on the calling thread, so its
+                // authentication is restored afterwards
+                AuthenticationUtil.pushAuthentication();
+                AuthenticationUtil.setFullyAuthenticatedUser(runAsUser);
+            }
+
+            @Override
+            public void afterProcess() {
+                AuthenticationUtil.popAuthentication();
+            }
+
+            @Override
+            public void process(final T entry) {
+                action.accept(entry);
+            }
+        }, true);
+        if (processor.getTotalErrors() > 0) {
+            throw new IllegalStateException(String.format("<%s> of <%s> fixture items could not be created, last error: %s", processor.getTotalErrors(),
+                            items.size(), processor.getLastError()));
+        }
+    }
+
+    private static String childPath(final String folderPath, final String name) {
+        return folderPath.isEmpty() ? name : folderPath + '/' + name;
+    }
+
+    /**
+     * Hands out the items in batches, as BatchProcessor expects
+     */
+    private static final class CollectionWorkProvider<T> implements BatchProcessWorkProvider<T> {
+        private final List<T> items;
+
+        private final int batchSize;
+
+        private int position;
+
+        private CollectionWorkProvider(final Collection<T> items, final int batchSize) {
+            this.items = new ArrayList<>(items);
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public int getTotalEstimatedWorkSize() {
+            return items.size();
+        }
+
+        @Override
+        public synchronized Collection<T> getNextWork() {
+            final List<T> work = new ArrayList<>(items.subList(position, Math.min(position + batchSize, items.size())));
+            position += work.size();
+            return work;
+        }
+    }
+
+    private static final class Association {
+        private final String sourcePath;
+
+        private final String targetPath;
+
+        private final QName assocType;
+
+        private Association(final String sourcePath, final String targetPath, final QName assocType) {
+            this.sourcePath = sourcePath;
+            this.targetPath = targetPath;
+            this.assocType = assocType;
+        }
+
+        @Override
+        public String toString() {
+            return sourcePath + " -> " + targetPath;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.content.MimetypeMap;
+import org.alfresco.service.namespace.QName;
+
+/**
+ * A folder or document to create with {@link FixtureBuilder}
+ */
+public final class FixtureNode {
+    private final String name;
+
+    private final boolean folder;
+
+    private QName type;
+
+    private final Map<QName, Serializable> properties = new HashMap<>();
+
+    private final Map<QName, Map<QName, Serializable>> aspects = new LinkedHashMap<>();
+
+    private String content;
+
+    private String mimetype = MimetypeMap.MIMETYPE_TEXT_PLAIN;
+
+    private FixtureNode(final String name, final boolean folder, final QName type) {
+        if ((name == null) || name.isEmpty() || name.contains("/")) {
+            throw new IllegalArgumentException("A fixture node needs a name without '/', but was <" + name + ">");
+        }
+        this.name = name;
+        this.folder = folder;
+        this.type = type;
+        properties.put(ContentModel.PROP_NAME, name);
+    }
+
+    /**
+     * @param name the cm:name of the folder
+     * @return a cm:folder
+     */
+    public static FixtureNode folder(final String name) {
+        return new FixtureNode(name, true, ContentModel.TYPE_FOLDER);
+    }
+
+    /**
+     * @param name the cm:name of the document
+     * @return a cm:content
+     */
+    public static FixtureNode document(final String name) {
+        return new FixtureNode(name, false, ContentModel.TYPE_CONTENT);
+    }
+
+    /**
+     * @param type the type of the node, a subtype of the folder or document
+     *            type
+     * @return this
+     */
+    public FixtureNode ofType(final QName type) {
+        this.type = type;
+        return this;
+    }
+
+    /**
+     * @param property the property to set
+     * @param value the value of the property
+     * @return this
+     */
+    public FixtureNode withProperty(final QName property, final Serializable value) {
+        properties.put(property, value);
+        return this;
+    }
+
+    /**
+     * @param aspect the aspect to add
+     * @return this
+     */
+    public FixtureNode withAspect(final QName aspect) {
+        return withAspect(aspect, Collections.emptyMap());
+    }
+
+    /**
+     * @param aspect the aspect to add
+     * @param aspectProperties the properties of the aspect
+     * @return this
+     */
+    public FixtureNode withAspect(final QName aspect, final Map<QName, Serializable> aspectProperties) {
+        aspects.put(aspect, new HashMap<>(aspectProperties));
+        return this;
+    }
+
+    /**
+     * @param text the content, written as UTF-8 text/plain
+     * @return this
+     */
+    public FixtureNode withContent(final String text) {
+        return withContent(text, MimetypeMap.MIMETYPE_TEXT_PLAIN);
+    }
+
+    /**
+     * @param text the content, written as UTF-8
+     * @param contentMimetype the mimetype of the content
+     * @return this
+     */
+    public FixtureNode withContent(final String text, final String contentMimetype) {
+        this.content = text;
+        this.mimetype = contentMimetype;
+        return this;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    boolean isFolder() {
+        return folder;
+    }
+
+    QName getType() {
+        return type;
+    }
+
+    Map<QName, Serializable> getProperties() {
+        return properties;
+    }
+
+    Map<QName, Map<QName, Serializable>> getAspects() {
+        return aspects;
+    }
+
+    String getContent() {
+        return content;
+    }
+
+    String getMimetype() {
+        return mimetype;
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.service.transaction.TransactionService;
+import org.assertj.core.api.AbstractAssert;
+
+import com.ixxus.alfresco.metrics.LatencyHistogram;
+
+/**
+ * Custom assertion on the latency of a repository operation. The operation
+ * is run a number of warmup iterations, which are not measured, then the
+ * measured iterations; each iteration runs in its own read-write
+ * transaction, so the latency includes the commit and the policies it
+ * triggers. Latencies are recorded in a {@link LatencyHistogram} and the
+ * full distribution is reported when a check fails.
+ *
+ * <pre>
+ * assertThatOperation(() -&gt; createAndTagDocument()).afterWarmup(50).overIterations(500).hasP99Below(Duration.ofMillis(40));
+ * </pre>
+ *
+ * The iterations run when the first check is made, as the current user.
+ */
+public class LatencyAssert extends AbstractAssert<LatencyAssert, Runnable> {
+    private static final int DEFAULT_ITERATIONS = 100;
+
+    private final TransactionService transactionService;
+
+    private int warmupIterations;
+
+    private int iterations = DEFAULT_ITERATIONS;
+
+    private LatencyHistogram histogram;
+
+    /**
+     * Only constructor - use PerformanceAssert.assertThatOperation
+     *
+     * @param operation the operation to measure
+     * @param context the services to use
+     */
+    LatencyAssert(final Runnable operation, final AssertionContext context) {
+        super(operation, LatencyAssert.class);
+        this.transactionService = context.getTransactionService();
+    }
+
+    /**
+     * Setter for Alfresco TransactionService of the default
+     * {@link AssertionContext}
+     *
+     * @param transactionService an instance of TransactionService
+     */
+    public static void setTransactionService(final TransactionService transactionService) {
+        AssertionContext.getDefault().setTransactionService(transactionService);
+    }
+
+    /**
+     * @param warmupIterations how many times to run the operation before
+     *            measuring it
+     * @return The created latency assertion object
+     */
+    public LatencyAssert afterWarmup(final int warmupIterations) {
+        checkNotMeasured();
+        if (warmupIterations < 0) {
+            throw new IllegalArgumentException("warmupIterations must not be negative, but was " + warmupIterations);
+        }
+        this.warmupIterations = warmupIterations;
+        return this;
+    }
+
+    /**
+     * @param iterations how many times to run and measure the operation,
+     *            100 by default
+     * @return The created latency assertion object
+     */
+    public LatencyAssert overIterations(final int iterations) {
+        checkNotMeasured();
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("iterations must be positive, but was " + iterations);
+        }
+        this.iterations = iterations;
+        return this;
+    }
+
+    /**
+     * Check the median latency
+     *
+     * @param limit the latency the median must stay below
+     * @return The created latency assertion object
+     */
+    public LatencyAssert hasMedianBelow(final Duration limit) {
+        return hasPercentileBelow(50, limit);
+    }
+
+    /**
+     * Check the 99th percentile latency
+     *
+     * @param limit the latency the 99th percentile must stay below
+     * @return The created latency assertion object
+     */
+    public LatencyAssert hasP99Below(final Duration limit) {
+        return hasPercentileBelow(99, limit);
+    }
+
+    /**
+     * Check the highest latency
+     *
+     * @param limit the latency every iteration must stay below
+     * @return The created latency assertion object
+     */
+    public LatencyAssert hasMaxBelow(final Duration limit) {
+        return hasPercentileBelow(100, limit);
+    }
+
+    /**
+     * Check a percentile of the latency
+     *
+     * @param percentile between 0 and 100
+     * @param limit the latency the percentile must stay below
+     * @return The created latency assertion object
+     */
+    public LatencyAssert hasPercentileBelow(final double percentile, final Duration limit) {
+        isNotNull();
+        final long value = measure().getValueAtPercentile(percentile);
+        if (value >= limit.toNanos()) {
+            failWithMessage("Expected the %sth percentile latency to be below <%s> ms, but was <%.3f> ms over <%s> iterations after <%s> warmup iterations:%n%s",
+                            percentile, limit.toMillis(), value / 1e6, iterations, warmupIterations, histogram.toDistribution());
+        }
+        return this;
+    }
+
+    /**
+     * @return the measured latencies, running the iterations if needed
+     */
+    public LatencyHistogram getHistogram() {
+        return measure();
+    }
+
+    private LatencyHistogram measure() {
+        if (histogram == null) {
+            Objects.requireNonNull(transactionService, "transactionService is required");
+            final RetryingTransactionHelper transactionHelper = transactionService.getRetryingTransactionHelper();
+            final RetryingTransactionHelper.RetryingTransactionCallback<Void> callback = () -> {
+                actual.run();
+                return null;
+            };
+            for (int i = 0; i < warmupIterations; i++) {
+                transactionHelper.doInTransaction(callback, false, true);
+            }
+            final LatencyHistogram measured = new LatencyHistogram();
+            for (int i = 0; i < iterations; i++) {
+                final long start = System.nanoTime();
+                transactionHelper.doInTransaction(callback, false, true);
+                measured.record(System.nanoTime() - start);
+            }
+            histogram = measured;
+        }
+        return histogram;
+    }
+
+    private void checkNotMeasured() {
+        if (histogram != null) {
+            throw new IllegalStateException("The operation has already been measured");
+        }
+    }
+}
@@ -15,10 +15,20 @@
  */
 package com.ixxus.alfresco;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 import org.alfresco.model.ContentModel;
+import org.alfresco.repo.node.NodeBulkLoader;
 import org.alfresco.service.cmr.repository.AssociationRef;
 import org.alfresco.service.cmr.repository.ContentData;
 import org.alfresco.service.cmr.repository.ContentReader;
@@ -26,10 +36,14 @@ import org.alfresco.service.cmr.repository.ContentService;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.NodeService;
 import org.alfresco.service.namespace.QName;
+import org.alfresco.service.namespace.QNamePattern;
+import org.alfresco.service.namespace.RegexQNamePattern;
 import org.assertj.core.api.AbstractAssert;
 import org.assertj.core.api.Assertions;
 import org.assertj.core.api.Condition;
 
+import com.ixxus.alfresco.metrics.AssertionMetrics;
+
 /**
  * Custom assertion specifically for various operations around an Alfresco node
  *
@@ -38,35 +52,57 @@ import org.assertj.core.api.Condition;
  * @author Alex Lu
  */
 public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
-    private static NodeService nodeService;
+    private static final String DEFAULT_DIGEST_ALGORITHM = "SHA-256";
+
+    private final AssertionContext context;
+
+    private final NodeService nodeService;
 
-    private static ContentService contentService;
+    private final ContentService contentService;
+
+    private NodeSnapshot snapshot;
 
     /**
      * Only constructor - use the assertThat-method
      *
      * @param nodeRef an instance of a nodeRef
+     * @param context the services to use
      */
-    private NodeAssert(final NodeRef nodeRef) {
+    private NodeAssert(final NodeRef nodeRef, final AssertionContext context) {
         super(nodeRef, NodeAssert.class);
+        this.context = context;
+        this.nodeService = context.getNodeService();
+        this.contentService = context.getContentService();
     }
 
     /**
-     * Setter for Alfresco NodeService
+     * Setter for Alfresco NodeService of the default
+     * {@link AssertionContext}
      *
      * @param nodeService an instance of NodeService
      */
     public static void setNodeService(final NodeService nodeService) {
-        NodeAssert.nodeService = nodeService;
+        AssertionContext.getDefault().setNodeService(nodeService);
     }
 
     /**
-     * Setter for Alfresco ContentService
+     * Setter for Alfresco ContentService of the default
+     * {@link AssertionContext}
      * 
      * @param contentService an instance of ContentService
      */
     public static void setContentService(final ContentService contentService) {
-        NodeAssert.contentService = contentService;
+        AssertionContext.getDefault().setContentService(contentService);
+    }
+
+    /**
+     * Setter for the Alfresco bulk loader used to preload nodes in
+     * {@link NodesAssert}, of the default {@link AssertionContext}
+     *
+     * @param nodeBulkLoader an instance of NodeBulkLoader
+     */
+    public static void setNodeBulkLoader(final NodeBulkLoader nodeBulkLoader) {
+        AssertionContext.getDefault().setNodeBulkLoader(nodeBulkLoader);
     }
 
     /**
@@ -74,7 +110,44 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public static NodeAssert assertThat(final NodeRef nodeRef) {
-        return new NodeAssert(nodeRef);
+        return new NodeAssert(nodeRef, AssertionContext.current());
+    }
+
+    /**
+     * @param nodeRefs the nodes to check
+     * @return The created assertion object for a collection of nodes
+     */
+    public static NodesAssert assertThatNodes(final Collection<NodeRef> nodeRefs) {
+        final AssertionContext context = AssertionContext.current();
+        return new NodesAssert(nodeRefs, context.getNodeService(), context.getNodeBulkLoader());
+    }
+
+    /**
+     * Retry the following checks until they pass or the timeout expires,
+     * see {@link EventuallyNodeAssert}
+     *
+     * @param timeout how long each check may take to pass
+     * @return The created eventual assertion object
+     */
+    public EventuallyNodeAssert eventually(final Duration timeout) {
+        isNotNull();
+        return new EventuallyNodeAssert(actual, timeout, context);
+    }
+
+    /**
+     * Load the type, aspects and properties of the node once and evaluate the
+     * rest of the chain against that in-memory copy. Changes made to the node
+     * after this call are not seen by the chained checks; content and
+     * associations are still read from the repository.
+     *
+     * @return The created node assertion object
+     */
+    public NodeAssert snapshot() {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.snapshot")) {
+            exists();
+            snapshot = NodeSnapshot.load(nodeService, this.actual);
+            return this;
+        }
     }
 
     /**
@@ -84,11 +157,14 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public NodeAssert isType(final QName expectedType) {
-        final QName actualType = nodeService.getType(this.actual);
-        if (!actualType.isMatch(expectedType)) {
-            failWithMessage("Node's type <%s> does not match expected type of <%s> ", actualType, expectedType);
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.isType")) {
+            final NodeSnapshot state = state();
+            final QName actualType = state != null ? state.getType() : nodeService.getType(this.actual);
+            if (!actualType.isMatch(expectedType)) {
+                failWithMessage("Node's type <%s> does not match expected type of <%s> ", actualType, expectedType);
+            }
+            return this;
         }
-        return this;
     }
 
     /**
@@ -97,16 +173,40 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public NodeAssert exists() {
-        final boolean exist = existsForNode();
-        if (!exist) {
-            failWithMessage("Node <%s> does not exist", this.actual);
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.exists")) {
+            final boolean exist = existsForNode();
+            if (!exist) {
+                failWithMessage("Node <%s> does not exist", this.actual);
+            }
+            return this;
         }
-        return this;
     }
 
     private boolean existsForNode() {
         isNotNull();
-        return nodeService.exists(this.actual);
+        if (snapshot != null) {
+            return true;
+        }
+        return AssertionCache.isActive() ? cachedState() != null : nodeService.exists(this.actual);
+    }
+
+    /**
+     * @return the state of the node from the snapshot, or from the
+     *         transaction cache when it is active, otherwise null
+     */
+    private NodeSnapshot state() {
+        if (snapshot != null) {
+            return snapshot;
+        }
+        return AssertionCache.isActive() ? cachedState() : null;
+    }
+
+    /**
+     * @return the cached state of the node, or null if it does not exist
+     */
+    private NodeSnapshot cachedState() {
+        return AssertionCache.get(this.actual, AssertionCache.NODE_STATE,
+                        () -> nodeService.exists(this.actual) ? NodeSnapshot.load(nodeService, this.actual) : null);
     }
 
     /**
@@ -115,11 +215,13 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public NodeAssert doesNotExist() {
-        final boolean exist = existsForNode();
-        if (exist) {
-            failWithMessage("Node <%s> exists", this.actual);
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.doesNotExist")) {
+            final boolean exist = existsForNode();
+            if (exist) {
+                failWithMessage("Node <%s> exists", this.actual);
+            }
+            return this;
         }
-        return this;
     }
 
     /**
@@ -130,16 +232,25 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public NodeAssert hasAspect(final QName aspect) {
-        final boolean hasAspect = hasAspectforNode(aspect);
-        if (!hasAspect) {
-            failWithMessage("Node <%s> does not have aspect <%s>", super.actual, aspect);
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.hasAspect")) {
+            final boolean hasAspect = hasAspectforNode(aspect);
+            if (!hasAspect) {
+                failWithMessage("Node <%s> does not have aspect <%s>", super.actual, aspect);
+            }
+            return this;
         }
-        return this;
     }
 
     private boolean hasAspectforNode(final QName aspect) {
         exists();
-        return nodeService.hasAspect(this.actual, aspect);
+        final NodeSnapshot state = state();
+        return state != null ? state.hasAspect(aspect) : nodeService.hasAspect(this.actual, aspect);
+    }
+
+    private Serializable getPropertyForNode(final QName property) {
+        exists();
+        final NodeSnapshot state = state();
+        return state != null ? state.getProperty(property) : nodeService.getProperty(this.actual, property);
     }
 
     /**
@@ -150,11 +261,13 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public NodeAssert doesNotHaveAspect(final QName aspect) {
-        final boolean hasAspect = hasAspectforNode(aspect);
-        if (hasAspect) {
-            failWithMessage("Node <%s> should not have aspect <%s>", this.actual, aspect);
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.doesNotHaveAspect")) {
+            final boolean hasAspect = hasAspectforNode(aspect);
+            if (hasAspect) {
+                failWithMessage("Node <%s> should not have aspect <%s>", this.actual, aspect);
+            }
+            return this;
         }
-        return this;
     }
 
     /**
@@ -166,10 +279,11 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public NodeAssert hasPropertyValue(final QName property, final Serializable expectedValue) {
-        exists();
-        final Serializable actualValue = nodeService.getProperty(this.actual, property);
-        Assertions.assertThat(actualValue).isEqualTo(expectedValue);
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.hasPropertyValue")) {
+            final Serializable actualValue = getPropertyForNode(property);
+            Assertions.assertThat(actualValue).isEqualTo(expectedValue);
+            return this;
+        }
     }
 
     /**
@@ -181,17 +295,19 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public NodeAssert doesNotHavePropertyValue(final QName property, final Serializable expectedValue) {
-        exists();
-        final Serializable actualValue = nodeService.getProperty(this.actual, property);
-        Assertions.assertThat(actualValue).isNotEqualTo(expectedValue);
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.doesNotHavePropertyValue")) {
+            final Serializable actualValue = getPropertyForNode(property);
+            Assertions.assertThat(actualValue).isNotEqualTo(expectedValue);
+            return this;
+        }
     }
 
     public NodeAssert propertyValue(QName property, Condition<Serializable> expectedCondition) {
-        exists();
-        final Serializable actualValue = nodeService.getProperty(this.actual, property);
-        Assertions.assertThat(expectedCondition.matches(actualValue)).as(expectedCondition.description()).isTrue();
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.propertyValue")) {
+            final Serializable actualValue = getPropertyForNode(property);
+            Assertions.assertThat(expectedCondition.matches(actualValue)).as(expectedCondition.description()).isTrue();
+            return this;
+        }
     }
 
     /**
@@ -203,14 +319,15 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public <T> NodeAssert hasMultiplePropertyMember(final QName property, final T expectedValue) {
-        exists();
-        final List<T> values = (List<T>) nodeService.getProperty(this.actual, property);
-        if (!values.contains(expectedValue)) {
-            failWithMessage("Node <%s> should have value <%s> as a member of <%s>", this.actual, expectedValue,
-                            property);
-        }
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.hasMultiplePropertyMember")) {
+            final List<T> values = (List<T>) getPropertyForNode(property);
+            if (!values.contains(expectedValue)) {
+                failWithMessage("Node <%s> should have value <%s> as a member of <%s>", this.actual, expectedValue,
+                                property);
+            }
 
-        return this;
+            return this;
+        }
     }
 
     /**
@@ -222,14 +339,15 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public <T> NodeAssert doesNotHaveMultiplePropertyMember(final QName property, final T expectedValue) {
-        exists();
-        final List<T> values = (List<T>) nodeService.getProperty(this.actual, property);
-        if ((values != null) && values.contains(expectedValue)) {
-            failWithMessage("Node <%s> should not have value <%s> as a member of <%s>", this.actual, expectedValue,
-                            property);
-        }
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.doesNotHaveMultiplePropertyMember")) {
+            final List<T> values = (List<T>) getPropertyForNode(property);
+            if ((values != null) && values.contains(expectedValue)) {
+                failWithMessage("Node <%s> should not have value <%s> as a member of <%s>", this.actual, expectedValue,
+                                property);
+            }
 
-        return this;
+            return this;
+        }
     }
 
     /**
@@ -241,13 +359,15 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public NodeAssert doesNotHaveTargetAssociationTo(final QName qnamePattern, final NodeRef target) {
-        exists();
-        for (final AssociationRef assocRef : nodeService.getTargetAssocs(this.actual, qnamePattern)) {
-            if (assocRef.getTargetRef().equals(target)) {
-                failWithMessage("Node <%s> should not be related via target association <%s>", this.actual, assocRef);
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.doesNotHaveTargetAssociationTo")) {
+            exists();
+            for (final AssociationRef assocRef : nodeService.getTargetAssocs(this.actual, qnamePattern)) {
+                if (assocRef.getTargetRef().equals(target)) {
+                    failWithMessage("Node <%s> should not be related via target association <%s>", this.actual, assocRef);
+                }
             }
+            return this;
         }
-        return this;
     }
 
     /**
@@ -258,12 +378,110 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public NodeAssert doesNotHaveTargetAssociation(final QName qnamePattern) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.doesNotHaveTargetAssociation")) {
+            exists();
+            final List<AssociationRef> targetAssocs = nodeService.getTargetAssocs(this.actual, qnamePattern);
+            if (!targetAssocs.isEmpty()) {
+                failWithMessage("Node <%s> should not have any targets for association <%s>", this.actual, qnamePattern);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Check if a node has exactly the given number of target associations
+     * matching a qname pattern
+     *
+     * @param qnamePattern the association qname pattern to match against
+     * @param expectedCount the expected number of targets
+     * @return The created node assertion object
+     */
+    public NodeAssert hasTargetAssociationCount(final QNamePattern qnamePattern, final int expectedCount) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.hasTargetAssociationCount")) {
+            exists();
+            final int actualCount = nodeService.getTargetAssocs(this.actual, qnamePattern).size();
+            if (actualCount != expectedCount) {
+                failWithMessage("Node <%s> should have <%s> targets for association <%s> but has <%s>", this.actual, expectedCount, qnamePattern,
+                                actualCount);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Check if a node has exactly the given number of children. At most one
+     * more child association than expected is loaded, without preloading the
+     * child nodes.
+     *
+     * @param expectedCount the expected number of children
+     * @return The created node assertion object
+     */
+    public NodeAssert hasChildCount(final int expectedCount) {
+        return hasChildCount(RegexQNamePattern.MATCH_ALL, expectedCount);
+    }
+
+    /**
+     * Check if a node has exactly the given number of children via
+     * associations matching a type pattern
+     *
+     * @param assocTypePattern the association type pattern to match against
+     * @param expectedCount the expected number of children
+     * @return The created node assertion object
+     */
+    public NodeAssert hasChildCount(final QNamePattern assocTypePattern, final int expectedCount) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.hasChildCount")) {
+            final int actualCount = countChildren(assocTypePattern, expectedCount == Integer.MAX_VALUE ? expectedCount : expectedCount + 1);
+            if (actualCount != expectedCount) {
+                failWithMessage("Node <%s> should have <%s> children but has <%s>", this.actual, expectedCount,
+                                actualCount > expectedCount ? "more" : actualCount);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Check if a node has no more than the given number of children. Stops
+     * loading child associations as soon as the bound is exceeded.
+     *
+     * @param maxCount the maximum number of children
+     * @return The created node assertion object
+     */
+    public NodeAssert hasAtMostChildren(final int maxCount) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.hasAtMostChildren")) {
+            if (countChildren(RegexQNamePattern.MATCH_ALL, maxCount == Integer.MAX_VALUE ? maxCount : maxCount + 1) > maxCount) {
+                failWithMessage("Node <%s> should have at most <%s> children but has more", this.actual, maxCount);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Check if a node has at least the given number of children. Stops loading
+     * child associations as soon as the bound is reached.
+     *
+     * @param minCount the minimum number of children
+     * @return The created node assertion object
+     */
+    public NodeAssert hasAtLeastChildren(final int minCount) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.hasAtLeastChildren")) {
+            final int actualCount = countChildren(RegexQNamePattern.MATCH_ALL, minCount);
+            if (actualCount < minCount) {
+                failWithMessage("Node <%s> should have at least <%s> children but has <%s>", this.actual, minCount, actualCount);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Count the child associations of the node, loading no more than
+     * <code>limit</code> of them and none of the child nodes
+     */
+    private int countChildren(final QNamePattern assocTypePattern, final int limit) {
         exists();
-        final List<AssociationRef> targetAssocs = nodeService.getTargetAssocs(this.actual, qnamePattern);
-        if (!targetAssocs.isEmpty()) {
-            failWithMessage("Node <%s> should not have any targets for association <%s>", this.actual, qnamePattern);
+        if (limit <= 0) {
+            return 0;
         }
-        return this;
+        return nodeService.getChildAssocs(this.actual, assocTypePattern, RegexQNamePattern.MATCH_ALL, limit, false).size();
     }
 
     /**
@@ -284,18 +502,19 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
      * @return The created node assertion object
      */
     public NodeAssert hasContent(final QName contentQName) {
-        isNotNull();
-        exists();
-        final Serializable prop = nodeService.getProperty(actual, contentQName);
-        if (prop != null) {
-            final ContentData content = (ContentData) prop;
-            if (content.getSize() == 0) {
-                failWithMessage("Node <%s> should have content with size > 0 ", actual);
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.hasContent")) {
+            isNotNull();
+            final Serializable prop = getPropertyForNode(contentQName);
+            if (prop != null) {
+                final ContentData content = (ContentData) prop;
+                if (content.getSize() == 0) {
+                    failWithMessage("Node <%s> should have content with size > 0 ", actual);
+                }
+            } else {
+                failWithMessage("Node <%s> should have content ", actual);
             }
-        } else {
-            failWithMessage("Node <%s> should have content ", actual);
+            return this;
         }
-        return this;
     }
 
     /**
@@ -309,22 +528,44 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
     }
 
     /**
-     * Check that a property has specific content
+     * Check that a property has specific content. The content is streamed and
+     * compared chunk by chunk against the encoded expected value, stopping at
+     * the first differing byte; content with a different size fails without
+     * being read. Otherwise the failure message shows the text around the
+     * first differing byte.
+     *
+     * As the bytes are compared rather than the decoded text, a byte order
+     * mark in the content only matches an expected value starting with
+     * U+FEFF, and malformed bytes in the content never match.
      *
      * @param contentQName Which property to check
      * @param expected String-representation of the expected content
      * @return The created node assertion object
      */
     public NodeAssert hasContent(final QName contentQName, final String expected) {
-        isNotNull();
-        exists();
-        final ContentReader reader = contentService.getReader(actual, contentQName);
-        if (reader != null) {
-            Assertions.assertThat(reader.getContentString()).as("Content should be equal").isEqualTo(expected);
-        } else {
-            failWithMessage("Node <%s> should have content ", actual);
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.hasContent")) {
+            isNotNull();
+            exists();
+            final ContentReader reader = contentService.getReader(actual, contentQName);
+            if (reader != null) {
+                final Charset charset = ContentStreams.charsetOf(reader);
+                final long expectedSize = ContentStreams.encodedLength(expected, charset);
+                final long actualSize = reader.getContentData().getSize();
+                if (actualSize != expectedSize) {
+                    failWithMessage("Content should be equal, but node <%s> has <%s> bytes of content where <%s> were expected", actual, actualSize,
+                                    expectedSize);
+                }
+                final long mismatch = ContentStreams.mismatch(reader, expected, charset);
+                if (mismatch >= 0) {
+                    failWithMessage("Content should be equal, but content of node <%s> differs at byte <%s>:%n  expected: <%s>%n  but was:  <%s>", actual,
+                                    mismatch, ContentStreams.excerpt(expected, mismatch, charset),
+                                    ContentStreams.excerpt(reader.getReader(), mismatch, charset));
+                }
+            } else {
+                failWithMessage("Node <%s> should have content ", actual);
+            }
+            return this;
         }
-        return this;
     }
 
     /**
@@ -338,22 +579,200 @@ public class NodeAssert extends AbstractAssert<NodeAssert, NodeRef> {
     }
 
     /**
-     * Check that a property contains specific content
+     * Check that a property contains specific content. The content is searched
+     * as a stream, so memory use does not depend on the size of the content.
      *
      * @param contentQName Which property to check
      * @param expected String-representation of the expected content
      * @return The created node assertion object
      */
     public NodeAssert containsContent(final QName contentQName, final String expected) {
-        isNotNull();
-        exists();
-        final ContentReader reader = contentService.getReader(actual, contentQName);
-        if (reader != null) {
-            Assertions.assertThat(reader.getContentString()).as("Content should contain our expected string")
-                            .contains(expected);
-        } else {
-            failWithMessage("Node <%s> should have our content ", actual);
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.containsContent")) {
+            isNotNull();
+            exists();
+            final ContentReader reader = contentService.getReader(actual, contentQName);
+            if (reader != null) {
+                if (!ContentStreams.contains(reader, expected, ContentStreams.charsetOf(reader))) {
+                    failWithMessage("Content should contain our expected string, but content of node <%s> does not contain <%s>", actual, expected);
+                }
+            } else {
+                failWithMessage("Node <%s> should have our content ", actual);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Check that {@link ContentModel#PROP_CONTENT} contains a match for a
+     * regular expression
+     *
+     * @param pattern the expression to find
+     * @return The created node assertion object
+     */
+    public NodeAssert containsContentMatching(final Pattern pattern) {
+        return containsContentMatching(ContentModel.PROP_CONTENT, pattern);
+    }
+
+    /**
+     * Check that a property contains a match for a regular expression. The
+     * content is decoded and searched one chunk at a time; a match can span two
+     * chunks as long as it is at most 8192 characters long.
+     *
+     * @param contentQName Which property to check
+     * @param pattern the expression to find
+     * @return The created node assertion object
+     */
+    public NodeAssert containsContentMatching(final QName contentQName, final Pattern pattern) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.containsContentMatching")) {
+            isNotNull();
+            exists();
+            final ContentReader reader = contentService.getReader(actual, contentQName);
+            if (reader != null) {
+                if (!ContentStreams.find(reader, pattern, ContentStreams.charsetOf(reader))) {
+                    failWithMessage("Content of node <%s> should contain a match for <%s>", actual, pattern);
+                }
+            } else {
+                failWithMessage("Node <%s> should have our content ", actual);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Check that the digest of {@link ContentModel#PROP_CONTENT} matches an
+     * expected value
+     *
+     * @param algorithm name of the digest algorithm, e.g. SHA-256 or MD5
+     * @param expectedHex the expected digest as hex
+     * @return The created node assertion object
+     */
+    public NodeAssert hasContentDigest(final String algorithm, final String expectedHex) {
+        return hasContentDigest(ContentModel.PROP_CONTENT, algorithm, expectedHex);
+    }
+
+    /**
+     * Check that the digest of a property's content matches an expected value.
+     * The content is hashed in a single streaming pass, through a
+     * memory-mapped view when it is stored in a local file.
+     *
+     * @param contentQName Which property to check
+     * @param algorithm name of the digest algorithm, e.g. SHA-256 or MD5
+     * @param expectedHex the expected digest as hex
+     * @return The created node assertion object
+     */
+    public NodeAssert hasContentDigest(final QName contentQName, final String algorithm, final String expectedHex) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.hasContentDigest")) {
+            isNotNull();
+            exists();
+            final ContentReader reader = contentService.getReader(actual, contentQName);
+            if (reader != null) {
+                hasDigest(reader, algorithm, expectedHex);
+            } else {
+                failWithMessage("Node <%s> should have content ", actual);
+            }
+            return this;
+        }
+    }
+
+    private void hasDigest(final ContentReader reader, final String algorithm, final String expectedHex) {
+        final String actualHex = ContentStreams.digest(reader, algorithm);
+        if (!actualHex.equals(expectedHex.toLowerCase(Locale.ENGLISH))) {
+            failWithMessage("Node <%s> should have content with %s digest <%s> but was <%s>", actual, algorithm, expectedHex, actualHex);
+        }
+    }
+
+    /**
+     * Check that {@link ContentModel#PROP_CONTENT} has the same bytes as a
+     * local file, by comparing their SHA-256 digests
+     *
+     * @param expectedFile the file with the expected content
+     * @return The created node assertion object
+     */
+    public NodeAssert hasContentDigestMatching(final Path expectedFile) {
+        return hasContentDigestMatching(ContentModel.PROP_CONTENT, expectedFile);
+    }
+
+    /**
+     * Check that a property's content has the same bytes as a local file, by
+     * comparing their SHA-256 digests. Content with a different size fails
+     * without being read.
+     *
+     * @param contentQName Which property to check
+     * @param expectedFile the file with the expected content
+     * @return The created node assertion object
+     */
+    public NodeAssert hasContentDigestMatching(final QName contentQName, final Path expectedFile) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.hasContentDigestMatching")) {
+            isNotNull();
+            exists();
+            final ContentReader reader = contentService.getReader(actual, contentQName);
+            if (reader == null) {
+                failWithMessage("Node <%s> should have content ", actual);
+                return this;
+            }
+            try {
+                final long expectedSize = Files.size(expectedFile);
+                final long actualSize = reader.getContentData().getSize();
+                if (actualSize != expectedSize) {
+                    failWithMessage("Node <%s> has <%s> bytes of content but <%s> has <%s> bytes", actual, actualSize, expectedFile, expectedSize);
+                }
+                hasDigest(reader, DEFAULT_DIGEST_ALGORITHM, ContentStreams.digest(expectedFile, DEFAULT_DIGEST_ALGORITHM));
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Failed to read " + expectedFile, e);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Check that {@link ContentModel#PROP_CONTENT} has the same content as on
+     * another node
+     *
+     * @param otherNode the node with the expected content
+     * @return The created node assertion object
+     */
+    public NodeAssert hasSameContentAs(final NodeRef otherNode) {
+        return hasSameContentAs(otherNode, ContentModel.PROP_CONTENT);
+    }
+
+    /**
+     * Check that a property has the same content as the same property on
+     * another node. Content sharing a content URL passes and content of a
+     * different size fails without any content being read; only otherwise are
+     * both streams compared byte by byte. Fails if the other node does not
+     * exist or neither node has content.
+     *
+     * @param otherNode the node with the expected content
+     * @param contentQName Which property to check
+     * @return The created node assertion object
+     */
+    public NodeAssert hasSameContentAs(final NodeRef otherNode, final QName contentQName) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodeAssert.hasSameContentAs")) {
+            isNotNull();
+            final ContentData content = (ContentData) getPropertyForNode(contentQName);
+            if (!nodeService.exists(otherNode)) {
+                failWithMessage("Node <%s> should have the same content as <%s>, but that node does not exist", actual, otherNode);
+            }
+            final ContentData otherContent = (ContentData) nodeService.getProperty(otherNode, contentQName);
+            if ((content == null) && (otherContent == null)) {
+                failWithMessage("Node <%s> should have the same content as <%s>, but neither has content", actual, otherNode);
+            }
+            if ((content == null) || (otherContent == null)) {
+                failWithMessage("Node <%s> should have the same content as <%s>, but only one of them has content", actual, otherNode);
+            }
+            if ((content.getContentUrl() != null) && content.getContentUrl().equals(otherContent.getContentUrl())) {
+                return this;
+            }
+            if (content.getSize() != otherContent.getSize()) {
+                failWithMessage("Node <%s> should have the same content as <%s>, but has <%s> bytes where <%s> were expected", actual, otherNode,
+                                content.getSize(), otherContent.getSize());
+            }
+            final long mismatch = ContentStreams.mismatch(contentService.getReader(actual, contentQName),
+                            contentService.getReader(otherNode, contentQName));
+            if (mismatch >= 0) {
+                failWithMessage("Node <%s> should have the same content as <%s>, but it differs at byte <%s>", actual, otherNode, mismatch);
+            }
+            return this;
         }
-        return this;
     }
 }
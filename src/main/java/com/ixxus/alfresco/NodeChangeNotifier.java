@@ -0,0 +1,246 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.io.Serializable;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.content.ContentServicePolicies.OnContentUpdatePolicy;
+import org.alfresco.repo.node.NodeServicePolicies.OnAddAspectPolicy;
+import org.alfresco.repo.node.NodeServicePolicies.OnCreateAssociationPolicy;
+import org.alfresco.repo.node.NodeServicePolicies.OnCreateChildAssociationPolicy;
+import org.alfresco.repo.node.NodeServicePolicies.OnCreateNodePolicy;
+import org.alfresco.repo.node.NodeServicePolicies.OnDeleteAssociationPolicy;
+import org.alfresco.repo.node.NodeServicePolicies.OnDeleteChildAssociationPolicy;
+import org.alfresco.repo.node.NodeServicePolicies.OnDeleteNodePolicy;
+import org.alfresco.repo.node.NodeServicePolicies.OnMoveNodePolicy;
+import org.alfresco.repo.node.NodeServicePolicies.OnRemoveAspectPolicy;
+import org.alfresco.repo.node.NodeServicePolicies.OnUpdatePropertiesPolicy;
+import org.alfresco.repo.policy.Behaviour.NotificationFrequency;
+import org.alfresco.repo.policy.JavaBehaviour;
+import org.alfresco.repo.policy.PolicyComponent;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.TransactionListenerAdapter;
+import org.alfresco.service.cmr.repository.AssociationRef;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.QName;
+
+/**
+ * Turns node service and content service policies into wake-up signals for
+ * threads waiting on a node, see {@link EventuallyNodeAssert}, and drops the
+ * changed node from the {@link AssertionCache} of the transaction. Behaviours
+ * are bound once on sys:base, as Alfresco cannot unbind them; while nobody
+ * waits on a node they only invalidate the cache. Changes are signalled after
+ * the transaction that made them commits, so a woken waiter sees them.
+ */
+public class NodeChangeNotifier implements OnAddAspectPolicy, OnRemoveAspectPolicy, OnUpdatePropertiesPolicy, OnContentUpdatePolicy, OnCreateNodePolicy,
+                OnDeleteNodePolicy, OnMoveNodePolicy, OnCreateChildAssociationPolicy, OnDeleteChildAssociationPolicy, OnCreateAssociationPolicy, OnDeleteAssociationPolicy {
+    private static final String CHANGED_NODES_KEY = NodeChangeNotifier.class.getName() + ".changedNodes";
+
+    private final ConcurrentMap<NodeRef, Signal> signals = new ConcurrentHashMap<>();
+
+    private final TransactionListenerAdapter afterCommit = new TransactionListenerAdapter() {
+        @Override
+        public void afterCommit() {
+            final Set<NodeRef> changedNodes = AlfrescoTransactionSupport.getResource(CHANGED_NODES_KEY);
+            if (changedNodes != null) {
+                for (final NodeRef nodeRef : changedNodes) {
+                    final Signal signal = signals.get(nodeRef);
+                    if (signal != null) {
+                        signal.signal();
+                    }
+                }
+            }
+        }
+    };
+
+    private PolicyComponent policyComponent;
+
+    /**
+     * Setter for Alfresco PolicyComponent
+     *
+     * @param policyComponent an instance of PolicyComponent
+     */
+    public void setPolicyComponent(final PolicyComponent policyComponent) {
+        this.policyComponent = policyComponent;
+    }
+
+    /**
+     * Bind the behaviours
+     */
+    public void init() {
+        for (final QName policy : new QName[] { OnAddAspectPolicy.QNAME, OnRemoveAspectPolicy.QNAME, OnUpdatePropertiesPolicy.QNAME,
+                        OnContentUpdatePolicy.QNAME, OnCreateNodePolicy.QNAME, OnDeleteNodePolicy.QNAME, OnMoveNodePolicy.QNAME }) {
+            policyComponent.bindClassBehaviour(policy, ContentModel.TYPE_BASE, new JavaBehaviour(this, policy.getLocalName(), NotificationFrequency.EVERY_EVENT));
+        }
+        for (final QName policy : new QName[] { OnCreateChildAssociationPolicy.QNAME, OnDeleteChildAssociationPolicy.QNAME,
+                        OnCreateAssociationPolicy.QNAME, OnDeleteAssociationPolicy.QNAME }) {
+            policyComponent.bindAssociationBehaviour(policy, ContentModel.TYPE_BASE,
+                            new JavaBehaviour(this, policy.getLocalName(), NotificationFrequency.EVERY_EVENT));
+        }
+        AssertionCache.invalidatedByPolicies();
+    }
+
+    /**
+     * Start listening to changes of a node. Every call must be matched by a
+     * call to {@link #unwatch(NodeRef)}.
+     *
+     * @param nodeRef the node to watch
+     * @return the signal raised each time a change to the node commits
+     */
+    Signal watch(final NodeRef nodeRef) {
+        return signals.compute(nodeRef, (key, signal) -> (signal != null ? signal : new Signal()).retain());
+    }
+
+    /**
+     * @param nodeRef the node to stop watching
+     */
+    void unwatch(final NodeRef nodeRef) {
+        signals.computeIfPresent(nodeRef, (key, signal) -> signal.release() ? null : signal);
+    }
+
+    private void changed(final NodeRef nodeRef) {
+        AssertionCache.invalidate(nodeRef);
+        if (!signals.containsKey(nodeRef)) {
+            return;
+        }
+        Set<NodeRef> changedNodes = AlfrescoTransactionSupport.getResource(CHANGED_NODES_KEY);
+        if (changedNodes == null) {
+            changedNodes = new LinkedHashSet<>();
+            AlfrescoTransactionSupport.bindResource(CHANGED_NODES_KEY, changedNodes);
+            AlfrescoTransactionSupport.bindListener(afterCommit);
+        }
+        changedNodes.add(nodeRef);
+    }
+
+    @Override
+    public void onAddAspect(final NodeRef nodeRef, final QName aspectTypeQName) {
+        changed(nodeRef);
+    }
+
+    @Override
+    public void onRemoveAspect(final NodeRef nodeRef, final QName aspectTypeQName) {
+        changed(nodeRef);
+    }
+
+    @Override
+    public void onUpdateProperties(final NodeRef nodeRef, final Map<QName, Serializable> before, final Map<QName, Serializable> after) {
+        changed(nodeRef);
+    }
+
+    @Override
+    public void onContentUpdate(final NodeRef nodeRef, final boolean newContent) {
+        changed(nodeRef);
+    }
+
+    @Override
+    public void onCreateNode(final ChildAssociationRef childAssocRef) {
+        changed(childAssocRef.getChildRef());
+    }
+
+    @Override
+    public void onDeleteNode(final ChildAssociationRef childAssocRef, final boolean isNodeArchived) {
+        changed(childAssocRef.getChildRef());
+    }
+
+    @Override
+    public void onMoveNode(final ChildAssociationRef oldChildAssocRef, final ChildAssociationRef newChildAssocRef) {
+        changed(oldChildAssocRef.getChildRef());
+        changed(newChildAssocRef.getChildRef());
+        changed(oldChildAssocRef.getParentRef());
+        changed(newChildAssocRef.getParentRef());
+        AssertionCache.invalidateSites();
+    }
+
+    @Override
+    public void onCreateChildAssociation(final ChildAssociationRef childAssocRef, final boolean isNewNode) {
+        changed(childAssocRef.getParentRef());
+        AssertionCache.invalidateSites();
+    }
+
+    @Override
+    public void onDeleteChildAssociation(final ChildAssociationRef childAssocRef) {
+        changed(childAssocRef.getParentRef());
+        AssertionCache.invalidateSites();
+    }
+
+    @Override
+    public void onCreateAssociation(final AssociationRef nodeAssocRef) {
+        changed(nodeAssocRef.getSourceRef());
+    }
+
+    @Override
+    public void onDeleteAssociation(final AssociationRef nodeAssocRef) {
+        changed(nodeAssocRef.getSourceRef());
+    }
+
+    /**
+     * Committed changes of one node, shared by all threads waiting on it
+     */
+    static final class Signal {
+        private long changes;
+
+        private int watchers;
+
+        private synchronized Signal retain() {
+            watchers++;
+            return this;
+        }
+
+        /**
+         * @return whether nobody watches the node any more
+         */
+        private synchronized boolean release() {
+            return --watchers == 0;
+        }
+
+        private synchronized void signal() {
+            changes++;
+            notifyAll();
+        }
+
+        /**
+         * @return the number of changes signalled so far
+         */
+        synchronized long changes() {
+            return changes;
+        }
+
+        /**
+         * Wait until a change after the given one is signalled, or the time
+         * is up
+         *
+         * @param seen the number of changes already seen
+         * @param nanos the longest time to wait
+         * @throws InterruptedException if interrupted while waiting
+         */
+        synchronized void awaitChange(final long seen, final long nanos) throws InterruptedException {
+            final long deadline = System.nanoTime() + nanos;
+            long remaining = nanos;
+            while ((changes == seen) && (remaining > 0)) {
+                final long millis = remaining / 1000000L;
+                wait(millis, (int) (remaining % 1000000L));
+                remaining = deadline - System.nanoTime();
+            }
+        }
+    }
+}
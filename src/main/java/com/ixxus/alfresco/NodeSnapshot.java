@@ -0,0 +1,84 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.namespace.QName;
+
+/**
+ * In-memory copy of the type, aspects and properties of a node, loaded with
+ * one call per kind of data so a chain of assertions does not need a
+ * repository round trip per check.
+ */
+final class NodeSnapshot {
+    private final NodeRef nodeRef;
+
+    private final QName type;
+
+    private final Set<QName> aspects;
+
+    private final Map<QName, Serializable> properties;
+
+    private NodeSnapshot(final NodeRef nodeRef, final QName type, final Set<QName> aspects, final Map<QName, Serializable> properties) {
+        this.nodeRef = nodeRef;
+        this.type = type;
+        this.aspects = Collections.unmodifiableSet(new HashSet<>(aspects));
+        this.properties = Collections.unmodifiableMap(new HashMap<>(properties));
+    }
+
+    /**
+     * Load the state of an existing node
+     *
+     * @param nodeService service used to read the node
+     * @param nodeRef the node to load
+     * @return the snapshot of the node
+     */
+    static NodeSnapshot load(final NodeService nodeService, final NodeRef nodeRef) {
+        return new NodeSnapshot(nodeRef, nodeService.getType(nodeRef), nodeService.getAspects(nodeRef), nodeService.getProperties(nodeRef));
+    }
+
+    NodeRef getNodeRef() {
+        return nodeRef;
+    }
+
+    QName getType() {
+        return type;
+    }
+
+    Set<QName> getAspects() {
+        return aspects;
+    }
+
+    boolean hasAspect(final QName aspect) {
+        return aspects.contains(aspect);
+    }
+
+    Serializable getProperty(final QName property) {
+        return properties.get(property);
+    }
+
+    Map<QName, Serializable> getProperties() {
+        return properties;
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.alfresco.repo.node.NodeBulkLoader;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.namespace.QName;
+import org.assertj.core.api.AbstractAssert;
+import org.assertj.core.api.Condition;
+
+import com.ixxus.alfresco.metrics.AssertionMetrics;
+
+/**
+ * Custom assertion for checking the same thing on a collection of nodes. The
+ * nodes are loaded in batches the first time a check needs them, and every
+ * check reports all offending nodes rather than only the first one. A node
+ * passed more than once is loaded once but checked and reported for every
+ * occurrence.
+ *
+ * The bulk loader only warms the node caches; every node is still read through
+ * the node service, so permissions and property interceptors apply the same way
+ * as for {@link NodeAssert}.
+ *
+ * Use {@link NodeAssert#assertThatNodes(Collection)} to create one.
+ */
+public class NodesAssert extends AbstractAssert<NodesAssert, Collection<NodeRef>> {
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final NodeService nodeService;
+
+    private final NodeBulkLoader nodeBulkLoader;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private Map<NodeRef, NodeSnapshot> snapshots;
+
+    /**
+     * Only constructor - use {@link NodeAssert#assertThatNodes(Collection)}
+     *
+     * @param nodeRefs the nodes to check
+     * @param nodeService service used to read the nodes
+     * @param nodeBulkLoader bulk loader used to warm the node caches, may be
+     *            null
+     */
+    NodesAssert(final Collection<NodeRef> nodeRefs, final NodeService nodeService, final NodeBulkLoader nodeBulkLoader) {
+        super(nodeRefs, NodesAssert.class);
+        this.nodeService = nodeService;
+        this.nodeBulkLoader = nodeBulkLoader;
+    }
+
+    /**
+     * Change the number of nodes preloaded per batch
+     *
+     * @param batchSize number of nodes per batch, must be &gt; 0
+     * @return The created nodes assertion object
+     */
+    public NodesAssert withBatchSize(final int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be > 0");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Check that all nodes exist. Fail listing every node that does not exist.
+     *
+     * @return The created nodes assertion object
+     */
+    public NodesAssert allExist() {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodesAssert.allExist")) {
+            return check("exist", snapshot -> null);
+        }
+    }
+
+    /**
+     * Check that all nodes match a given type
+     *
+     * @param expectedType expected node type
+     * @return The created nodes assertion object
+     */
+    public NodesAssert allAreType(final QName expectedType) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodesAssert.allAreType")) {
+            return check("be of type <" + expectedType + ">",
+                            snapshot -> snapshot.getType().isMatch(expectedType) ? null : "has type <" + snapshot.getType() + ">");
+        }
+    }
+
+    /**
+     * Check that all nodes have a given aspect
+     *
+     * @param aspect expected aspect
+     * @return The created nodes assertion object
+     */
+    public NodesAssert allHaveAspect(final QName aspect) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodesAssert.allHaveAspect")) {
+            return check("have aspect <" + aspect + ">", snapshot -> snapshot.hasAspect(aspect) ? null : "does not have the aspect");
+        }
+    }
+
+    /**
+     * Check that none of the nodes have a given aspect
+     *
+     * @param aspect aspect none of the nodes should have
+     * @return The created nodes assertion object
+     */
+    public NodesAssert noneHaveAspect(final QName aspect) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodesAssert.noneHaveAspect")) {
+            return check("not have aspect <" + aspect + ">", snapshot -> snapshot.hasAspect(aspect) ? "has the aspect" : null);
+        }
+    }
+
+    /**
+     * Check that all nodes have a property that matches an expected value
+     *
+     * @param property name of a property
+     * @param expectedValue value of a property
+     * @return The created nodes assertion object
+     */
+    public NodesAssert allHavePropertyValue(final QName property, final Serializable expectedValue) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodesAssert.allHavePropertyValue")) {
+            return check("have <" + property + "> equal to <" + expectedValue + ">", snapshot -> {
+                final Serializable actualValue = snapshot.getProperty(property);
+                return Objects.equals(actualValue, expectedValue) ? null : "has value <" + actualValue + ">";
+            });
+        }
+    }
+
+    /**
+     * Check that the value of a property matches a condition on all nodes
+     *
+     * @param property name of a property
+     * @param expectedCondition condition the value should match
+     * @return The created nodes assertion object
+     */
+    public NodesAssert allPropertyValues(final QName property, final Condition<Serializable> expectedCondition) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("NodesAssert.allPropertyValues")) {
+            return check("match <" + expectedCondition.description() + "> for <" + property + ">", snapshot -> {
+                final Serializable actualValue = snapshot.getProperty(property);
+                return expectedCondition.matches(actualValue) ? null : "has value <" + actualValue + ">";
+            });
+        }
+    }
+
+    /**
+     * Run a check on every node and fail with the complete list of offending
+     * nodes. The check returns null when a node passes, or a short description
+     * of why it does not.
+     */
+    private NodesAssert check(final String expectation, final Function<NodeSnapshot, String> nodeCheck) {
+        final Map<NodeRef, NodeSnapshot> loaded = getSnapshots();
+        final List<String> failures = new ArrayList<>();
+        for (final NodeRef nodeRef : actual) {
+            final NodeSnapshot snapshot = loaded.get(nodeRef);
+            final String failure = snapshot == null ? "does not exist" : nodeCheck.apply(snapshot);
+            if (failure != null) {
+                failures.add(nodeRef + " " + failure);
+            }
+        }
+        if (!failures.isEmpty()) {
+            failWithMessage("Expected all <%s> nodes to %s, but <%s> did not:%n  %s", actual.size(), expectation, failures.size(),
+                            String.join(String.format("%n  "), failures));
+        }
+        return this;
+    }
+
+    private Map<NodeRef, NodeSnapshot> getSnapshots() {
+        if (snapshots == null) {
+            isNotNull();
+            final Map<NodeRef, NodeSnapshot> loaded = new LinkedHashMap<>();
+            final List<NodeRef> batch = new ArrayList<>(batchSize);
+            for (final NodeRef nodeRef : actual) {
+                if (loaded.containsKey(nodeRef)) {
+                    continue;
+                }
+                loaded.put(nodeRef, null);
+                batch.add(nodeRef);
+                if (batch.size() == batchSize) {
+                    loadBatch(batch, loaded);
+                }
+            }
+            loadBatch(batch, loaded);
+            snapshots = loaded;
+        }
+        return snapshots;
+    }
+
+    /**
+     * Load the distinct nodes of a batch, leaving null for the ones that do not
+     * exist
+     */
+    private void loadBatch(final List<NodeRef> batch, final Map<NodeRef, NodeSnapshot> loaded) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (nodeBulkLoader != null) {
+            nodeBulkLoader.cacheNodes(batch);
+        }
+        for (final NodeRef nodeRef : batch) {
+            if (nodeService.exists(nodeRef)) {
+                loaded.put(nodeRef, NodeSnapshot.load(nodeService, nodeRef));
+            }
+        }
+        batch.clear();
+    }
+}
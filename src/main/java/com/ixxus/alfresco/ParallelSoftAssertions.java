@@ -0,0 +1,168 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.transaction.TransactionService;
+import org.assertj.core.api.SoftAssertionError;
+
+/**
+ * Soft assertions evaluated concurrently: independent assertion chains are
+ * run on a bounded pool of worker threads, each in its own read-only
+ * transaction as the user that created this object, and all failures are
+ * reported together by {@link #assertAll()}.
+ *
+ * <pre>
+ * final ParallelSoftAssertions softly = new ParallelSoftAssertions();
+ * for (final NodeRef nodeRef : migratedNodes) {
+ *     softly.check(nodeRef, node -&gt; node.snapshot().hasAspect(MY_ASPECT).hasContent());
+ * }
+ * softly.assertAll();
+ * </pre>
+ *
+ * Chains run in new transactions, so they only see data that has been
+ * committed. Workers use the {@link AssertionContext} that was current when
+ * this object was created.
+ */
+public class ParallelSoftAssertions {
+    private final AssertionContext context;
+
+    private final String runAsUser;
+
+    private final ThreadPoolExecutor executor;
+
+    private final List<Future<String>> results = new ArrayList<>();
+
+    /**
+     * Evaluate chains on one worker thread per available processor
+     */
+    public ParallelSoftAssertions() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads the number of worker threads
+     */
+    public ParallelSoftAssertions(final int threads) {
+        this.context = AssertionContext.current();
+        Objects.requireNonNull(context.getTransactionService(), "transactionService is required");
+        this.runAsUser = AuthenticationUtil.getFullyAuthenticatedUser();
+        if (runAsUser == null) {
+            throw new IllegalStateException("Soft assertions run as the current user, but no user is authenticated");
+        }
+        final AtomicInteger threadNumber = new AtomicInteger();
+        // A bounded queue with caller-runs keeps tens of thousands of submitted
+        // chains from piling up in memory ahead of the workers
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads * 16), runnable -> {
+            final Thread thread = new Thread(runnable, "ParallelSoftAssertions-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Setter for Alfresco TransactionService of the default
+     * {@link AssertionContext}
+     *
+     * @param transactionService an instance of TransactionService
+     */
+    public static void setTransactionService(final TransactionService transactionService) {
+        AssertionContext.getDefault().setTransactionService(transactionService);
+    }
+
+    /**
+     * Queue a chain of assertions on a node
+     *
+     * @param nodeRef the node to check
+     * @param assertions the checks to run on the node
+     * @return this
+     */
+    public ParallelSoftAssertions check(final NodeRef nodeRef, final Consumer<NodeAssert> assertions) {
+        return check(String.valueOf(nodeRef), () -> assertions.accept(NodeAssert.assertThat(nodeRef)));
+    }
+
+    /**
+     * Queue any block of assertions
+     *
+     * @param description prefix for the failure message of the block
+     * @param assertions the assertions to run
+     * @return this
+     */
+    public ParallelSoftAssertions check(final String description, final Runnable assertions) {
+        results.add(executor.submit(context.wrap(() -> evaluate(description, assertions))));
+        return this;
+    }
+
+    /**
+     * Wait for all queued checks and fail with every failure message, in the
+     * order the checks were queued. The worker threads are stopped afterwards.
+     */
+    public void assertAll() {
+        final List<String> failures = new ArrayList<>();
+        try {
+            for (final Future<String> result : results) {
+                final String failure = result.get();
+                if (failure != null) {
+                    failures.add(failure);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for assertions", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Assertion worker failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        if (!failures.isEmpty()) {
+            throw new SoftAssertionError(failures);
+        }
+    }
+
+    /**
+     * @return the failure message, or null if the assertions passed
+     */
+    private String evaluate(final String description, final Runnable assertions) {
+        final RetryingTransactionHelper txnHelper = context.getTransactionService().getRetryingTransactionHelper();
+        try {
+            return AuthenticationUtil.runAs(() -> txnHelper.doInTransaction(() -> {
+                // Caught inside the transaction, as errors thrown from a
+                // callback are wrapped by the transaction helper
+                try {
+                    assertions.run();
+                    return null;
+                } catch (final AssertionError e) {
+                    return description + ": " + e.getMessage();
+                }
+            }, true, true), runAsUser);
+        } catch (final RuntimeException e) {
+            return description + ": " + e;
+        }
+    }
+}
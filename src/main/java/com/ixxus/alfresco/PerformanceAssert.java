@@ -0,0 +1,162 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import org.assertj.core.api.AbstractAssert;
+
+import com.ixxus.alfresco.metrics.ServiceCalls;
+
+/**
+ * Custom assertion on the repository service calls made by a block of code,
+ * to keep N+1 access patterns out of behaviours, policies and actions:
+ *
+ * <pre>
+ * assertThatCalls(() -&gt; behaviour.onUpdateNodes(nodeRefs)).per(nodeRefs.size())
+ *         .makesAtMostCalls(NodeService.class, "getProperty", 3)
+ *         .readsAtMostBytes(0);
+ * </pre>
+ *
+ * The latency of an operation is checked with
+ * {@link #assertThatOperation(Runnable)}.
+ *
+ * Calls are recorded through the services wrapped by
+ * {@link com.ixxus.alfresco.metrics.ServiceCallRecorder}, on the thread
+ * running the block, so the repository has to run with the
+ * <code>service-call-recording</code> Spring profile or import
+ * service-call-recording-context.xml.
+ */
+public class PerformanceAssert extends AbstractAssert<PerformanceAssert, ServiceCalls> {
+    private int units = 1;
+
+    /**
+     * Only constructor - use the assertThatCalls-method
+     *
+     * @param calls the recorded service calls
+     */
+    private PerformanceAssert(final ServiceCalls calls) {
+        super(calls, PerformanceAssert.class);
+    }
+
+    /**
+     * Run a block and record the service calls it makes
+     *
+     * @param block the code under test
+     * @return The created performance assertion object
+     */
+    public static PerformanceAssert assertThatCalls(final Runnable block) {
+        return new PerformanceAssert(ServiceCalls.record(block));
+    }
+
+    /**
+     * Measure the latency of a repository operation, see {@link LatencyAssert}
+     *
+     * @param operation the operation to measure, run once per iteration
+     * @return The created latency assertion object
+     */
+    public static LatencyAssert assertThatOperation(final Runnable operation) {
+        return new LatencyAssert(operation, AssertionContext.current());
+    }
+
+    /**
+     * Express the budgets of the following checks per unit of work, e.g. per
+     * node processed by the block
+     *
+     * @param units how many units the block processed
+     * @return The created performance assertion object
+     */
+    public PerformanceAssert per(final int units) {
+        if (units <= 0) {
+            throw new IllegalArgumentException("units must be positive, but was " + units);
+        }
+        this.units = units;
+        return this;
+    }
+
+    /**
+     * Check the total number of service calls
+     *
+     * @param calls the maximum number of calls (per unit)
+     * @return The created performance assertion object
+     */
+    public PerformanceAssert makesAtMostCalls(final int calls) {
+        isNotNull();
+        final long made = actual.getCalls();
+        if (made > (long) calls * units) {
+            failWithMessage("Expected at most <%s> service calls%s, but <%s> were made: %s", calls, perUnit(), made, actual);
+        }
+        return this;
+    }
+
+    /**
+     * Check the number of calls to one service method
+     *
+     * @param service the service interface, e.g. NodeService.class
+     * @param method the method name, all overloads together
+     * @param calls the maximum number of calls (per unit)
+     * @return The created performance assertion object
+     */
+    public PerformanceAssert makesAtMostCalls(final Class<?> service, final String method, final int calls) {
+        return makesAtMostCalls(service.getSimpleName(), method, calls);
+    }
+
+    /**
+     * Check the number of calls to one service method
+     *
+     * @param service the simple name of the service interface, e.g.
+     *            NodeService
+     * @param method the method name, all overloads together
+     * @param calls the maximum number of calls (per unit)
+     * @return The created performance assertion object
+     */
+    public PerformanceAssert makesAtMostCalls(final String service, final String method, final int calls) {
+        isNotNull();
+        final long made = actual.getCalls(service, method);
+        if (made > (long) calls * units) {
+            failWithMessage("Expected at most <%s> calls to %s.%s%s, but <%s> were made: %s", calls, service, method, perUnit(), made, actual);
+        }
+        return this;
+    }
+
+    /**
+     * Check that a service method is not called at all
+     *
+     * @param service the service interface, e.g. NodeService.class
+     * @param method the method name, all overloads together
+     * @return The created performance assertion object
+     */
+    public PerformanceAssert makesNoCalls(final Class<?> service, final String method) {
+        return makesAtMostCalls(service, method, 0);
+    }
+
+    /**
+     * Check the number of content bytes read through the recorded services
+     *
+     * @param bytes the maximum number of bytes (per unit)
+     * @return The created performance assertion object
+     */
+    public PerformanceAssert readsAtMostBytes(final long bytes) {
+        isNotNull();
+        final long read = actual.getBytesRead();
+        if (read > bytes * units) {
+            failWithMessage("Expected at most <%s> content bytes to be read%s, but <%s> were read", bytes, perUnit(), read);
+        }
+        return this;
+    }
+
+    private String perUnit() {
+        return units == 1 ? "" : String.format(" per unit over <%s> units", units);
+    }
+}
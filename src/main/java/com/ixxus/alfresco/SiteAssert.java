@@ -15,13 +15,33 @@
  */
 package com.ixxus.alfresco;
 
+import org.alfresco.repo.node.NodeBulkLoader;
+import org.alfresco.repo.site.SiteModel;
+import org.alfresco.service.cmr.dictionary.DictionaryService;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
 import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.security.AuthorityService;
+import org.alfresco.service.cmr.security.AuthorityType;
 import org.alfresco.service.cmr.site.SiteInfo;
 import org.alfresco.service.cmr.site.SiteService;
+import org.alfresco.service.namespace.QName;
 import org.assertj.core.api.AbstractAssert;
 import org.assertj.core.api.Assertions;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import com.ixxus.alfresco.metrics.AssertionMetrics;
 
 /**
  * Custom assertion specifically for various operations around an Alfresco site
@@ -29,20 +49,65 @@ import java.util.Objects;
  * @author Alex Lu
  */
 public class SiteAssert extends AbstractAssert<SiteAssert, SiteInfo> {
-    private static SiteService siteService;
+    private static final int BATCH_SIZE = 500;
+
+    private final SiteService siteService;
+
+    private final NodeService nodeService;
+
+    private final NodeBulkLoader nodeBulkLoader;
+
+    private final AuthorityService authorityService;
+
+    private final DictionaryService dictionaryService;
+
+    private Map<String, String> directMembers;
+
+    private Map<String, Set<String>> effectiveMembers;
 
     /**
      * Only constructor - use the assertSiteThat-method
      *
      * @param siteInfo an instance of a siteInfo
+     * @param context the services to use
      */
-    private SiteAssert(final SiteInfo siteInfo) {
+    private SiteAssert(final SiteInfo siteInfo, final AssertionContext context) {
         super(siteInfo, SiteAssert.class);
         Objects.requireNonNull(siteInfo);
+        this.siteService = context.getSiteService();
+        this.nodeService = context.getNodeService();
+        this.nodeBulkLoader = context.getNodeBulkLoader();
+        this.authorityService = context.getAuthorityService();
+        this.dictionaryService = context.getDictionaryService();
     }
 
+    /**
+     * Setter for Alfresco SiteService of the default {@link AssertionContext}
+     *
+     * @param siteService an instance of SiteService
+     */
     public static void setSiteService(final SiteService siteService) {
-        SiteAssert.siteService = siteService;
+        AssertionContext.getDefault().setSiteService(siteService);
+    }
+
+    /**
+     * Setter for Alfresco AuthorityService of the default
+     * {@link AssertionContext}, resolving members of nested groups
+     *
+     * @param authorityService an instance of AuthorityService
+     */
+    public static void setAuthorityService(final AuthorityService authorityService) {
+        AssertionContext.getDefault().setAuthorityService(authorityService);
+    }
+
+    /**
+     * Setter for Alfresco DictionaryService of the default
+     * {@link AssertionContext}, recognising subtypes of st:site
+     *
+     * @param dictionaryService an instance of DictionaryService
+     */
+    public static void setDictionaryService(final DictionaryService dictionaryService) {
+        AssertionContext.getDefault().setDictionaryService(dictionaryService);
     }
 
     /**
@@ -53,7 +118,7 @@ public class SiteAssert extends AbstractAssert<SiteAssert, SiteInfo> {
      */
     public static SiteAssert assertThat(final SiteInfo siteInfo) {
         Objects.requireNonNull(siteInfo, "siteInfo is required");
-        return new SiteAssert(siteInfo);
+        return new SiteAssert(siteInfo, AssertionContext.current());
     }
 
     /**
@@ -64,8 +129,9 @@ public class SiteAssert extends AbstractAssert<SiteAssert, SiteInfo> {
      */
     public static SiteAssert assertThat(final String siteShortname) {
         Objects.requireNonNull(siteShortname, "siteShortname is required.");
-        final SiteInfo siteInfo = siteService.getSite(siteShortname);
-        return new SiteAssert(siteInfo);
+        final AssertionContext context = AssertionContext.current();
+        final SiteInfo siteInfo = context.getSiteService().getSite(siteShortname);
+        return new SiteAssert(siteInfo, context);
     }
 
     /**
@@ -75,9 +141,11 @@ public class SiteAssert extends AbstractAssert<SiteAssert, SiteInfo> {
      * @return
      */
     public SiteAssert isSitePreset(final String expectedSitePreset) {
-        final String actualSitePreset = actual.getSitePreset();
-        Assertions.assertThat(expectedSitePreset).isEqualTo(actualSitePreset);
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.isSitePreset")) {
+            final String actualSitePreset = actual.getSitePreset();
+            Assertions.assertThat(expectedSitePreset).isEqualTo(actualSitePreset);
+            return this;
+        }
     }
 
     /**
@@ -87,13 +155,16 @@ public class SiteAssert extends AbstractAssert<SiteAssert, SiteInfo> {
      * @return
      */
     public SiteAssert isNodeInSite(final NodeRef expectedNode) {
-        final SiteInfo expectedSite = siteService.getSite(expectedNode);
-        if (expectedSite == null) {
-            failWithMessage("<%s> does not reside in any site", expectedNode);
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.isNodeInSite")) {
+            final SiteInfo expectedSite = getSite(expectedNode);
+            if (expectedSite == null) {
+                failWithMessage("<%s> does not reside in any site", expectedNode);
+            } else if (!expectedSite.getNodeRef().equals(actual.getNodeRef())) {
+                failWithMessage("<%s> should reside in site <%s>, but resides in site <%s>", expectedNode, actual.getShortName(),
+                                expectedSite.getShortName());
+            }
+            return this;
         }
-
-        Assertions.assertThat(expectedSite).isEqualTo(actual);
-        return this;
     }
 
     /**
@@ -103,14 +174,135 @@ public class SiteAssert extends AbstractAssert<SiteAssert, SiteInfo> {
      * @return
      */
     public SiteAssert isNodeNotInSite(final NodeRef expectedNode) {
-        final SiteInfo expectedSite = siteService.getSite(expectedNode);
-        if (expectedSite != null) {
-            Assertions.assertThat(expectedSite.getShortName()).isNotEqualTo(actual.getShortName());
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.isNodeNotInSite")) {
+            final SiteInfo expectedSite = getSite(expectedNode);
+            if ((expectedSite != null) && expectedSite.getNodeRef().equals(actual.getNodeRef())) {
+                failWithMessage("<%s> should not reside in site <%s>", expectedNode, actual.getShortName());
+            }
+
+            return this;
         }
+    }
 
+    /**
+     * Check that all nodes reside in the actual site. Sites are resolved for
+     * the whole collection with one primary parent walk per folder, so
+     * siblings cost one lookup each. Fail listing every node that does not.
+     *
+     * @param nodeRefs the nodes expected in the site
+     * @return this
+     */
+    public SiteAssert containsNodes(final Collection<NodeRef> nodeRefs) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.containsNodes")) {
+            return checkNodes(nodeRefs, "be in", true);
+        }
+    }
+
+    /**
+     * Check that none of the nodes reside in the actual site, resolved as by
+     * {@link #containsNodes(Collection)}
+     *
+     * @param nodeRefs the nodes expected outside the site
+     * @return this
+     */
+    public SiteAssert containsNoneOf(final Collection<NodeRef> nodeRefs) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.containsNoneOf")) {
+            return checkNodes(nodeRefs, "not be in", false);
+        }
+    }
+
+    private SiteAssert checkNodes(final Collection<NodeRef> nodeRefs, final String expectation, final boolean expectedInSite) {
+        isNotNull();
+        // Site node of each folder walked through, null for none
+        final Map<NodeRef, NodeRef> siteByAncestor = new HashMap<>();
+        final List<String> failures = new ArrayList<>();
+        final List<NodeRef> batch = new ArrayList<>(BATCH_SIZE);
+        for (final NodeRef nodeRef : nodeRefs) {
+            batch.add(nodeRef);
+            if (batch.size() == BATCH_SIZE) {
+                checkBatch(batch, siteByAncestor, expectedInSite, failures);
+            }
+        }
+        checkBatch(batch, siteByAncestor, expectedInSite, failures);
+        if (!failures.isEmpty()) {
+            failWithMessage("Expected all <%s> nodes to %s site <%s>, but <%s> did not:%n  %s", nodeRefs.size(), expectation, actual.getShortName(),
+                            failures.size(), String.join(String.format("%n  "), failures));
+        }
         return this;
     }
 
+    private void checkBatch(final List<NodeRef> batch, final Map<NodeRef, NodeRef> siteByAncestor, final boolean expectedInSite,
+                    final List<String> failures) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (nodeBulkLoader != null) {
+            nodeBulkLoader.cacheNodes(batch);
+        }
+        for (final NodeRef nodeRef : batch) {
+            if (!nodeService.exists(nodeRef)) {
+                if (expectedInSite) {
+                    failures.add(nodeRef + " does not exist");
+                }
+                continue;
+            }
+            final NodeRef siteRef = resolveSite(nodeRef, siteByAncestor);
+            final boolean inSite = actual.getNodeRef().equals(siteRef);
+            if (expectedInSite && !inSite) {
+                failures.add(nodeRef + (siteRef == null ? " is not in any site" : " is in site " + siteRef));
+            } else if (!expectedInSite && inSite) {
+                failures.add(nodeRef + " is in the site");
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * @return the site node the node resides in, or null. The ancestors
+     *         walked through are cached, so the next node in the same folder
+     *         stops at its parent.
+     */
+    private NodeRef resolveSite(final NodeRef nodeRef, final Map<NodeRef, NodeRef> siteByAncestor) {
+        final List<NodeRef> ancestors = new ArrayList<>();
+        NodeRef current = nodeRef;
+        NodeRef siteRef = null;
+        while (current != null) {
+            if (siteByAncestor.containsKey(current)) {
+                siteRef = siteByAncestor.get(current);
+                break;
+            }
+            if (current.equals(actual.getNodeRef()) || isSiteType(nodeService.getType(current))) {
+                siteRef = current;
+                break;
+            }
+            if (!current.equals(nodeRef)) {
+                ancestors.add(current);
+            }
+            final ChildAssociationRef parentAssoc = nodeService.getPrimaryParent(current);
+            current = parentAssoc != null ? parentAssoc.getParentRef() : null;
+        }
+        for (final NodeRef ancestor : ancestors) {
+            siteByAncestor.put(ancestor, siteRef);
+        }
+        return siteRef;
+    }
+
+    /**
+     * @return true for st:site and its subtypes. Without a DictionaryService,
+     *         e.g. with the in-memory services, only st:site itself is known.
+     */
+    private boolean isSiteType(final QName type) {
+        return dictionaryService != null ? dictionaryService.isSubClass(type, SiteModel.TYPE_SITE) : SiteModel.TYPE_SITE.equals(type);
+    }
+
+    /**
+     * @return the site the node resides in, kept in the {@link AssertionCache}
+     *         for the rest of the transaction
+     */
+    private SiteInfo getSite(final NodeRef nodeRef) {
+        return AssertionCache.get(nodeRef, AssertionCache.SITE, () -> siteService.getSite(nodeRef));
+    }
+
     /**
      * Check if the name of the actual site matches expected name.
      *
@@ -118,8 +310,10 @@ public class SiteAssert extends AbstractAssert<SiteAssert, SiteInfo> {
      * @return
      */
     public SiteAssert isSiteName(final String expectedSiteName) {
-        Assertions.assertThat(expectedSiteName).isEqualTo(actual.getShortName());
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.isSiteName")) {
+            Assertions.assertThat(expectedSiteName).isEqualTo(actual.getShortName());
+            return this;
+        }
     }
 
     /**
@@ -129,8 +323,10 @@ public class SiteAssert extends AbstractAssert<SiteAssert, SiteInfo> {
      * @return
      */
     public SiteAssert hasSite(final String expectedSiteName) {
-        Assertions.assertThat(siteService.hasSite(expectedSiteName)).isTrue();
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.hasSite")) {
+            Assertions.assertThat(siteService.hasSite(expectedSiteName)).isTrue();
+            return this;
+        }
     }
 
     /**
@@ -140,8 +336,131 @@ public class SiteAssert extends AbstractAssert<SiteAssert, SiteInfo> {
      * @return
      */
     public SiteAssert isMember(final String expectedAuthority) {
-        Assertions.assertThat(siteService.isMember(actual.getShortName(), expectedAuthority)).isTrue();
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.isMember")) {
+            Assertions.assertThat(siteService.isMember(actual.getShortName(), expectedAuthority)).isTrue();
+            return this;
+        }
+    }
+
+    /**
+     * Check that authorities are members of the actual site, directly or
+     * through groups at any depth. The members are listed once for the whole
+     * chain, and every authority that is not a member is reported.
+     *
+     * @param expectedAuthorities the users and groups expected to be members
+     * @return this
+     */
+    public SiteAssert hasMembers(final Collection<String> expectedAuthorities) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.hasMembers")) {
+            isNotNull();
+            final Map<String, Set<String>> members = getEffectiveMembers();
+            final Set<String> missing = expectedAuthorities.stream().filter(authority -> !members.containsKey(authority))
+                            .collect(Collectors.toCollection(TreeSet::new));
+            if (!missing.isEmpty()) {
+                failWithMessage("Expected <%s> authorities to be members of site <%s>, but these are not: <%s>", expectedAuthorities.size(),
+                                actual.getShortName(), missing);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * @see #hasMembers(Collection)
+     * @param expectedAuthorities the users and groups expected to be members
+     * @return this
+     */
+    public SiteAssert hasMembers(final String... expectedAuthorities) {
+        return hasMembers(Arrays.asList(expectedAuthorities));
+    }
+
+    /**
+     * Check the direct members of the actual site: members of member groups
+     * are not expected to be listed.
+     *
+     * @param expectedAuthorities all the users and groups that are members
+     * @return this
+     */
+    public SiteAssert hasExactlyMembers(final Collection<String> expectedAuthorities) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.hasExactlyMembers")) {
+            isNotNull();
+            final Set<String> members = getDirectMembers().keySet();
+            final Set<String> missing = new TreeSet<>(expectedAuthorities);
+            missing.removeAll(members);
+            final Set<String> unexpected = new TreeSet<>(members);
+            unexpected.removeAll(new HashSet<>(expectedAuthorities));
+            if (!missing.isEmpty() || !unexpected.isEmpty()) {
+                failWithMessage("Expected site <%s> to have exactly the members <%s>, but these are missing: <%s> and these are unexpected: <%s>",
+                                actual.getShortName(), new TreeSet<>(expectedAuthorities), missing, unexpected);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * @see #hasExactlyMembers(Collection)
+     * @param expectedAuthorities all the users and groups that are members
+     * @return this
+     */
+    public SiteAssert hasExactlyMembers(final String... expectedAuthorities) {
+        return hasExactlyMembers(Arrays.asList(expectedAuthorities));
+    }
+
+    /**
+     * Check the role of an authority in the actual site. The role compared is
+     * the one the SiteService grants, i.e. the highest of the roles the
+     * authority holds directly or through any group it belongs to.
+     *
+     * @param authority the user or group
+     * @param expectedRole the site role, e.g. SiteCollaborator
+     * @return this
+     */
+    public SiteAssert hasMemberWithRole(final String authority, final String expectedRole) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.hasMemberWithRole")) {
+            isNotNull();
+            final String role = siteService.getMembersRole(actual.getShortName(), authority);
+            if (role == null) {
+                failWithMessage("Expected <%s> to be a member of site <%s> with role <%s>, but it is not a member", authority, actual.getShortName(),
+                                expectedRole);
+            } else if (!role.equals(expectedRole)) {
+                failWithMessage("Expected <%s> to have role <%s> in site <%s>, but had <%s>", authority, expectedRole, actual.getShortName(), role);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * @return the users and groups that are members of the site themselves,
+     *         with their role, listed once per assertion object
+     */
+    private Map<String, String> getDirectMembers() {
+        if (directMembers == null) {
+            directMembers = siteService.listMembers(actual.getShortName(), null, null, 0, false);
+        }
+        return directMembers;
+    }
+
+    /**
+     * @return the direct members and the authorities of member groups at any
+     *         depth, with every role they hold
+     */
+    private Map<String, Set<String>> getEffectiveMembers() {
+        if (effectiveMembers == null) {
+            final Map<String, Set<String>> members = new HashMap<>();
+            for (final Map.Entry<String, String> member : getDirectMembers().entrySet()) {
+                final String authority = member.getKey();
+                final String role = member.getValue();
+                members.computeIfAbsent(authority, key -> new TreeSet<>()).add(role);
+                // Without an AuthorityService, e.g. with the in-memory
+                // services, only direct members are known
+                if ((authorityService != null) && (AuthorityType.getAuthorityType(authority) == AuthorityType.GROUP)) {
+                    for (final String contained : authorityService.getContainedAuthorities(null, authority, false)) {
+                        members.computeIfAbsent(contained, key -> new TreeSet<>()).add(role);
+                    }
+                }
+            }
+            effectiveMembers = members;
+        }
+        return effectiveMembers;
     }
 
     /**
@@ -151,8 +470,10 @@ public class SiteAssert extends AbstractAssert<SiteAssert, SiteInfo> {
      * @return
      */
     public SiteAssert hasContainer(final String expectedContainer) {
-        Assertions.assertThat(containerExists(expectedContainer)).isTrue();
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.hasContainer")) {
+            Assertions.assertThat(containerExists(expectedContainer)).isTrue();
+            return this;
+        }
     }
 
     private boolean containerExists(final String expectedContainer) {
@@ -166,8 +487,10 @@ public class SiteAssert extends AbstractAssert<SiteAssert, SiteInfo> {
      * @return
      */
     public SiteAssert doesNotHaveContainer(final String expectedContainer) {
-        Assertions.assertThat(containerExists(expectedContainer)).isFalse();
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("SiteAssert.doesNotHaveContainer")) {
+            Assertions.assertThat(containerExists(expectedContainer)).isFalse();
+            return this;
+        }
     }
 
 }
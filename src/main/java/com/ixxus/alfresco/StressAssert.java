@@ -0,0 +1,267 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.transaction.TransactionService;
+import org.assertj.core.api.AbstractAssert;
+
+/**
+ * Custom assertion on a repository action run concurrently, to catch
+ * concurrency failures in behaviours and policies. The action runs from a
+ * number of threads, a number of iterations each, every iteration in a
+ * read-write transaction of {@link RetryingTransactionHelper} as the current
+ * user; retries, failures and throughput are recorded.
+ *
+ * <pre>
+ * assertThatConcurrently(() -&gt; incrementCounter(nodeRef)).withThreads(8).overIterations(50)
+ *         .hasNoUnretriedFailures()
+ *         .retryRateBelow(0.05)
+ *         .hasFinalState(nodeRef, node -&gt; node.hasPropertyValue(PROP_COUNTER, 400));
+ * </pre>
+ *
+ * The action runs when the first check is made. All threads are released
+ * at once to maximise contention.
+ */
+public class StressAssert extends AbstractAssert<StressAssert, RetryingTransactionCallback<?>> {
+    private static final int DEFAULT_ITERATIONS = 10;
+
+    private final AssertionContext context;
+
+    private final TransactionService transactionService;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private int iterations = DEFAULT_ITERATIONS;
+
+    private StressResult result;
+
+    /**
+     * Only constructor - use the assertThatConcurrently-method
+     *
+     * @param action the action to run
+     * @param context the services to use
+     */
+    private StressAssert(final RetryingTransactionCallback<?> action, final AssertionContext context) {
+        super(action, StressAssert.class);
+        this.context = context;
+        this.transactionService = context.getTransactionService();
+    }
+
+    /**
+     * Setter for Alfresco TransactionService of the default
+     * {@link AssertionContext}
+     *
+     * @param transactionService an instance of TransactionService
+     */
+    public static void setTransactionService(final TransactionService transactionService) {
+        AssertionContext.getDefault().setTransactionService(transactionService);
+    }
+
+    /**
+     * @param action the action to run concurrently, once per iteration
+     * @return The created stress assertion object
+     */
+    public static StressAssert assertThatConcurrently(final RetryingTransactionCallback<?> action) {
+        return new StressAssert(action, AssertionContext.current());
+    }
+
+    /**
+     * @param threads how many threads run the action, one per available
+     *            processor by default
+     * @return The created stress assertion object
+     */
+    public StressAssert withThreads(final int threads) {
+        checkNotRun();
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive, but was " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param iterations how many times each thread runs the action, 10 by
+     *            default
+     * @return The created stress assertion object
+     */
+    public StressAssert overIterations(final int iterations) {
+        checkNotRun();
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("iterations must be positive, but was " + iterations);
+        }
+        this.iterations = iterations;
+        return this;
+    }
+
+    /**
+     * Check that every iteration committed, possibly after retries
+     *
+     * @return The created stress assertion object
+     */
+    public StressAssert hasNoUnretriedFailures() {
+        isNotNull();
+        final StressResult stressResult = run();
+        if (stressResult.getFailed() > 0) {
+            failWithMessage("Expected every iteration to commit, but <%s> failed: %s%nFirst failure: %s", stressResult.getFailed(), stressResult,
+                            stressResult.getFailures().get(0));
+        }
+        return this;
+    }
+
+    /**
+     * Check the number of transaction retries per iteration
+     *
+     * @param rate the rate the retries must stay below, e.g. 0.05
+     * @return The created stress assertion object
+     */
+    public StressAssert retryRateBelow(final double rate) {
+        isNotNull();
+        final StressResult stressResult = run();
+        if (stressResult.getRetryRate() >= rate) {
+            failWithMessage("Expected a retry rate below <%s>, but was <%s>: %s", rate, stressResult.getRetryRate(), stressResult);
+        }
+        return this;
+    }
+
+    /**
+     * Check the number of committed iterations per second
+     *
+     * @param iterationsPerSecond the throughput to reach
+     * @return The created stress assertion object
+     */
+    public StressAssert hasThroughputAbove(final double iterationsPerSecond) {
+        isNotNull();
+        final StressResult stressResult = run();
+        if (stressResult.getThroughput() <= iterationsPerSecond) {
+            failWithMessage("Expected a throughput above <%s> iterations/s, but was <%.1f>: %s", iterationsPerSecond, stressResult.getThroughput(),
+                            stressResult);
+        }
+        return this;
+    }
+
+    /**
+     * Check a node after the run, in a new read-only transaction so the
+     * committed state is seen
+     *
+     * @param nodeRef the node to check
+     * @param assertions the checks to run on the node
+     * @return The created stress assertion object
+     */
+    public StressAssert hasFinalState(final NodeRef nodeRef, final Consumer<NodeAssert> assertions) {
+        isNotNull();
+        run();
+        final AssertionError failure = transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+            // Caught inside the transaction, as errors thrown from a callback
+            // are wrapped by the transaction helper
+            try {
+                assertions.accept(NodeAssert.assertThat(nodeRef));
+                return null;
+            } catch (final AssertionError e) {
+                return e;
+            }
+        }, true, true);
+        if (failure != null) {
+            throw failure;
+        }
+        return this;
+    }
+
+    /**
+     * @return the outcome of the run, running the action if needed
+     */
+    public StressResult getResult() {
+        return run();
+    }
+
+    private StressResult run() {
+        if (result == null) {
+            Objects.requireNonNull(transactionService, "transactionService is required");
+            final String runAsUser = AuthenticationUtil.getFullyAuthenticatedUser();
+            if (runAsUser == null) {
+                throw new IllegalStateException("The action runs as the current user, but no user is authenticated");
+            }
+            final LongAdder attempts = new LongAdder();
+            final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+            final RetryingTransactionCallback<Object> counted = () -> {
+                attempts.increment();
+                return actual.execute();
+            };
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicInteger threadNumber = new AtomicInteger();
+            final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+                final Thread thread = new Thread(runnable, "StressAssert-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                final List<Future<?>> workers = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    workers.add(executor.submit(context.wrap(() -> AuthenticationUtil.runAs(() -> {
+                        final RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+                        start.await();
+                        for (int iteration = 0; iteration < iterations; iteration++) {
+                            try {
+                                txnHelper.doInTransaction(counted, false, true);
+                            } catch (final RuntimeException e) {
+                                failures.add(e);
+                            }
+                        }
+                        return null;
+                    }, runAsUser))));
+                }
+                final long startTime = System.nanoTime();
+                start.countDown();
+                for (final Future<?> worker : workers) {
+                    worker.get();
+                }
+                final Duration elapsed = Duration.ofNanos(System.nanoTime() - startTime);
+                result = new StressResult(threads, (long) threads * iterations, attempts.sum(), failures, elapsed);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the stress run", e);
+            } catch (final ExecutionException e) {
+                throw new IllegalStateException("Stress worker failed", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        return result;
+    }
+
+    private void checkNotRun() {
+        if (result != null) {
+            throw new IllegalStateException("The action has already been run");
+        }
+    }
+}
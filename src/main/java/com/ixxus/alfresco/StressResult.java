@@ -0,0 +1,135 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a stress run, see {@link StressAssert}
+ */
+public final class StressResult {
+    private final int threads;
+
+    private final long iterations;
+
+    private final long attempts;
+
+    private final List<Throwable> failures;
+
+    private final Duration elapsed;
+
+    StressResult(final int threads, final long iterations, final long attempts, final List<Throwable> failures, final Duration elapsed) {
+        this.threads = threads;
+        this.iterations = iterations;
+        this.attempts = attempts;
+        this.failures = Collections.unmodifiableList(new ArrayList<>(failures));
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the number of threads the action ran on
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the number of iterations over all threads
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the number of times a transaction was started, including
+     *         retries
+     */
+    public long getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return the number of times a transaction was retried
+     */
+    public long getRetries() {
+        return attempts - iterations;
+    }
+
+    /**
+     * @return retries per iteration
+     */
+    public double getRetryRate() {
+        return iterations == 0 ? 0d : getRetries() / (double) iterations;
+    }
+
+    /**
+     * @return the number of iterations that failed after any retries
+     */
+    public long getFailed() {
+        return failures.size();
+    }
+
+    /**
+     * @return the number of iterations that committed
+     */
+    public long getSucceeded() {
+        return iterations - failures.size();
+    }
+
+    /**
+     * @return the exceptions of the failed iterations
+     */
+    public List<Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the number of failed iterations per exception class
+     */
+    public Map<String, Long> getFailuresByType() {
+        final Map<String, Long> result = new TreeMap<>();
+        for (final Throwable failure : failures) {
+            result.merge(failure.getClass().getName(), 1L, Long::sum);
+        }
+        return result;
+    }
+
+    /**
+     * @return the wall-clock time of the run
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return committed iterations per second
+     */
+    public double getThroughput() {
+        final long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0d : getSucceeded() / (nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s threads, %s iterations, %s succeeded, %s failed %s, %s retries (%.2f%%), %.1f iterations/s in %s ms", threads, iterations,
+                        getSucceeded(), getFailed(), getFailuresByType(), getRetries(), getRetryRate() * 100, getThroughput(), elapsed.toMillis());
+    }
+}
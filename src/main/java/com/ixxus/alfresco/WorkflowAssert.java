@@ -1,8 +1,10 @@
 package com.ixxus.alfresco;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.workflow.WorkflowModel;
@@ -15,6 +17,8 @@ import org.alfresco.util.ParameterCheck;
 import org.assertj.core.api.AbstractAssert;
 import org.assertj.core.api.Assertions;
 
+import com.ixxus.alfresco.metrics.AssertionMetrics;
+
 /**
  * Custom assertions for various operations around Alfresco workflows
  *
@@ -22,24 +26,29 @@ import org.assertj.core.api.Assertions;
  */
 public class WorkflowAssert extends AbstractAssert<WorkflowAssert, WorkflowInstance> {
 
-    private static NodeService nodeService;
+    private final NodeService nodeService;
+
+    private Set<NodeRef> packageItems;
 
     /**
      * Only constructor - use the assertThat-method
      *
      * @param workflowInstance an instance of a workflowInstance
+     * @param context the services to use
      */
-    private WorkflowAssert(final WorkflowInstance workflowInstance) {
+    private WorkflowAssert(final WorkflowInstance workflowInstance, final AssertionContext context) {
         super(workflowInstance, WorkflowAssert.class);
+        this.nodeService = context.getNodeService();
     }
 
     /**
-     * Setter method for nodeService
+     * Setter method for nodeService of the default {@link AssertionContext},
+     * shared with {@link NodeAssert}
      *
      * @param nodeService
      */
     public static void setNodeService(final NodeService nodeService) {
-        WorkflowAssert.nodeService = nodeService;
+        AssertionContext.getDefault().setNodeService(nodeService);
     }
 
     /**
@@ -48,7 +57,7 @@ public class WorkflowAssert extends AbstractAssert<WorkflowAssert, WorkflowInsta
      * @return
      */
     public static WorkflowAssert assertThat(final WorkflowInstance workflowInstance) {
-        return new WorkflowAssert(workflowInstance);
+        return new WorkflowAssert(workflowInstance, AssertionContext.current());
     }
 
     /**
@@ -58,11 +67,12 @@ public class WorkflowAssert extends AbstractAssert<WorkflowAssert, WorkflowInsta
      * @return
      */
     public WorkflowAssert hasPackageItemAttached(final NodeRef expectedItem) {
-        final List<NodeRef> wfItems = getPackageItems(this.actual.getWorkflowPackage());
-        Assertions.assertThat(wfItems)
-                        .as(String.format("The item '%s' should be an attachment on the workflow", expectedItem.toString()))
-                        .contains(expectedItem);
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("WorkflowAssert.hasPackageItemAttached")) {
+            if (!getPackageItems().contains(expectedItem)) {
+                failWithMessage("The item '%s' should be an attachment on the workflow", expectedItem);
+            }
+            return this;
+        }
     }
 
     /**
@@ -72,29 +82,68 @@ public class WorkflowAssert extends AbstractAssert<WorkflowAssert, WorkflowInsta
      * @return
      */
     public WorkflowAssert hasPackageItemsAttached(final Set<NodeRef> expectedItems) {
-        if (expectedItems == null) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("WorkflowAssert.hasPackageItemsAttached")) {
+            if (expectedItems == null) {
+                return this;
+            }
+            final Set<NodeRef> wfItems = getPackageItems();
+            final List<NodeRef> missing = new ArrayList<>();
+            for (final NodeRef item : expectedItems) {
+                if (!wfItems.contains(item)) {
+                    missing.add(item);
+                }
+            }
+            if (missing.isEmpty() && (wfItems.size() == expectedItems.size())) {
+                return this;
+            }
+            final List<NodeRef> unexpected = new ArrayList<>();
+            for (final NodeRef item : wfItems) {
+                if (!expectedItems.contains(item)) {
+                    unexpected.add(item);
+                }
+            }
+            failWithMessage("The attached items on the workflow have to match, but the items %s are missing and the items %s are unexpected", missing,
+                            unexpected);
             return this;
         }
-        final List<NodeRef> wfItems = getPackageItems(this.actual.getWorkflowPackage());
-        Assertions.assertThat(wfItems).as("The number of attached items on the workflow has to match").hasSize(expectedItems.size());
-        for (final NodeRef item : expectedItems) {
-            Assertions.assertThat(wfItems)
-                            .as(String.format("The item '%s' should be an attachment on the workflow", item.toString()))
-                            .contains(item);
-        }
-        return this;
     }
 
     /**
-     * Checks that the workflow only has x nr of items attached
+     * Checks that the workflow only has x nr of items attached. Unless the
+     * items were already loaded by an earlier check, at most one association
+     * more than expected is read.
      * 
      * @param nrOfItems
      * @return
      */
     public WorkflowAssert hasNumberOfPackageItems(final int nrOfItems) {
-        final List<NodeRef> wfItems = getPackageItems(this.actual.getWorkflowPackage());
-        Assertions.assertThat(wfItems).as("The number of attached items on the workflow has to match").hasSize(nrOfItems);
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("WorkflowAssert.hasNumberOfPackageItems")) {
+            final int limit = nrOfItems == Integer.MAX_VALUE ? nrOfItems : nrOfItems + 1;
+            final int actualCount = packageItems != null ? packageItems.size() : countPackageItems(limit);
+            if (actualCount != nrOfItems) {
+                failWithMessage("The number of attached items on the workflow has to match, expected <%s> but was <%s>", nrOfItems,
+                                actualCount > nrOfItems ? "more" : actualCount);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Checks that the workflow has no more than x items attached, reading at
+     * most one association more than that
+     *
+     * @param maxNrOfItems
+     * @return
+     */
+    public WorkflowAssert hasAtMostPackageItems(final int maxNrOfItems) {
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("WorkflowAssert.hasAtMostPackageItems")) {
+            final int limit = maxNrOfItems == Integer.MAX_VALUE ? maxNrOfItems : maxNrOfItems + 1;
+            final int actualCount = packageItems != null ? packageItems.size() : countPackageItems(limit);
+            if (actualCount > maxNrOfItems) {
+                failWithMessage("The workflow should have at most <%s> attached items but has more", maxNrOfItems);
+            }
+            return this;
+        }
     }
 
     /**
@@ -104,9 +153,11 @@ public class WorkflowAssert extends AbstractAssert<WorkflowAssert, WorkflowInsta
      * @return
      */
     public WorkflowAssert isInitiator(final String userName) {
-        final String initiatorName = (String) nodeService.getProperty(this.actual.getInitiator(), ContentModel.PROP_USERNAME);
-        Assertions.assertThat(initiatorName).as("The initiator should match the user name").isEqualTo(userName);
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("WorkflowAssert.isInitiator")) {
+            final String initiatorName = (String) nodeService.getProperty(this.actual.getInitiator(), ContentModel.PROP_USERNAME);
+            Assertions.assertThat(initiatorName).as("The initiator should match the user name").isEqualTo(userName);
+            return this;
+        }
     }
 
     /**
@@ -116,8 +167,10 @@ public class WorkflowAssert extends AbstractAssert<WorkflowAssert, WorkflowInsta
      * @return
      */
     public WorkflowAssert hasDescription(final String description) {
-        Assertions.assertThat(this.actual.getDescription()).as("The workflow description should match the expected description").isEqualTo(description);
-        return this;
+        try (AssertionMetrics.Scope scope = AssertionMetrics.enter("WorkflowAssert.hasDescription")) {
+            Assertions.assertThat(this.actual.getDescription()).as("The workflow description should match the expected description").isEqualTo(description);
+            return this;
+        }
     }
 
     /**
@@ -131,17 +184,50 @@ public class WorkflowAssert extends AbstractAssert<WorkflowAssert, WorkflowInsta
     }
 
     /**
-     * Returns a list of {@link NodeRef} using the given
+     * Counts the items in the workflow package, loading no more than
+     * <code>limit</code> associations and none of the item nodes
+     */
+    private int countPackageItems(final int limit) {
+        final NodeRef packageNodeRef = this.actual.getWorkflowPackage();
+        ParameterCheck.mandatory("packageNodeRef", packageNodeRef);
+        if (limit <= 0) {
+            return 0;
+        }
+        return nodeService.getChildAssocs(packageNodeRef, WorkflowModel.ASSOC_PACKAGE_CONTAINS, RegexQNamePattern.MATCH_ALL, limit, false).size();
+    }
+
+    /**
+     * Returns the items in the workflow package, loaded on first use and kept
+     * for the rest of the chain, and in the {@link AssertionCache} for the
+     * rest of the transaction
+     *
+     * @return set of {@link NodeRef} in the order they were returned
+     */
+    private Set<NodeRef> getPackageItems() {
+        if (packageItems == null) {
+            final NodeRef packageNodeRef = this.actual.getWorkflowPackage();
+            packageItems = AssertionCache.get(packageNodeRef, AssertionCache.PACKAGE_ITEMS,
+                            () -> Collections.unmodifiableSet(getPackageItems(packageNodeRef)));
+        }
+        return packageItems;
+    }
+
+    /**
+     * Returns a set of {@link NodeRef} using the given
      * <code>packageNodeRef</code> as container
      *
      * @param packageNodeRef {@link NodeRef}
-     * @return list of {@link NodeRef}
+     * @return set of {@link NodeRef}
      */
-    private List<NodeRef> getPackageItems(final NodeRef packageNodeRef) {
+    private Set<NodeRef> getPackageItems(final NodeRef packageNodeRef) {
         ParameterCheck.mandatory("packageNodeRef", packageNodeRef);
 
         final List<ChildAssociationRef> childAssocs = nodeService.getChildAssocs(packageNodeRef, WorkflowModel.ASSOC_PACKAGE_CONTAINS,
                         RegexQNamePattern.MATCH_ALL);
-        return childAssocs.stream().map(childAssoc -> childAssoc.getChildRef()).collect(Collectors.toList());
+        final Set<NodeRef> items = new LinkedHashSet<>(childAssocs.size() * 2);
+        for (final ChildAssociationRef childAssoc : childAssocs) {
+            items.add(childAssoc.getChildRef());
+        }
+        return items;
     }
 }
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.memory;
+
+import java.io.Serializable;
+
+import org.alfresco.repo.content.ContentContext;
+import org.alfresco.repo.content.ContentStore;
+import org.alfresco.repo.content.MimetypeMap;
+import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.QName;
+
+/**
+ * The reading and writing part of
+ * {@link org.alfresco.service.cmr.repository.ContentService}, storing the
+ * content data on nodes of an {@link InMemoryRepository} and the bytes in a
+ * {@link ContentStore}. Use {@link InMemoryServices#getContentService()} to
+ * get it as a ContentService.
+ */
+public class InMemoryContentService {
+    private static final String DEFAULT_ENCODING = "UTF-8";
+
+    private final InMemoryRepository repository;
+
+    private final ContentStore store;
+
+    public InMemoryContentService(final InMemoryRepository repository, final ContentStore store) {
+        this.repository = repository;
+        this.store = store;
+    }
+
+    public ContentReader getReader(final NodeRef nodeRef, final QName propertyQName) {
+        final Serializable value = repository.getProperty(nodeRef, propertyQName);
+        if (!(value instanceof ContentData) || (((ContentData) value).getContentUrl() == null)) {
+            return null;
+        }
+        final ContentData contentData = (ContentData) value;
+        final ContentReader reader = store.getReader(contentData.getContentUrl());
+        reader.setMimetype(contentData.getMimetype());
+        reader.setEncoding(contentData.getEncoding());
+        reader.setLocale(contentData.getLocale());
+        return reader;
+    }
+
+    public ContentReader getRawReader(final String contentUrl) {
+        return store.getReader(contentUrl);
+    }
+
+    public ContentWriter getWriter(final NodeRef nodeRef, final QName propertyQName, final boolean update) {
+        final ContentWriter writer = store.getWriter(new ContentContext(null, null));
+        final Serializable existing = nodeRef != null ? repository.getProperty(nodeRef, propertyQName) : null;
+        if (existing instanceof ContentData) {
+            final ContentData contentData = (ContentData) existing;
+            writer.setMimetype(contentData.getMimetype());
+            writer.setEncoding(contentData.getEncoding());
+            writer.setLocale(contentData.getLocale());
+        }
+        if (writer.getMimetype() == null) {
+            writer.setMimetype(MimetypeMap.MIMETYPE_BINARY);
+        }
+        if (writer.getEncoding() == null) {
+            writer.setEncoding(DEFAULT_ENCODING);
+        }
+        if (update && (nodeRef != null)) {
+            writer.addListener(() -> repository.setProperty(nodeRef, propertyQName, writer.getContentData()));
+        }
+        return writer;
+    }
+
+    public ContentWriter getTempWriter() {
+        return getWriter(null, null, false);
+    }
+}
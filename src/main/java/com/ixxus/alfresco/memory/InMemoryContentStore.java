@@ -0,0 +1,354 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+import org.alfresco.repo.content.AbstractContentReader;
+import org.alfresco.repo.content.AbstractContentStore;
+import org.alfresco.repo.content.AbstractContentWriter;
+import org.alfresco.repo.content.ContentContext;
+import org.alfresco.repo.content.ContentStore;
+import org.alfresco.service.cmr.repository.ContentIOException;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+/**
+ * Content store keeping all content in memory, on the heap or in direct
+ * buffers outside of it. Content becomes visible to readers when its writer
+ * is closed.
+ * <p>
+ * Also used as the repository content store by the
+ * <code>in-memory-content</code> profile of module-context.xml. Until the
+ * repository has started, see {@link StartListener}, content is written to
+ * the fallback store, so the content URLs the bootstrap stores in the
+ * database still resolve in the next run. Content written before, with or
+ * without the profile, is read from the fallback store.
+ */
+public class InMemoryContentStore extends AbstractContentStore {
+    /**
+     * Protocol of the content URLs created by this store
+     */
+    public static final String PROTOCOL = "memory";
+
+    private final ConcurrentMap<String, Entry> content = new ConcurrentHashMap<>();
+
+    private final boolean offHeap;
+
+    private ContentStore fallbackStore;
+
+    private volatile boolean started;
+
+    /**
+     * Keep content on the heap
+     */
+    public InMemoryContentStore() {
+        this(false);
+    }
+
+    /**
+     * @param offHeap whether content is kept in direct buffers, outside of
+     *            the heap
+     */
+    public InMemoryContentStore(final boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * @param fallbackStore the store to read content from that was not
+     *            written to this store, and to write content to until the
+     *            store is started
+     */
+    public void setFallbackStore(final ContentStore fallbackStore) {
+        this.fallbackStore = fallbackStore;
+    }
+
+    /**
+     * Keep the content written from now on in memory
+     */
+    public void start() {
+        started = true;
+    }
+
+    @Override
+    public boolean isWriteSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean exists(final String contentUrl) {
+        if (isFallback(contentUrl)) {
+            return fallbackStore.exists(contentUrl);
+        }
+        return content.containsKey(contentUrl);
+    }
+
+    @Override
+    public ContentReader getReader(final String contentUrl) {
+        if (isFallback(contentUrl)) {
+            return fallbackStore.getReader(contentUrl);
+        }
+        return new InMemoryContentReader(contentUrl);
+    }
+
+    @Override
+    public ContentWriter getWriter(final ContentContext context) {
+        if (!started && (fallbackStore != null)) {
+            return fallbackStore.getWriter(context);
+        }
+        return super.getWriter(context);
+    }
+
+    @Override
+    protected ContentWriter getWriterInternal(final ContentReader existingContentReader, final String newContentUrl) {
+        final String contentUrl = newContentUrl != null ? newContentUrl : PROTOCOL + "://" + UUID.randomUUID();
+        return new InMemoryContentWriter(contentUrl, existingContentReader);
+    }
+
+    /**
+     * Content of the fallback store is never deleted
+     */
+    @Override
+    public boolean delete(final String contentUrl) {
+        return content.remove(contentUrl) != null;
+    }
+
+    /**
+     * @return the number of content items held
+     */
+    public int size() {
+        return content.size();
+    }
+
+    /**
+     * Remove all content
+     */
+    public void clear() {
+        content.clear();
+    }
+
+    private boolean isFallback(final String contentUrl) {
+        return (fallbackStore != null) && !contentUrl.startsWith(PROTOCOL + "://");
+    }
+
+    /**
+     * Starts the in-memory content stores once the repository has
+     * bootstrapped. Defined after the Alfresco bootstrap beans, so it is
+     * notified after them.
+     */
+    public static class StartListener implements ApplicationListener<ContextRefreshedEvent>, ApplicationContextAware {
+        private final InMemoryContentStore[] stores;
+
+        private ApplicationContext applicationContext;
+
+        public StartListener(final InMemoryContentStore... stores) {
+            this.stores = stores;
+        }
+
+        @Override
+        public void setApplicationContext(final ApplicationContext applicationContext) throws BeansException {
+            this.applicationContext = applicationContext;
+        }
+
+        @Override
+        public void onApplicationEvent(final ContextRefreshedEvent event) {
+            // Subsystem contexts publish their refresh events to this context too
+            if (event.getApplicationContext() == applicationContext) {
+                for (final InMemoryContentStore store : stores) {
+                    store.start();
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final ByteBuffer bytes;
+
+        private final long lastModified = System.currentTimeMillis();
+
+        private Entry(final ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Writes into a buffer that doubles its capacity when full, so content
+     * is copied into its final buffer as it is written, and hands the
+     * written bytes over on close
+     */
+    private static final class GrowingBufferChannel implements WritableByteChannel {
+        private static final int INITIAL_CAPACITY = 8192;
+
+        private final boolean offHeap;
+
+        private final Consumer<ByteBuffer> onClose;
+
+        private ByteBuffer buffer;
+
+        private boolean open = true;
+
+        private GrowingBufferChannel(final boolean offHeap, final Consumer<ByteBuffer> onClose) {
+            this.offHeap = offHeap;
+            this.onClose = onClose;
+            buffer = allocate(INITIAL_CAPACITY);
+        }
+
+        @Override
+        public int write(final ByteBuffer source) {
+            final int length = source.remaining();
+            if (buffer.remaining() < length) {
+                final long required = (long) buffer.position() + length;
+                if (required > Integer.MAX_VALUE) {
+                    throw new ContentIOException("Content larger than 2 GB cannot be kept in memory");
+                }
+                final ByteBuffer grown = allocate((int) Math.min(Integer.MAX_VALUE, Math.max(required, 2L * buffer.capacity())));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            buffer.put(source);
+            return length;
+        }
+
+        private ByteBuffer allocate(final int capacity) {
+            return offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            if (open) {
+                open = false;
+                buffer.flip();
+                onClose.accept(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a buffer without moving its position, so readers do not copy it
+     */
+    private static final class BufferChannel implements ReadableByteChannel {
+        private final ByteBuffer buffer;
+
+        private boolean open = true;
+
+        private BufferChannel(final ByteBuffer buffer) {
+            this.buffer = buffer.duplicate();
+        }
+
+        @Override
+        public int read(final ByteBuffer target) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int length = Math.min(buffer.remaining(), target.remaining());
+            final ByteBuffer slice = buffer.duplicate();
+            slice.limit(slice.position() + length);
+            target.put(slice);
+            buffer.position(buffer.position() + length);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+
+    private final class InMemoryContentReader extends AbstractContentReader {
+        private InMemoryContentReader(final String contentUrl) {
+            super(contentUrl);
+        }
+
+        @Override
+        public boolean exists() {
+            return content.containsKey(getContentUrl());
+        }
+
+        @Override
+        public long getSize() {
+            final Entry entry = content.get(getContentUrl());
+            return entry != null ? entry.bytes.limit() : 0L;
+        }
+
+        @Override
+        public long getLastModified() {
+            final Entry entry = content.get(getContentUrl());
+            return entry != null ? entry.lastModified : 0L;
+        }
+
+        @Override
+        protected ContentReader createReader() throws ContentIOException {
+            return new InMemoryContentReader(getContentUrl());
+        }
+
+        @Override
+        protected ReadableByteChannel getDirectReadableChannel() throws ContentIOException {
+            final Entry entry = content.get(getContentUrl());
+            if (entry == null) {
+                throw new ContentIOException("Content does not exist: " + getContentUrl());
+            }
+            return new BufferChannel(entry.bytes);
+        }
+    }
+
+    private final class InMemoryContentWriter extends AbstractContentWriter {
+        private volatile long size;
+
+        private InMemoryContentWriter(final String contentUrl, final ContentReader existingContentReader) {
+            super(contentUrl, existingContentReader);
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        protected ContentReader createReader() throws ContentIOException {
+            return new InMemoryContentReader(getContentUrl());
+        }
+
+        @Override
+        protected WritableByteChannel getDirectWritableChannel() throws ContentIOException {
+            return new GrowingBufferChannel(offHeap, bytes -> {
+                size = bytes.limit();
+                content.put(getContentUrl(), new Entry(bytes));
+            });
+        }
+    }
+}
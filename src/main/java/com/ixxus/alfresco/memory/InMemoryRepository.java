@@ -0,0 +1,379 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.memory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.service.cmr.repository.AssociationRef;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.InvalidNodeRefException;
+import org.alfresco.service.cmr.repository.InvalidStoreRefException;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.namespace.QNamePattern;
+import org.alfresco.service.namespace.RegexQNamePattern;
+
+/**
+ * Thread-safe, in-memory node store with the same method signatures as the
+ * part of {@link org.alfresco.service.cmr.repository.NodeService} used by the
+ * assertions and typical test fixtures. Use
+ * {@link InMemoryServices#getNodeService()} to get it as a NodeService.
+ *
+ * No dictionary, policies, permissions or transactions are involved: types
+ * and aspects are stored as given and changes are visible immediately to all
+ * threads. As in the repository, a property set to null is kept with a null
+ * value.
+ */
+public class InMemoryRepository {
+    private final ConcurrentMap<StoreRef, NodeRef> stores = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<NodeRef, Node> nodes = new ConcurrentHashMap<>();
+
+    private final AtomicLong ids = new AtomicLong();
+
+    /**
+     * Create a repository with an empty workspace://SpacesStore
+     */
+    public InMemoryRepository() {
+        createStore(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE.getProtocol(), StoreRef.STORE_REF_WORKSPACE_SPACESSTORE.getIdentifier());
+    }
+
+    public List<StoreRef> getStores() {
+        return new ArrayList<>(stores.keySet());
+    }
+
+    public StoreRef createStore(final String protocol, final String identifier) {
+        final StoreRef storeRef = new StoreRef(protocol, identifier);
+        stores.computeIfAbsent(storeRef, key -> {
+            final NodeRef rootRef = new NodeRef(key, UUID.randomUUID().toString());
+            final Node root = newNode(rootRef, ContentModel.TYPE_STOREROOT, null);
+            root.aspects.add(ContentModel.ASPECT_ROOT);
+            nodes.put(rootRef, root);
+            return rootRef;
+        });
+        return storeRef;
+    }
+
+    public boolean exists(final StoreRef storeRef) {
+        return stores.containsKey(storeRef);
+    }
+
+    public NodeRef getRootNode(final StoreRef storeRef) {
+        final NodeRef rootRef = stores.get(storeRef);
+        if (rootRef == null) {
+            throw new InvalidStoreRefException("No such store: " + storeRef, storeRef);
+        }
+        return rootRef;
+    }
+
+    public boolean exists(final NodeRef nodeRef) {
+        return nodes.containsKey(nodeRef);
+    }
+
+    public ChildAssociationRef createNode(final NodeRef parentRef, final QName assocTypeQName, final QName assocQName, final QName nodeTypeQName) {
+        return createNode(parentRef, assocTypeQName, assocQName, nodeTypeQName, null);
+    }
+
+    public ChildAssociationRef createNode(final NodeRef parentRef, final QName assocTypeQName, final QName assocQName, final QName nodeTypeQName,
+                    final Map<QName, Serializable> properties) {
+        final Node parent = getNode(parentRef);
+        final NodeRef nodeRef = new NodeRef(parentRef.getStoreRef(), UUID.randomUUID().toString());
+        final Node node = newNode(nodeRef, nodeTypeQName, properties);
+        if (!node.properties.containsKey(ContentModel.PROP_NAME)) {
+            node.properties.put(ContentModel.PROP_NAME, nodeRef.getId());
+        }
+        final ChildAssociationRef assocRef = new ChildAssociationRef(assocTypeQName, parentRef, assocQName, nodeRef, true, -1);
+        node.parentAssocs.add(assocRef);
+        nodes.put(nodeRef, node);
+        parent.childAssocs.add(assocRef);
+        return assocRef;
+    }
+
+    public void deleteNode(final NodeRef nodeRef) {
+        final Node node = nodes.remove(nodeRef);
+        if (node == null) {
+            throw new InvalidNodeRefException("Node does not exist: " + nodeRef, nodeRef);
+        }
+        for (final ChildAssociationRef childAssoc : node.childAssocs) {
+            if (childAssoc.isPrimary()) {
+                deleteNode(childAssoc.getChildRef());
+            } else {
+                final Node child = nodes.get(childAssoc.getChildRef());
+                if (child != null) {
+                    child.parentAssocs.remove(childAssoc);
+                }
+            }
+        }
+        for (final ChildAssociationRef parentAssoc : node.parentAssocs) {
+            final Node parent = nodes.get(parentAssoc.getParentRef());
+            if (parent != null) {
+                parent.childAssocs.remove(parentAssoc);
+            }
+        }
+        for (final AssociationRef targetAssoc : node.targetAssocs) {
+            final Node target = nodes.get(targetAssoc.getTargetRef());
+            if (target != null) {
+                target.sourceAssocs.remove(targetAssoc);
+            }
+        }
+        for (final AssociationRef sourceAssoc : node.sourceAssocs) {
+            final Node source = nodes.get(sourceAssoc.getSourceRef());
+            if (source != null) {
+                source.targetAssocs.remove(sourceAssoc);
+            }
+        }
+    }
+
+    public QName getType(final NodeRef nodeRef) {
+        return getNode(nodeRef).type;
+    }
+
+    public void setType(final NodeRef nodeRef, final QName typeQName) {
+        getNode(nodeRef).type = typeQName;
+    }
+
+    public Set<QName> getAspects(final NodeRef nodeRef) {
+        return new HashSet<>(getNode(nodeRef).aspects);
+    }
+
+    public boolean hasAspect(final NodeRef nodeRef, final QName aspectTypeQName) {
+        return getNode(nodeRef).aspects.contains(aspectTypeQName);
+    }
+
+    public void addAspect(final NodeRef nodeRef, final QName aspectTypeQName, final Map<QName, Serializable> aspectProperties) {
+        final Node node = getNode(nodeRef);
+        node.aspects.add(aspectTypeQName);
+        node.putAll(aspectProperties);
+    }
+
+    public void removeAspect(final NodeRef nodeRef, final QName aspectTypeQName) {
+        getNode(nodeRef).aspects.remove(aspectTypeQName);
+    }
+
+    public Map<QName, Serializable> getProperties(final NodeRef nodeRef) {
+        final Map<QName, Serializable> properties = new HashMap<>();
+        getNode(nodeRef).properties.forEach((qname, stored) -> properties.put(qname, value(stored)));
+        return properties;
+    }
+
+    public Serializable getProperty(final NodeRef nodeRef, final QName qname) {
+        return value(getNode(nodeRef).properties.get(qname));
+    }
+
+    public void setProperties(final NodeRef nodeRef, final Map<QName, Serializable> properties) {
+        final Node node = getNode(nodeRef);
+        node.properties.keySet().retainAll(properties.keySet());
+        node.putAll(properties);
+    }
+
+    public void addProperties(final NodeRef nodeRef, final Map<QName, Serializable> properties) {
+        getNode(nodeRef).putAll(properties);
+    }
+
+    public void setProperty(final NodeRef nodeRef, final QName qname, final Serializable value) {
+        getNode(nodeRef).put(qname, value);
+    }
+
+    public void removeProperty(final NodeRef nodeRef, final QName qname) {
+        getNode(nodeRef).properties.remove(qname);
+    }
+
+    public ChildAssociationRef addChild(final NodeRef parentRef, final NodeRef childRef, final QName assocTypeQName, final QName qname) {
+        final Node parent = getNode(parentRef);
+        final Node child = getNode(childRef);
+        final ChildAssociationRef assocRef = new ChildAssociationRef(assocTypeQName, parentRef, qname, childRef, false, -1);
+        child.parentAssocs.add(assocRef);
+        parent.childAssocs.add(assocRef);
+        return assocRef;
+    }
+
+    public ChildAssociationRef getPrimaryParent(final NodeRef nodeRef) {
+        for (final ChildAssociationRef parentAssoc : getNode(nodeRef).parentAssocs) {
+            if (parentAssoc.isPrimary()) {
+                return parentAssoc;
+            }
+        }
+        return new ChildAssociationRef(null, null, null, nodeRef);
+    }
+
+    public List<ChildAssociationRef> getParentAssocs(final NodeRef nodeRef) {
+        return new ArrayList<>(getNode(nodeRef).parentAssocs);
+    }
+
+    public List<ChildAssociationRef> getChildAssocs(final NodeRef nodeRef) {
+        return new ArrayList<>(getNode(nodeRef).childAssocs);
+    }
+
+    public List<ChildAssociationRef> getChildAssocs(final NodeRef nodeRef, final QNamePattern typeQNamePattern, final QNamePattern qnamePattern) {
+        return getChildAssocs(nodeRef, typeQNamePattern, qnamePattern, -1, false);
+    }
+
+    public List<ChildAssociationRef> getChildAssocs(final NodeRef nodeRef, final QNamePattern typeQNamePattern, final QNamePattern qnamePattern,
+                    final boolean preload) {
+        return getChildAssocs(nodeRef, typeQNamePattern, qnamePattern, -1, preload);
+    }
+
+    public List<ChildAssociationRef> getChildAssocs(final NodeRef nodeRef, final QNamePattern typeQNamePattern, final QNamePattern qnamePattern,
+                    final int maxResults, final boolean preload) {
+        final List<ChildAssociationRef> result = new ArrayList<>();
+        for (final ChildAssociationRef childAssoc : getNode(nodeRef).childAssocs) {
+            if ((maxResults > 0) && (result.size() >= maxResults)) {
+                break;
+            }
+            if (typeQNamePattern.isMatch(childAssoc.getTypeQName()) && qnamePattern.isMatch(childAssoc.getQName())) {
+                result.add(childAssoc);
+            }
+        }
+        return result;
+    }
+
+    public NodeRef getChildByName(final NodeRef nodeRef, final QName assocTypeQName, final String childName) {
+        for (final ChildAssociationRef childAssoc : getChildAssocs(nodeRef, assocTypeQName, RegexQNamePattern.MATCH_ALL)) {
+            final Node child = nodes.get(childAssoc.getChildRef());
+            if ((child != null) && childName.equalsIgnoreCase((String) value(child.properties.get(ContentModel.PROP_NAME)))) {
+                return childAssoc.getChildRef();
+            }
+        }
+        return null;
+    }
+
+    public AssociationRef createAssociation(final NodeRef sourceRef, final NodeRef targetRef, final QName assocTypeQName) {
+        final Node source = getNode(sourceRef);
+        final Node target = getNode(targetRef);
+        final AssociationRef assocRef = new AssociationRef(ids.incrementAndGet(), sourceRef, assocTypeQName, targetRef);
+        source.targetAssocs.add(assocRef);
+        target.sourceAssocs.add(assocRef);
+        return assocRef;
+    }
+
+    public void removeAssociation(final NodeRef sourceRef, final NodeRef targetRef, final QName assocTypeQName) {
+        final Node source = getNode(sourceRef);
+        for (final AssociationRef assocRef : source.targetAssocs) {
+            if (assocRef.getTargetRef().equals(targetRef) && assocRef.getTypeQName().equals(assocTypeQName)) {
+                source.targetAssocs.remove(assocRef);
+                final Node target = nodes.get(targetRef);
+                if (target != null) {
+                    target.sourceAssocs.remove(assocRef);
+                }
+            }
+        }
+    }
+
+    public List<AssociationRef> getTargetAssocs(final NodeRef sourceRef, final QNamePattern qnamePattern) {
+        final List<AssociationRef> result = new ArrayList<>();
+        for (final AssociationRef assocRef : getNode(sourceRef).targetAssocs) {
+            if (qnamePattern.isMatch(assocRef.getTypeQName())) {
+                result.add(assocRef);
+            }
+        }
+        return result;
+    }
+
+    public List<AssociationRef> getSourceAssocs(final NodeRef targetRef, final QNamePattern qnamePattern) {
+        final List<AssociationRef> result = new ArrayList<>();
+        for (final AssociationRef assocRef : getNode(targetRef).sourceAssocs) {
+            if (qnamePattern.isMatch(assocRef.getTypeQName())) {
+                result.add(assocRef);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove every store and node, leaving an empty workspace://SpacesStore
+     */
+    public void clear() {
+        nodes.clear();
+        stores.clear();
+        createStore(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE.getProtocol(), StoreRef.STORE_REF_WORKSPACE_SPACESSTORE.getIdentifier());
+    }
+
+    private static Serializable value(final Serializable stored) {
+        return stored == NullValue.INSTANCE ? null : stored;
+    }
+
+    private Node getNode(final NodeRef nodeRef) {
+        final Node node = nodes.get(nodeRef);
+        if (node == null) {
+            throw new InvalidNodeRefException("Node does not exist: " + nodeRef, nodeRef);
+        }
+        return node;
+    }
+
+    private Node newNode(final NodeRef nodeRef, final QName type, final Map<QName, Serializable> properties) {
+        final Node node = new Node(type);
+        node.putAll(properties);
+        node.properties.put(ContentModel.PROP_STORE_PROTOCOL, nodeRef.getStoreRef().getProtocol());
+        node.properties.put(ContentModel.PROP_STORE_IDENTIFIER, nodeRef.getStoreRef().getIdentifier());
+        node.properties.put(ContentModel.PROP_NODE_UUID, nodeRef.getId());
+        node.properties.put(ContentModel.PROP_NODE_DBID, ids.incrementAndGet());
+        return node;
+    }
+
+    /**
+     * Stands for null property values, which concurrent maps cannot hold
+     */
+    private enum NullValue {
+        INSTANCE
+    }
+
+    /**
+     * State of one node. Collections are concurrent so readers never need to
+     * lock; a node is only ever reachable once it is fully created.
+     */
+    private static final class Node {
+        private volatile QName type;
+
+        private final Set<QName> aspects = ConcurrentHashMap.newKeySet();
+
+        private final ConcurrentMap<QName, Serializable> properties = new ConcurrentHashMap<>();
+
+        private final List<ChildAssociationRef> parentAssocs = new CopyOnWriteArrayList<>();
+
+        private final List<ChildAssociationRef> childAssocs = new CopyOnWriteArrayList<>();
+
+        private final List<AssociationRef> targetAssocs = new CopyOnWriteArrayList<>();
+
+        private final List<AssociationRef> sourceAssocs = new CopyOnWriteArrayList<>();
+
+        private Node(final QName type) {
+            this.type = type;
+        }
+
+        private void put(final QName qname, final Serializable value) {
+            properties.put(qname, value != null ? value : NullValue.INSTANCE);
+        }
+
+        private void putAll(final Map<QName, Serializable> values) {
+            if (values != null) {
+                values.forEach(this::put);
+            }
+        }
+    }
+}
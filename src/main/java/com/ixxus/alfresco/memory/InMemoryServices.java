@@ -0,0 +1,100 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.memory;
+
+import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.site.SiteService;
+
+import com.ixxus.alfresco.AssertionContext;
+import com.ixxus.alfresco.NodeAssert;
+import com.ixxus.alfresco.SiteAssert;
+import com.ixxus.alfresco.WorkflowAssert;
+
+/**
+ * In-memory NodeService, ContentService and SiteService sharing one
+ * {@link InMemoryRepository}, for testing assertions and fixtures without
+ * starting Alfresco. Either call {@link #install()} or load
+ * <code>alfresco/module/alfresco-test-assertions/in-memory-context.xml</code>,
+ * which wires the services into the assertions the same way
+ * module-context.xml does with the repository services.
+ */
+public class InMemoryServices {
+    private final InMemoryRepository repository = new InMemoryRepository();
+
+    private final InMemoryContentStore contentStore = new InMemoryContentStore();
+
+    private final InMemorySiteService siteServiceImpl = new InMemorySiteService(repository);
+
+    private final NodeService nodeService = ServiceProxy.create(NodeService.class, repository);
+
+    private final ContentService contentService = ServiceProxy.create(ContentService.class,
+                    new InMemoryContentService(repository, contentStore));
+
+    private final SiteService siteService = ServiceProxy.create(SiteService.class, siteServiceImpl);
+
+    public InMemoryRepository getRepository() {
+        return repository;
+    }
+
+    public InMemoryContentStore getContentStore() {
+        return contentStore;
+    }
+
+    public NodeService getNodeService() {
+        return nodeService;
+    }
+
+    public ContentService getContentService() {
+        return contentService;
+    }
+
+    public SiteService getSiteService() {
+        return siteService;
+    }
+
+    /**
+     * @return a new assertion context using these services, to bind to a
+     *         thread or install as the default
+     */
+    public AssertionContext createAssertionContext() {
+        final AssertionContext context = new AssertionContext();
+        context.setNodeService(nodeService);
+        context.setContentService(contentService);
+        context.setSiteService(siteService);
+        return context;
+    }
+
+    /**
+     * Set these services on the default {@link AssertionContext} used by
+     * {@link NodeAssert}, {@link SiteAssert} and {@link WorkflowAssert}
+     *
+     * @return this
+     */
+    public InMemoryServices install() {
+        createAssertionContext().installAsDefault();
+        return this;
+    }
+
+    /**
+     * Remove all nodes, content and sites
+     */
+    public void clear() {
+        siteServiceImpl.clear();
+        contentStore.clear();
+        repository.clear();
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.memory;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.site.SiteInfoImpl;
+import org.alfresco.repo.site.SiteModel;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.cmr.site.SiteInfo;
+import org.alfresco.service.cmr.site.SiteService;
+import org.alfresco.service.cmr.site.SiteVisibility;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+
+/**
+ * The site, membership and container part of {@link SiteService}, keeping
+ * site and container nodes in an {@link InMemoryRepository} the way the
+ * repository lays them out. Use {@link InMemoryServices#getSiteService()} to
+ * get it as a SiteService.
+ *
+ * Memberships are stored per authority as given. Groups are not expanded,
+ * so members cannot be listed with their groups collapsed.
+ */
+public class InMemorySiteService {
+    private final InMemoryRepository repository;
+
+    private final ConcurrentMap<String, SiteInfo> sites = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> memberships = new ConcurrentHashMap<>();
+
+    private volatile NodeRef sitesRoot;
+
+    public InMemorySiteService(final InMemoryRepository repository) {
+        this.repository = repository;
+    }
+
+    public SiteInfo createSite(final String sitePreset, final String shortName, final String title, final String description,
+                    final SiteVisibility visibility) {
+        final Map<QName, Serializable> properties = new HashMap<>();
+        properties.put(ContentModel.PROP_NAME, shortName);
+        properties.put(ContentModel.PROP_TITLE, title);
+        properties.put(ContentModel.PROP_DESCRIPTION, description);
+        properties.put(SiteModel.PROP_SITE_PRESET, sitePreset);
+        properties.put(SiteModel.PROP_SITE_VISIBILITY, visibility.toString());
+        final NodeRef siteNode = repository.createNode(getSitesRoot(), ContentModel.ASSOC_CONTAINS,
+                        QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, shortName), SiteModel.TYPE_SITE, properties).getChildRef();
+        final SiteInfo siteInfo = new SiteInfoImpl(sitePreset, shortName, title, description, visibility, Collections.emptyMap(), siteNode);
+        if (sites.putIfAbsent(shortName, siteInfo) != null) {
+            repository.deleteNode(siteNode);
+            throw new IllegalStateException("Site " + shortName + " already exists");
+        }
+        memberships.put(shortName, new ConcurrentHashMap<>());
+        final String currentUser = AuthenticationUtil.getFullyAuthenticatedUser();
+        if (currentUser != null) {
+            setMembership(shortName, currentUser, SiteModel.SITE_MANAGER);
+        }
+        return siteInfo;
+    }
+
+    public SiteInfo getSite(final String shortName) {
+        return sites.get(shortName);
+    }
+
+    public SiteInfo getSite(final NodeRef nodeRef) {
+        NodeRef current = nodeRef;
+        while ((current != null) && repository.exists(current)) {
+            if (SiteModel.TYPE_SITE.equals(repository.getType(current))) {
+                return getSite((String) repository.getProperty(current, ContentModel.PROP_NAME));
+            }
+            final ChildAssociationRef parentAssoc = repository.getPrimaryParent(current);
+            current = parentAssoc.getParentRef();
+        }
+        return null;
+    }
+
+    public boolean hasSite(final String shortName) {
+        return sites.containsKey(shortName);
+    }
+
+    public void deleteSite(final String shortName) {
+        final SiteInfo siteInfo = sites.remove(shortName);
+        memberships.remove(shortName);
+        if (siteInfo != null) {
+            repository.deleteNode(siteInfo.getNodeRef());
+        }
+    }
+
+    public void setMembership(final String shortName, final String authorityName, final String role) {
+        getMembers(shortName).put(authorityName, role);
+    }
+
+    public void removeMembership(final String shortName, final String authorityName) {
+        getMembers(shortName).remove(authorityName);
+    }
+
+    public boolean isMember(final String shortName, final String authorityName) {
+        return getMembers(shortName).containsKey(authorityName);
+    }
+
+    public String getMembersRole(final String shortName, final String authorityName) {
+        return getMembers(shortName).get(authorityName);
+    }
+
+    public Map<String, String> listMembers(final String shortName, final String nameFilter, final String roleFilter, final int size) {
+        return listMembers(shortName, nameFilter, roleFilter, size, false);
+    }
+
+    public Map<String, String> listMembers(final String shortName, final String nameFilter, final String roleFilter, final int size,
+                    final boolean collapseGroups) {
+        if (collapseGroups) {
+            throw new UnsupportedOperationException("SiteService.listMembers cannot collapse groups in memory");
+        }
+        final Map<String, String> result = new LinkedHashMap<>();
+        for (final Map.Entry<String, String> member : getMembers(shortName).entrySet()) {
+            if ((size > 0) && (result.size() >= size)) {
+                break;
+            }
+            final boolean nameMatches = (nameFilter == null) || member.getKey().toLowerCase().contains(nameFilter.toLowerCase());
+            final boolean roleMatches = (roleFilter == null) || roleFilter.equals(member.getValue());
+            if (nameMatches && roleMatches) {
+                result.put(member.getKey(), member.getValue());
+            }
+        }
+        return result;
+    }
+
+    public NodeRef createContainer(final String shortName, final String componentId, final QName containerType,
+                    final Map<QName, Serializable> containerProperties) {
+        final NodeRef siteNode = getSiteNode(shortName);
+        final NodeRef existing = repository.getChildByName(siteNode, ContentModel.ASSOC_CONTAINS, componentId);
+        if (existing != null) {
+            return existing;
+        }
+        final Map<QName, Serializable> properties = new HashMap<>();
+        if (containerProperties != null) {
+            properties.putAll(containerProperties);
+        }
+        properties.put(ContentModel.PROP_NAME, componentId);
+        properties.put(SiteModel.PROP_COMPONENT_ID, componentId);
+        final NodeRef container = repository.createNode(siteNode, ContentModel.ASSOC_CONTAINS,
+                        QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, componentId),
+                        containerType != null ? containerType : ContentModel.TYPE_FOLDER, properties).getChildRef();
+        repository.addAspect(container, SiteModel.ASPECT_SITE_CONTAINER, null);
+        return container;
+    }
+
+    public NodeRef getContainer(final String shortName, final String componentId) {
+        return repository.getChildByName(getSiteNode(shortName), ContentModel.ASSOC_CONTAINS, componentId);
+    }
+
+    public boolean hasContainer(final String shortName, final String componentId) {
+        return getContainer(shortName, componentId) != null;
+    }
+
+    /**
+     * Remove every site and membership
+     */
+    public void clear() {
+        sites.clear();
+        memberships.clear();
+        sitesRoot = null;
+    }
+
+    private NodeRef getSiteNode(final String shortName) {
+        final SiteInfo siteInfo = sites.get(shortName);
+        if (siteInfo == null) {
+            throw new IllegalArgumentException("Site " + shortName + " does not exist");
+        }
+        return siteInfo.getNodeRef();
+    }
+
+    private Map<String, String> getMembers(final String shortName) {
+        final Map<String, String> members = memberships.get(shortName);
+        if (members == null) {
+            throw new IllegalArgumentException("Site " + shortName + " does not exist");
+        }
+        return members;
+    }
+
+    private synchronized NodeRef getSitesRoot() {
+        if ((sitesRoot == null) || !repository.exists(sitesRoot)) {
+            final NodeRef root = repository.getRootNode(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE);
+            sitesRoot = repository.createNode(root, ContentModel.ASSOC_CHILDREN, QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "sites"),
+                            ContentModel.TYPE_FOLDER, Collections.singletonMap(ContentModel.PROP_NAME, "Sites")).getChildRef();
+        }
+        return sitesRoot;
+    }
+}
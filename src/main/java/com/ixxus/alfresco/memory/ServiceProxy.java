@@ -0,0 +1,99 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.memory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exposes an object as an Alfresco service interface by forwarding each call
+ * to the public method of the implementation with the same name and parameter
+ * types. Service methods the implementation does not have throw
+ * {@link UnsupportedOperationException}, so an in-memory service only has to
+ * implement the part of the interface the assertions use.
+ */
+final class ServiceProxy implements InvocationHandler {
+    /**
+     * Marker for service methods without an implementation
+     */
+    private static final Method UNSUPPORTED;
+
+    static {
+        try {
+            UNSUPPORTED = ServiceProxy.class.getDeclaredMethod("findTarget", Method.class);
+        } catch (final NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<?> serviceInterface;
+
+    private final Object implementation;
+
+    private final Map<Method, Method> targets = new ConcurrentHashMap<>();
+
+    private ServiceProxy(final Class<?> serviceInterface, final Object implementation) {
+        this.serviceInterface = serviceInterface;
+        this.implementation = implementation;
+    }
+
+    /**
+     * @param serviceInterface the service interface to expose
+     * @param implementation the object implementing (part of) the interface
+     * @return a proxy implementing the service interface
+     */
+    static <T> T create(final Class<T> serviceInterface, final Object implementation) {
+        return serviceInterface.cast(Proxy.newProxyInstance(serviceInterface.getClassLoader(), new Class<?>[] { serviceInterface },
+                        new ServiceProxy(serviceInterface, implementation)));
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "In-memory " + serviceInterface.getSimpleName();
+            }
+        }
+        final Method target = targets.computeIfAbsent(method, this::findTarget);
+        if (target == UNSUPPORTED) {
+            throw new UnsupportedOperationException(serviceInterface.getSimpleName() + "." + method.getName() + " is not supported in memory");
+        }
+        try {
+            return target.invoke(implementation, args);
+        } catch (final InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Method findTarget(final Method method) {
+        try {
+            final Method target = implementation.getClass().getMethod(method.getName(), method.getParameterTypes());
+            target.setAccessible(true);
+            return target;
+        } catch (final NoSuchMethodException e) {
+            return UNSUPPORTED;
+        }
+    }
+}
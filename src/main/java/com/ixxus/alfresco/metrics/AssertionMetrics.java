@@ -0,0 +1,170 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Per-assertion service call metrics, collected by
+ * {@link ServiceCallInterceptor} around the services given to the assertions
+ * in module-context.xml.
+ *
+ * Collection is off by default; switch it on with the system property
+ * <code>ixxus.assertions.metrics=true</code> or {@link #setEnabled(boolean)}.
+ * Once enabled, a summary is logged when the JVM shuts down, and
+ * {@link AssertionMetricsListener} can log it at the end of a JUnit run.
+ */
+public final class AssertionMetrics {
+    /**
+     * System property switching collection on
+     */
+    public static final String ENABLED_PROPERTY = "ixxus.assertions.metrics";
+
+    /**
+     * Key for service calls not made from an assertion
+     */
+    public static final String OTHER = "(other)";
+
+    private static final Log LOGGER = LogFactory.getLog(AssertionMetrics.class);
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private static final Scope NESTED = () -> {
+    };
+
+    private static final ConcurrentMap<String, AssertionStats> STATS = new ConcurrentHashMap<>();
+
+    private static final AtomicBoolean SHUTDOWN_HOOK = new AtomicBoolean();
+
+    private static volatile boolean enabled;
+
+    static {
+        setEnabled(Boolean.getBoolean(ENABLED_PROPERTY));
+    }
+
+    private AssertionMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switch collection on or off. The first time it is switched on, a
+     * shutdown hook is registered to log the summary.
+     *
+     * @param enabled whether to collect metrics
+     */
+    public static void setEnabled(final boolean enabled) {
+        AssertionMetrics.enabled = enabled;
+        if (enabled && SHUTDOWN_HOOK.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (!STATS.isEmpty()) {
+                    LOGGER.info(report());
+                }
+            }, "AssertionMetrics-report"));
+        }
+    }
+
+    /**
+     * @return the metrics of every assertion that made service calls, most
+     *         expensive first
+     */
+    public static Map<String, AssertionStats> getStats() {
+        final List<AssertionStats> sorted = new ArrayList<>(STATS.values());
+        sorted.sort(Comparator.comparingLong(AssertionStats::getTotalNanos).reversed());
+        final Map<String, AssertionStats> result = new LinkedHashMap<>();
+        for (final AssertionStats stats : sorted) {
+            result.put(stats.getAssertion(), stats);
+        }
+        return result;
+    }
+
+    /**
+     * @param assertion the assertion method, e.g. NodeAssert.hasAspect
+     * @return the metrics of the assertion, or null if it made no calls
+     */
+    public static AssertionStats getStats(final String assertion) {
+        return STATS.get(assertion);
+    }
+
+    /**
+     * Forget all collected metrics
+     */
+    public static void reset() {
+        STATS.clear();
+    }
+
+    /**
+     * @return a summary table of all collected metrics, most expensive first
+     */
+    public static String report() {
+        final StringBuilder report = new StringBuilder(String.format("Assertion service call metrics%n"));
+        report.append(String.format("%-50s %10s %12s %14s  %s%n", "Assertion", "Calls", "Time (ms)", "Content bytes", "Calls per method"));
+        for (final AssertionStats stats : getStats().values()) {
+            report.append(String.format("%-50s %10d %12.3f %14d  %s%n", stats.getAssertion(), stats.getCalls(), stats.getTotalNanos() / 1e6,
+                            stats.getBytesRead(), stats.getCallsByMethod()));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Called on entry to an assertion method, so the service calls it makes
+     * on this thread are recorded against it until the scope is closed.
+     * Only the outermost assertion opens a scope, so calls made by other
+     * assertions it uses, such as exists(), count towards the one that was
+     * called.
+     *
+     * @param assertion the assertion method, e.g. NodeAssert.hasAspect
+     * @return the scope to close when the assertion method returns
+     */
+    public static Scope enter(final String assertion) {
+        if (!enabled || (CURRENT.get() != null)) {
+            return NESTED;
+        }
+        CURRENT.set(assertion);
+        return CURRENT::remove;
+    }
+
+    /**
+     * The metrics to record a service call against: those of the assertion
+     * whose scope is open on the current thread
+     */
+    static AssertionStats currentStats() {
+        final String assertion = CURRENT.get();
+        return STATS.computeIfAbsent(assertion != null ? assertion : OTHER, AssertionStats::new);
+    }
+
+    /**
+     * The assertion method service calls are recorded against, see
+     * {@link AssertionMetrics#enter(String)}
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
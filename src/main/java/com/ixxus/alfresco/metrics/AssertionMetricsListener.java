@@ -0,0 +1,48 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.metrics;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.runner.Result;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * Logs the {@link AssertionMetrics} summary at the end of a JUnit run when
+ * metrics are enabled. Register it with surefire:
+ *
+ * <pre>
+ * &lt;properties&gt;
+ *     &lt;property&gt;
+ *         &lt;name&gt;listener&lt;/name&gt;
+ *         &lt;value&gt;com.ixxus.alfresco.metrics.AssertionMetricsListener&lt;/value&gt;
+ *     &lt;/property&gt;
+ * &lt;/properties&gt;
+ * </pre>
+ *
+ * Tests run by RemoteTestRunner record their metrics in the repository JVM,
+ * where the summary is logged at shutdown instead.
+ */
+public class AssertionMetricsListener extends RunListener {
+    private static final Log LOGGER = LogFactory.getLog(AssertionMetricsListener.class);
+
+    @Override
+    public void testRunFinished(final Result result) {
+        if (AssertionMetrics.isEnabled() && !AssertionMetrics.getStats().isEmpty()) {
+            LOGGER.info(AssertionMetrics.report());
+        }
+    }
+}
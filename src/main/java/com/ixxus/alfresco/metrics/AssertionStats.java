@@ -0,0 +1,98 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service calls, time spent in them and content read on behalf of one
+ * assertion method, e.g. <code>NodeAssert.hasAspect</code>
+ */
+public final class AssertionStats {
+    private final String assertion;
+
+    private final ConcurrentMap<String, LongAdder> callsByMethod = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder nanos = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    AssertionStats(final String assertion) {
+        this.assertion = assertion;
+    }
+
+    void recordCall(final String serviceMethod, final long elapsedNanos) {
+        callsByMethod.computeIfAbsent(serviceMethod, key -> new LongAdder()).increment();
+        calls.increment();
+        nanos.add(elapsedNanos);
+    }
+
+    void recordBytesRead(final long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * @return the assertion method, e.g. NodeAssert.hasAspect
+     */
+    public String getAssertion() {
+        return assertion;
+    }
+
+    /**
+     * @return the total number of service calls
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * @param serviceMethod a service method, e.g. NodeService.getProperty
+     * @return the number of calls to that method
+     */
+    public long getCalls(final String serviceMethod) {
+        final LongAdder methodCalls = callsByMethod.get(serviceMethod);
+        return methodCalls != null ? methodCalls.sum() : 0L;
+    }
+
+    /**
+     * @return the number of calls per service method, sorted by method
+     */
+    public Map<String, Long> getCallsByMethod() {
+        final Map<String, Long> result = new TreeMap<>();
+        callsByMethod.forEach((method, count) -> result.put(method, count.sum()));
+        return result;
+    }
+
+    /**
+     * @return the total time spent in service calls, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return nanos.sum();
+    }
+
+    /**
+     * @return the number of content bytes read through the returned readers
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.LongConsumer;
+
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+
+/**
+ * Wraps content readers to count the bytes read through them. Readers are
+ * proxied by interface. Checks that hash a local file through a memory-mapped
+ * view unwrap the proxy to reach the file, so those bytes are not counted.
+ */
+final class CountingContentReaders {
+
+    private CountingContentReaders() {
+    }
+
+    /**
+     * @param reader the reader to wrap
+     * @param bytesRead receives the number of bytes each time content is read
+     * @return a reader counting the bytes read through it
+     */
+    static ContentReader wrap(final ContentReader reader, final LongConsumer bytesRead) {
+        final ProxyFactory proxyFactory = new ProxyFactory(reader);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            final Object result = invocation.proceed();
+            switch (invocation.getMethod().getName()) {
+            case "getReadableChannel":
+                return new CountingChannel((ReadableByteChannel) result, bytesRead);
+            case "getContentInputStream":
+                return Channels.newInputStream(new CountingChannel(Channels.newChannel((InputStream) result), bytesRead));
+            case "getContent":
+            case "getContentString":
+                bytesRead.accept(reader.getSize());
+                return result;
+            case "getReader":
+                return wrap((ContentReader) result, bytesRead);
+            default:
+                return result;
+            }
+        });
+        return (ContentReader) proxyFactory.getProxy();
+    }
+
+    /**
+     * Channel counting the bytes read through it
+     */
+    private static final class CountingChannel implements ReadableByteChannel {
+        private final ReadableByteChannel channel;
+
+        private final LongConsumer bytesRead;
+
+        private CountingChannel(final ReadableByteChannel channel, final LongConsumer bytesRead) {
+            this.channel = channel;
+            this.bytesRead = bytesRead;
+        }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+            final int read = channel.read(dst);
+            if (read > 0) {
+                bytesRead.accept(read);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
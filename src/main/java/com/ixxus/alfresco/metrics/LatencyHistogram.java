@@ -0,0 +1,159 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Histogram of latencies in nanoseconds with a fixed relative precision, in
+ * the style of HdrHistogram: values below 128 are counted exactly, larger
+ * values in buckets holding their 7 most significant bits, so every value is
+ * reported within 1.6% of what was recorded. Recording is an array increment
+ * and the histogram takes 30KB whatever the number of values.
+ *
+ * Not thread-safe; use one histogram per thread.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int EXACT_VALUES = SUB_BUCKET_COUNT * 2;
+
+    private static final double[] REPORTED_PERCENTILES = { 0, 50, 75, 90, 95, 99, 99.9, 99.99, 100 };
+
+    private final long[] counts = new long[index(Long.MAX_VALUE) + 1];
+
+    private long totalCount;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max;
+
+    private double sum;
+
+    /**
+     * @param nanos the latency to record, negative values count as 0
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0L, nanos);
+        counts[index(value)]++;
+        totalCount++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return the smallest recorded value, exactly
+     */
+    public long getMin() {
+        return totalCount == 0 ? 0L : min;
+    }
+
+    /**
+     * @return the largest recorded value, exactly
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return the mean of the recorded values
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0d : sum / totalCount;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the value below or at which the given percentage of the
+     *         recorded values fall, as the highest value of its bucket
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100, but was " + percentile);
+        }
+        if (totalCount == 0) {
+            return 0L;
+        }
+        final long rank = Math.max(1L, (long) Math.ceil((percentile / 100) * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return the percentile distribution, one line per reported percentile
+     *         with the count of values at or below it, in milliseconds
+     */
+    public String toDistribution() {
+        final StringBuilder distribution = new StringBuilder(String.format("%10s %12s %10s%n", "Percentile", "Value (ms)", "Count"));
+        for (final double percentile : REPORTED_PERCENTILES) {
+            final long value = getValueAtPercentile(percentile);
+            distribution.append(String.format("%10s %12.3f %10d%n", percentile, toMillis(value), countAtOrBelow(value)));
+        }
+        distribution.append(String.format("#[Mean = %.3f ms, Min = %.3f ms, Max = %.3f ms, Count = %d]", toMillis((long) getMean()), toMillis(getMin()),
+                        toMillis(getMax()), totalCount));
+        return distribution.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toDistribution();
+    }
+
+    private long countAtOrBelow(final long value) {
+        long count = 0;
+        for (int i = 0; i <= index(value); i++) {
+            count += counts[i];
+        }
+        return count;
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    static int index(final long value) {
+        if (value < EXACT_VALUES) {
+            return (int) value;
+        }
+        final int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return ((shift + 1) * SUB_BUCKET_COUNT) + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    static long highestValue(final int index) {
+        if (index < EXACT_VALUES) {
+            return index;
+        }
+        final int shift = (index / SUB_BUCKET_COUNT) - 1;
+        final long subBucket = (index % SUB_BUCKET_COUNT) + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.metrics;
+
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Records the calls made through a service proxy in {@link AssertionMetrics}:
+ * one call and its latency per invocation, plus the content bytes read
+ * through any {@link ContentReader} the service returns. Does nothing but
+ * proceed while metrics are disabled.
+ */
+public class ServiceCallInterceptor implements MethodInterceptor {
+
+    @Override
+    public Object invoke(final MethodInvocation invocation) throws Throwable {
+        if (!AssertionMetrics.isEnabled()) {
+            return invocation.proceed();
+        }
+        final AssertionStats stats = AssertionMetrics.currentStats();
+        final long start = System.nanoTime();
+        final Object result;
+        try {
+            result = invocation.proceed();
+        } finally {
+            stats.recordCall(invocation.getMethod().getDeclaringClass().getSimpleName() + "." + invocation.getMethod().getName(),
+                            System.nanoTime() - start);
+        }
+        if (result instanceof ContentReader) {
+            return CountingContentReaders.wrap((ContentReader) result, stats::recordBytesRead);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * Wraps the configured service beans so the calls made through them can be
+ * recorded with {@link ServiceCalls#record(Runnable)}. Outside a recording the
+ * wrapper only checks a thread local and proceeds.
+ *
+ * Only beans created after this post processor are wrapped, so code under
+ * test sees the wrapped services as long as it gets them injected from the
+ * same context. As every caller then goes through the wrapper, the bean is
+ * only defined by service-call-recording-context.xml, imported by the
+ * <code>service-call-recording</code> profile of module-context.xml or by a
+ * test repository. By default the public services are wrapped; add the
+ * lower-case bean names (e.g. nodeService) to also record calls made through
+ * the internal beans.
+ */
+public class ServiceCallRecorder implements BeanPostProcessor, MethodInterceptor {
+    private static final ThreadLocal<Deque<ServiceCalls>> RECORDINGS = new ThreadLocal<>();
+
+    private static volatile boolean installed;
+
+    private Set<String> beanNames = Collections.emptySet();
+
+    /**
+     * @param beanNames the names of the service beans to wrap
+     */
+    public void setBeanNames(final Set<String> beanNames) {
+        this.beanNames = new HashSet<>(beanNames);
+    }
+
+    static ServiceCalls record(final Runnable block) {
+        if (!installed) {
+            throw new IllegalStateException("No services are recorded, start the repository with -Dspring.profiles.active=service-call-recording"
+                            + " or import service-call-recording-context.xml");
+        }
+        final ServiceCalls calls = new ServiceCalls();
+        Deque<ServiceCalls> recordings = RECORDINGS.get();
+        if (recordings == null) {
+            recordings = new ArrayDeque<>();
+            RECORDINGS.set(recordings);
+        }
+        recordings.push(calls);
+        try {
+            block.run();
+        } finally {
+            recordings.pop();
+            if (recordings.isEmpty()) {
+                RECORDINGS.remove();
+            }
+        }
+        return calls;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(final Object bean, final String beanName) {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+        // Public services are factory beans: wrap the service they create, not the factory
+        if (!beanNames.contains(beanName) || (bean instanceof FactoryBean)) {
+            return bean;
+        }
+        final ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice(this);
+        installed = true;
+        return proxyFactory.getProxy();
+    }
+
+    @Override
+    public Object invoke(final MethodInvocation invocation) throws Throwable {
+        final Deque<ServiceCalls> active = RECORDINGS.get();
+        if (active == null) {
+            return invocation.proceed();
+        }
+        // Readers may be read after the recording has ended
+        final List<ServiceCalls> recordings = new ArrayList<>(active);
+        final String serviceMethod = invocation.getMethod().getDeclaringClass().getSimpleName() + "." + invocation.getMethod().getName();
+        for (final ServiceCalls calls : recordings) {
+            calls.recordCall(serviceMethod);
+        }
+        final Object result = invocation.proceed();
+        if (result instanceof ContentReader) {
+            return CountingContentReaders.wrap((ContentReader) result, bytes -> {
+                for (final ServiceCalls calls : recordings) {
+                    calls.recordBytesRead(bytes);
+                }
+            });
+        }
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The repository service calls made by a block of code, recorded by
+ * {@link ServiceCallRecorder} on the thread that ran the block. Calls made on
+ * other threads, e.g. by asynchronous actions, are not recorded.
+ */
+public final class ServiceCalls {
+    private final ConcurrentMap<String, LongAdder> callsByMethod = new ConcurrentHashMap<>();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    ServiceCalls() {
+    }
+
+    /**
+     * Run a block and record the service calls it makes. Calls made by a
+     * nested recording also count towards this one.
+     *
+     * @param block the code to record
+     * @return the calls made by the block
+     * @throws IllegalStateException if no service is recorded, see
+     *             {@link ServiceCallRecorder}
+     */
+    public static ServiceCalls record(final Runnable block) {
+        return ServiceCallRecorder.record(block);
+    }
+
+    void recordCall(final String serviceMethod) {
+        callsByMethod.computeIfAbsent(serviceMethod, key -> new LongAdder()).increment();
+    }
+
+    void recordBytesRead(final long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * @return the total number of service calls
+     */
+    public long getCalls() {
+        return callsByMethod.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * @param service the simple name of the service interface, e.g.
+     *            NodeService
+     * @param method the method name, e.g. getProperty
+     * @return the number of calls to that method, all overloads together
+     */
+    public long getCalls(final String service, final String method) {
+        final LongAdder calls = callsByMethod.get(service + "." + method);
+        return calls != null ? calls.sum() : 0L;
+    }
+
+    /**
+     * @return the number of calls per service method, e.g.
+     *         NodeService.getProperty, sorted by method
+     */
+    public Map<String, Long> getCallsByMethod() {
+        final Map<String, Long> result = new TreeMap<>();
+        callsByMethod.forEach((method, calls) -> result.put(method, calls.sum()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * @return the number of content bytes read through the readers returned
+     *         by the recorded services
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public String toString() {
+        return getCallsByMethod() + ", " + getBytesRead() + " content bytes read";
+    }
+}
@@ -0,0 +1,293 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.QName;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import com.ixxus.alfresco.NodeAssert;
+import com.ixxus.alfresco.SiteAssert;
+import com.ixxus.alfresco.WorkflowAssert;
+
+/**
+ * A batch of NodeAssert, SiteAssert and WorkflowAssert checks, described by
+ * method name and arguments, to run in the repository in one round trip:
+ *
+ * <pre>
+ * final AssertionPlan plan = new AssertionPlan()
+ *         .node(nodeRef, "exists")
+ *         .node(nodeRef, "hasAspect", ContentModel.ASPECT_TITLED)
+ *         .site("my-site", "hasContainer", SiteService.DOCUMENT_LIBRARY)
+ *         .workflow(workflowId, "hasNumberOfPackageItems", 2);
+ * client.execute(plan).assertPassed();
+ * </pre>
+ *
+ * Arguments can be strings, numbers, booleans, QNames, NodeRefs, Patterns
+ * and sets of NodeRefs; null is only accepted for property values. A check
+ * can only name an instance method declared by the assertion class itself
+ * that returns the assertion, so the static setters of the services and the
+ * methods inherited from AbstractAssert cannot be called remotely. Unlike
+ * chained assertions, every check runs even if
+ * an earlier one failed. See {@link AssertionPlanExecutor} and
+ * {@link AssertionPlanClient}.
+ */
+public final class AssertionPlan implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * What a check is made on
+     */
+    public enum Target {
+        NODE(NodeAssert.class), SITE(SiteAssert.class), WORKFLOW(WorkflowAssert.class);
+
+        private final Class<?> assertClass;
+
+        Target(final Class<?> assertClass) {
+            this.assertClass = assertClass;
+        }
+
+        Class<?> getAssertClass() {
+            return assertClass;
+        }
+    }
+
+    private final List<Check> checks = new ArrayList<>();
+
+    /**
+     * @param nodeRef the node to check
+     * @param method the NodeAssert method, e.g. hasAspect
+     * @param args the arguments of the method
+     * @return this
+     */
+    public AssertionPlan node(final NodeRef nodeRef, final String method, final Object... args) {
+        return add(new Check(Target.NODE, nodeRef.toString(), method, Arrays.asList(args)));
+    }
+
+    /**
+     * @param siteShortName the site to check
+     * @param method the SiteAssert method, e.g. hasContainer
+     * @param args the arguments of the method
+     * @return this
+     */
+    public AssertionPlan site(final String siteShortName, final String method, final Object... args) {
+        return add(new Check(Target.SITE, siteShortName, method, Arrays.asList(args)));
+    }
+
+    /**
+     * @param workflowId the id of the workflow instance to check
+     * @param method the WorkflowAssert method, e.g. isInitiator
+     * @param args the arguments of the method
+     * @return this
+     */
+    public AssertionPlan workflow(final String workflowId, final String method, final Object... args) {
+        return add(new Check(Target.WORKFLOW, workflowId, method, Arrays.asList(args)));
+    }
+
+    /**
+     * @return the checks, in the order they run
+     */
+    public List<Check> getChecks() {
+        return Collections.unmodifiableList(checks);
+    }
+
+    /**
+     * @return the plan as JSON, see {@link #fromJson(String)}
+     */
+    @SuppressWarnings("unchecked")
+    public String toJson() {
+        final JSONArray jsonChecks = new JSONArray();
+        for (final Check check : checks) {
+            final JSONObject jsonCheck = new JSONObject();
+            jsonCheck.put("target", check.target.name().toLowerCase());
+            jsonCheck.put("id", check.id);
+            jsonCheck.put("method", check.method);
+            final JSONArray jsonArgs = new JSONArray();
+            check.args.forEach(arg -> jsonArgs.add(toJson(arg)));
+            jsonCheck.put("args", jsonArgs);
+            jsonChecks.add(jsonCheck);
+        }
+        final JSONObject json = new JSONObject();
+        json.put("checks", jsonChecks);
+        return json.toJSONString();
+    }
+
+    /**
+     * @param json a plan written by {@link #toJson()}
+     * @return the plan
+     */
+    public static AssertionPlan fromJson(final String json) {
+        final AssertionPlan plan = new AssertionPlan();
+        try {
+            final JSONObject jsonPlan = (JSONObject) new JSONParser().parse(json);
+            for (final Object item : (List<?>) jsonPlan.get("checks")) {
+                final Map<?, ?> jsonCheck = (Map<?, ?>) item;
+                final List<Object> args = ((List<?>) jsonCheck.get("args")).stream().map(AssertionPlan::fromJson).collect(Collectors.toList());
+                plan.add(new Check(Target.valueOf(((String) jsonCheck.get("target")).toUpperCase()), (String) jsonCheck.get("id"),
+                                (String) jsonCheck.get("method"), args));
+            }
+        } catch (final ParseException | ClassCastException | NullPointerException e) {
+            throw new IllegalArgumentException("Not a valid assertion plan: " + json, e);
+        }
+        return plan;
+    }
+
+    private AssertionPlan add(final Check check) {
+        if (check.findMethods().isEmpty()) {
+            throw new IllegalArgumentException("No assertion method " + check.target.getAssertClass().getSimpleName() + "." + check.method
+                            + " taking " + check.args.size() + " arguments " + check.args);
+        }
+        checks.add(check);
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object toJson(final Object arg) {
+        final JSONObject json = new JSONObject();
+        if (arg instanceof Integer) {
+            // JSON numbers are read back as Long, which would not equal an
+            // Integer property value
+            json.put("int", arg);
+            return json;
+        } else if ((arg == null) || (arg instanceof String) || (arg instanceof Number) || (arg instanceof Boolean)) {
+            return arg;
+        } else if (arg instanceof QName) {
+            json.put("qname", arg.toString());
+        } else if (arg instanceof NodeRef) {
+            json.put("nodeRef", arg.toString());
+        } else if (arg instanceof Pattern) {
+            json.put("pattern", ((Pattern) arg).pattern());
+        } else if ((arg instanceof Collection) && ((Collection<?>) arg).stream().allMatch(NodeRef.class::isInstance)) {
+            final JSONArray nodeRefs = new JSONArray();
+            ((Collection<?>) arg).forEach(nodeRef -> nodeRefs.add(nodeRef.toString()));
+            json.put("nodeRefs", nodeRefs);
+        } else {
+            throw new IllegalArgumentException("Unsupported argument type " + arg.getClass().getName() + ": " + arg);
+        }
+        return json;
+    }
+
+    private static Object fromJson(final Object json) {
+        if (!(json instanceof Map)) {
+            return json;
+        }
+        final Map<?, ?> typed = (Map<?, ?>) json;
+        if (typed.containsKey("int")) {
+            return ((Number) typed.get("int")).intValue();
+        } else if (typed.containsKey("qname")) {
+            return QName.createQName((String) typed.get("qname"));
+        } else if (typed.containsKey("nodeRef")) {
+            return new NodeRef((String) typed.get("nodeRef"));
+        } else if (typed.containsKey("pattern")) {
+            return Pattern.compile((String) typed.get("pattern"));
+        } else if (typed.containsKey("nodeRefs")) {
+            return ((List<?>) typed.get("nodeRefs")).stream().map(nodeRef -> new NodeRef((String) nodeRef))
+                            .collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+        throw new IllegalArgumentException("Unsupported argument " + JSONValue.toJSONString(json));
+    }
+
+    /**
+     * One assertion method called on one node, site or workflow
+     */
+    public static final class Check implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Target target;
+
+        private final String id;
+
+        private final String method;
+
+        private final List<Object> args;
+
+        private Check(final Target target, final String id, final String method, final List<Object> args) {
+            this.target = target;
+            this.id = id;
+            this.method = method;
+            this.args = new ArrayList<>(args);
+        }
+
+        public Target getTarget() {
+            return target;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public List<Object> getArgs() {
+            return Collections.unmodifiableList(args);
+        }
+
+        /**
+         * @return the assertion methods this check could call: public
+         *         instance methods declared by the assertion class and
+         *         returning it, matching by name, number of arguments and
+         *         where the null arguments are
+         */
+        List<Method> findMethods() {
+            final Class<?> assertClass = target.getAssertClass();
+            return Arrays.stream(assertClass.getDeclaredMethods())
+                            .filter(candidate -> Modifier.isPublic(candidate.getModifiers()) && !Modifier.isStatic(candidate.getModifiers())
+                                            && !candidate.isBridge() && !candidate.isSynthetic() && (candidate.getReturnType() == assertClass))
+                            .filter(candidate -> candidate.getName().equals(method) && (candidate.getParameterCount() == args.size())
+                                            && acceptsNulls(candidate))
+                            .collect(Collectors.toList());
+        }
+
+        /**
+         * Only property values, i.e. Serializable or Object parameters, may be
+         * null
+         */
+        private boolean acceptsNulls(final Method candidate) {
+            final Class<?>[] parameterTypes = candidate.getParameterTypes();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if ((args.get(i) == null) && (parameterTypes[i] != Serializable.class) && (parameterTypes[i] != Object.class)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return target.name().toLowerCase() + " " + id + "." + method
+                            + args.stream().map(String::valueOf).collect(Collectors.joining(", ", "(", ")"));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+
+/**
+ * Sends an {@link AssertionPlan} to a running repository in one request, for
+ * tests that drive the repository from outside:
+ *
+ * <pre>
+ * final AssertionPlanClient client = new AssertionPlanClient("http://localhost:8080/alfresco/service", "admin", "admin");
+ * client.execute(plan).assertPassed();
+ * </pre>
+ */
+public class AssertionPlanClient {
+    private static final String PLAN_PATH = "/ixxus/assertions/plan";
+
+    private final String serviceUrl;
+
+    private final String authorization;
+
+    /**
+     * @param serviceUrl the web script URL of the repository, e.g.
+     *            http://localhost:8080/alfresco/service
+     * @param userName the user the checks run as
+     * @param password the password of the user
+     */
+    public AssertionPlanClient(final String serviceUrl, final String userName, final String password) {
+        this.serviceUrl = serviceUrl.endsWith("/") ? serviceUrl.substring(0, serviceUrl.length() - 1) : serviceUrl;
+        this.authorization = HttpRequests.basicAuthorization(userName, password);
+    }
+
+    /**
+     * @param plan the checks to run
+     * @return the failed checks
+     */
+    public AssertionPlanResult execute(final AssertionPlan plan) {
+        try {
+            final HttpURLConnection connection = HttpRequests.postJson(serviceUrl + PLAN_PATH, authorization, plan.toJson());
+            try {
+                return AssertionPlanResult.fromJson(HttpRequests.read(connection.getInputStream()));
+            } finally {
+                connection.disconnect();
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Could not send the assertion plan to " + serviceUrl, e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.workflow.WorkflowInstance;
+import org.alfresco.service.cmr.workflow.WorkflowService;
+import org.alfresco.service.transaction.TransactionService;
+
+import com.ixxus.alfresco.AssertionContext;
+import com.ixxus.alfresco.NodeAssert;
+import com.ixxus.alfresco.SiteAssert;
+import com.ixxus.alfresco.WorkflowAssert;
+import com.ixxus.alfresco.remote.AssertionPlan.Check;
+import com.ixxus.alfresco.remote.AssertionPlanResult.Failure;
+
+/**
+ * Runs an {@link AssertionPlan} in the repository, all checks in one
+ * read-only transaction as the current user, with the current
+ * {@link AssertionContext}. Defined in module-context.xml as
+ * <code>assertions.planExecutor</code> and exposed to remote clients by
+ * {@link AssertionPlanWebScript}.
+ */
+public class AssertionPlanExecutor {
+    private TransactionService transactionService;
+
+    private WorkflowService workflowService;
+
+    public void setTransactionService(final TransactionService transactionService) {
+        this.transactionService = transactionService;
+    }
+
+    public void setWorkflowService(final WorkflowService workflowService) {
+        this.workflowService = workflowService;
+    }
+
+    /**
+     * @param plan the checks to run
+     * @return the failed checks
+     */
+    public AssertionPlanResult execute(final AssertionPlan plan) {
+        Objects.requireNonNull(transactionService, "transactionService is required");
+        final long start = System.currentTimeMillis();
+        // Failures are collected inside the transaction, as errors thrown from
+        // a callback are wrapped by the transaction helper
+        final List<Failure> failures = transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+            final List<Failure> attemptFailures = new ArrayList<>();
+            final List<Check> checks = plan.getChecks();
+            for (int i = 0; i < checks.size(); i++) {
+                final String message = run(checks.get(i));
+                if (message != null) {
+                    attemptFailures.add(new Failure(i, checks.get(i).toString(), message));
+                }
+            }
+            return attemptFailures;
+        }, true, true);
+        return new AssertionPlanResult(plan.getChecks().size(), System.currentTimeMillis() - start, failures);
+    }
+
+    /**
+     * @return the failure message, or null if the check passed
+     */
+    private String run(final Check check) {
+        try {
+            final Object target = createAssert(check);
+            if (target == null) {
+                return "No workflow <" + check.getId() + ">";
+            }
+            for (final Method method : check.findMethods()) {
+                final Object[] args = convert(check.getArgs(), method.getParameterTypes());
+                if (args != null) {
+                    method.invoke(target, args);
+                    return null;
+                }
+            }
+            return "No method " + check.getMethod() + " accepting " + check.getArgs();
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof AssertionError) {
+                return e.getCause().getMessage();
+            }
+            return "Check failed with " + e.getCause();
+        } catch (final IllegalAccessException | RuntimeException e) {
+            return "Check failed with " + e;
+        }
+    }
+
+    private Object createAssert(final Check check) {
+        switch (check.getTarget()) {
+        case NODE:
+            return NodeAssert.assertThat(new NodeRef(check.getId()));
+        case SITE:
+            return SiteAssert.assertThat(check.getId());
+        case WORKFLOW:
+            Objects.requireNonNull(workflowService, "workflowService is required");
+            final WorkflowInstance workflowInstance = workflowService.getWorkflowById(check.getId());
+            return workflowInstance != null ? WorkflowAssert.assertThat(workflowInstance) : null;
+        default:
+            throw new IllegalStateException("Unknown target " + check.getTarget());
+        }
+    }
+
+    /**
+     * @return the arguments converted to the parameter types, or null if
+     *         they don't fit
+     */
+    private static Object[] convert(final List<Object> args, final Class<?>[] parameterTypes) {
+        final Object[] converted = new Object[args.size()];
+        for (int i = 0; i < converted.length; i++) {
+            final Object arg = args.get(i);
+            final Class<?> type = parameterTypes[i];
+            if (arg == null) {
+                if ((type != Serializable.class) && (type != Object.class)) {
+                    return null;
+                }
+            } else if (((type == int.class) || (type == Integer.class)) && (arg instanceof Number)) {
+                converted[i] = ((Number) arg).intValue();
+            } else if (((type == long.class) || (type == Long.class)) && (arg instanceof Number)) {
+                converted[i] = ((Number) arg).longValue();
+            } else if ((type == boolean.class) && (arg instanceof Boolean)) {
+                converted[i] = arg;
+            } else if ((type == Set.class) && (arg instanceof Collection)) {
+                converted[i] = new LinkedHashSet<>((Collection<?>) arg);
+            } else if (type.isInstance(arg)) {
+                converted[i] = arg;
+            } else {
+                return null;
+            }
+        }
+        return converted;
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.assertj.core.api.SoftAssertionError;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Outcome of an {@link AssertionPlan}: the number of checks run and the
+ * failed ones
+ */
+public final class AssertionPlanResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int checks;
+
+    private final long elapsedMillis;
+
+    private final List<Failure> failures;
+
+    AssertionPlanResult(final int checks, final long elapsedMillis, final List<Failure> failures) {
+        this.checks = checks;
+        this.elapsedMillis = elapsedMillis;
+        this.failures = Collections.unmodifiableList(new ArrayList<>(failures));
+    }
+
+    /**
+     * @return the number of checks run
+     */
+    public int getChecks() {
+        return checks;
+    }
+
+    /**
+     * @return how long the repository took to run the plan
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return the failed checks, in plan order
+     */
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return whether every check passed
+     */
+    public boolean isPassed() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Fail with every failure message, like soft assertions
+     */
+    public void assertPassed() {
+        if (!failures.isEmpty()) {
+            throw new SoftAssertionError(failures.stream().map(Failure::toString).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * @return the result as JSON, listing only the failures
+     */
+    @SuppressWarnings("unchecked")
+    public String toJson() {
+        final JSONArray jsonFailures = new JSONArray();
+        for (final Failure failure : failures) {
+            final JSONObject jsonFailure = new JSONObject();
+            jsonFailure.put("index", failure.index);
+            jsonFailure.put("check", failure.check);
+            jsonFailure.put("message", failure.message);
+            jsonFailures.add(jsonFailure);
+        }
+        final JSONObject json = new JSONObject();
+        json.put("checks", checks);
+        json.put("elapsedMillis", elapsedMillis);
+        json.put("failures", jsonFailures);
+        return json.toJSONString();
+    }
+
+    /**
+     * @param json a result written by {@link #toJson()}
+     * @return the result
+     */
+    public static AssertionPlanResult fromJson(final String json) {
+        try {
+            final JSONObject jsonResult = (JSONObject) new JSONParser().parse(json);
+            final List<Failure> failures = new ArrayList<>();
+            for (final Object item : (List<?>) jsonResult.get("failures")) {
+                final Map<?, ?> jsonFailure = (Map<?, ?>) item;
+                failures.add(new Failure(((Number) jsonFailure.get("index")).intValue(), (String) jsonFailure.get("check"),
+                                (String) jsonFailure.get("message")));
+            }
+            return new AssertionPlanResult(((Number) jsonResult.get("checks")).intValue(), ((Number) jsonResult.get("elapsedMillis")).longValue(),
+                            failures);
+        } catch (final ParseException | ClassCastException | NullPointerException e) {
+            throw new IllegalArgumentException("Not a valid assertion plan result: " + json, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s checks, %s failed, %s ms", checks, failures.size(), elapsedMillis);
+    }
+
+    /**
+     * A failed check
+     */
+    public static final class Failure implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+
+        private final String check;
+
+        private final String message;
+
+        Failure(final int index, final String check, final String message) {
+            this.index = index;
+            this.check = check;
+            this.message = message;
+        }
+
+        /**
+         * @return the position of the check in the plan
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the description of the check
+         */
+        public String getCheck() {
+            return check;
+        }
+
+        /**
+         * @return the failure message
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return check + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import java.io.IOException;
+
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * <code>POST /ixxus/assertions/plan</code>: runs the {@link AssertionPlan} in
+ * the request body and responds with the {@link AssertionPlanResult}, both as
+ * JSON. Failed checks are part of the result, not an error status.
+ */
+public class AssertionPlanWebScript extends AbstractWebScript {
+    private AssertionPlanExecutor planExecutor;
+
+    public void setPlanExecutor(final AssertionPlanExecutor planExecutor) {
+        this.planExecutor = planExecutor;
+    }
+
+    @Override
+    public void execute(final WebScriptRequest req, final WebScriptResponse res) throws IOException {
+        final AssertionPlan plan = parsePlan(req.getContent().getContent());
+        final AssertionPlanResult result = planExecutor.execute(plan);
+        res.setContentType("application/json");
+        res.setContentEncoding("UTF-8");
+        res.getWriter().write(result.toJson());
+    }
+
+    /**
+     * @param json the request body
+     * @return the plan
+     * @throws WebScriptException with status 400 if the body is not a valid
+     *             plan, e.g. one naming a method that is not an assertion
+     */
+    static AssertionPlan parsePlan(final String json) {
+        try {
+            return AssertionPlan.fromJson(json);
+        } catch (final IllegalArgumentException e) {
+            throw new WebScriptException(Status.STATUS_BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+}
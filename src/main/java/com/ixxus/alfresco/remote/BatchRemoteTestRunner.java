@@ -0,0 +1,176 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.junit.AssumptionViolatedException;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Request;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.Suite.SuiteClasses;
+import org.junit.runners.model.InitializationError;
+
+/**
+ * Runs a suite of test classes in the repository in one request, instead of
+ * one remote session per class as RemoteTestRunner does. The results are
+ * reported as each test finishes:
+ *
+ * <pre>
+ * &#64;RunWith(BatchRemoteTestRunner.class)
+ * &#64;SuiteClasses({ NodeAssertTest.class, SiteAssertTest.class, WorkflowAssertTest.class })
+ * &#64;RemoteBatch(url = "http://localhost:8080/alfresco/service")
+ * public class RepositoryTests {
+ * }
+ * </pre>
+ *
+ * The classes run in the order given, by {@link TestBatchWebScript}, so the
+ * repository-side Spring test contexts are loaded once for the whole suite.
+ * If the repository cannot be reached the classes run locally, as with
+ * RemoteTestRunner.
+ */
+public class BatchRemoteTestRunner extends Runner {
+    private static final String TESTS_PATH = "/ixxus/assertions/tests";
+
+    private static final Log LOGGER = LogFactory.getLog(BatchRemoteTestRunner.class);
+
+    private final Class<?> suiteClass;
+
+    private final List<Class<?>> testClasses;
+
+    private final Description description;
+
+    /**
+     * @param suiteClass the class annotated with {@link SuiteClasses}
+     * @throws InitializationError if the suite classes are missing
+     */
+    public BatchRemoteTestRunner(final Class<?> suiteClass) throws InitializationError {
+        final SuiteClasses suiteClasses = suiteClass.getAnnotation(SuiteClasses.class);
+        if (suiteClasses == null) {
+            throw new InitializationError("class '" + suiteClass.getName() + "' must have a SuiteClasses annotation");
+        }
+        this.suiteClass = suiteClass;
+        this.testClasses = Arrays.asList(suiteClasses.value());
+        this.description = Description.createSuiteDescription(suiteClass);
+        for (final Class<?> testClass : testClasses) {
+            final Description classDescription = Description.createSuiteDescription(testClass);
+            Arrays.stream(testClass.getMethods()).filter(method -> method.isAnnotationPresent(Test.class)).map(Method::getName).sorted()
+                            .forEach(name -> classDescription.addChild(Description.createTestDescription(testClass, name)));
+            description.addChild(classDescription);
+        }
+    }
+
+    @Override
+    public Description getDescription() {
+        return description;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void run(final RunNotifier notifier) {
+        final RemoteBatch remoteBatch = suiteClass.getAnnotation(RemoteBatch.class);
+        final String url = System.getProperty("ixxus.assertions.remote.url", remoteBatch != null ? remoteBatch.url() : "http://localhost:8080/alfresco/service");
+        final String user = System.getProperty("ixxus.assertions.remote.user", remoteBatch != null ? remoteBatch.user() : "admin");
+        final String password = System.getProperty("ixxus.assertions.remote.password", remoteBatch != null ? remoteBatch.password() : "admin");
+
+        final JSONArray classNames = new JSONArray();
+        testClasses.stream().map(Class::getName).forEach(classNames::add);
+        final JSONObject request = new JSONObject();
+        request.put("classes", classNames);
+
+        final HttpURLConnection connection;
+        try {
+            connection = HttpRequests.postJson(url + TESTS_PATH, HttpRequests.basicAuthorization(user, password), request.toJSONString());
+        } catch (final ConnectException e) {
+            LOGGER.info("Repository at " + url + " not reachable, running " + suiteClass.getName() + " locally");
+            testClasses.forEach(testClass -> Request.aClass(testClass).getRunner().run(notifier));
+            return;
+        } catch (final IOException | RuntimeException e) {
+            notifier.fireTestFailure(new Failure(description, e));
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            boolean finished = false;
+            String line;
+            while (!finished && ((line = reader.readLine()) != null)) {
+                finished = fire(notifier, (Map<?, ?>) new JSONParser().parse(line));
+            }
+            if (!finished) {
+                notifier.fireTestFailure(new Failure(description, new IllegalStateException("The repository ended the test session early")));
+            }
+        } catch (final IOException | ParseException e) {
+            notifier.fireTestFailure(new Failure(description, new IllegalStateException("Lost the test session with the repository", e)));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Replay one test event of the repository
+     *
+     * @return whether it was the last event
+     */
+    private static boolean fire(final RunNotifier notifier, final Map<?, ?> event) {
+        final String className = (String) event.get("class");
+        final String methodName = (String) event.get("method");
+        final Description test = methodName != null ? Description.createTestDescription(className, methodName)
+                        : Description.createSuiteDescription(String.valueOf(className));
+        switch ((String) event.get("event")) {
+        case "testStarted":
+            notifier.fireTestStarted(test);
+            break;
+        case "testFinished":
+            notifier.fireTestFinished(test);
+            break;
+        case "testIgnored":
+            notifier.fireTestIgnored(test);
+            break;
+        case "testFailure":
+            notifier.fireTestFailure(new Failure(test, remoteFailure(event)));
+            break;
+        case "testAssumptionFailure":
+            notifier.fireTestAssumptionFailed(new Failure(test, new AssumptionViolatedException((String) event.get("message"), remoteFailure(event))));
+            break;
+        case "finished":
+            return true;
+        default:
+            LOGGER.warn("Ignoring unknown test event " + event);
+        }
+        return false;
+    }
+
+    private static RemoteTestFailure remoteFailure(final Map<?, ?> event) {
+        return new RemoteTestFailure((String) event.get("type"), (String) event.get("message"), (String) event.get("trace"));
+    }
+}
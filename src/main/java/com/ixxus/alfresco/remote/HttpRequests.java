@@ -0,0 +1,79 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Plain HttpURLConnection calls to the repository web scripts, so the
+ * clients need no HTTP library
+ */
+final class HttpRequests {
+    private HttpRequests() {
+    }
+
+    /**
+     * @return the value of a basic Authorization header
+     */
+    static String basicAuthorization(final String userName, final String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((userName + ':' + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Post a JSON body and check that the response status is 200
+     *
+     * @return the connection, to read the response from
+     */
+    static HttpURLConnection postJson(final String url, final String authorization, final String json) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Authorization", authorization);
+        connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        final int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            final String error = read(connection.getErrorStream());
+            connection.disconnect();
+            throw new IllegalStateException("POST " + url + " failed with status " + status + ": " + error);
+        }
+        return connection;
+    }
+
+    static String read(final InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream body = in) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Where a {@link BatchRemoteTestRunner} suite runs its test classes. The
+ * system properties <code>ixxus.assertions.remote.url</code>,
+ * <code>ixxus.assertions.remote.user</code> and
+ * <code>ixxus.assertions.remote.password</code> take precedence.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface RemoteBatch {
+    /**
+     * @return the web script URL of the repository
+     */
+    String url() default "http://localhost:8080/alfresco/service";
+
+    /**
+     * @return an administrator, as the tests run arbitrary code in the
+     *         repository
+     */
+    String user() default "admin";
+
+    /**
+     * @return the password of the user
+     */
+    String password() default "admin";
+}
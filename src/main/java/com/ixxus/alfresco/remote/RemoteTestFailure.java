@@ -0,0 +1,65 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+/**
+ * A test failure reported by the repository, carrying the remote stack trace
+ * as text since the remote exception class may not exist on the client
+ */
+public class RemoteTestFailure extends AssertionError {
+    private static final long serialVersionUID = 1L;
+
+    private final String type;
+
+    private final String remoteTrace;
+
+    /**
+     * @param type the class name of the remote exception
+     * @param message the message of the remote exception
+     * @param remoteTrace the printed remote stack trace
+     */
+    public RemoteTestFailure(final String type, final String message, final String remoteTrace) {
+        super(message);
+        this.type = type;
+        this.remoteTrace = remoteTrace;
+        setStackTrace(new StackTraceElement[0]);
+    }
+
+    /**
+     * @return the class name of the remote exception
+     */
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return getMessage() != null ? type + ": " + getMessage() : type;
+    }
+
+    @Override
+    public void printStackTrace(final PrintStream s) {
+        s.print(remoteTrace);
+    }
+
+    @Override
+    public void printStackTrace(final PrintWriter s) {
+        s.print(remoteTrace);
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.junit.internal.builders.AllDefaultPossibilitiesBuilder;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+import com.tradeshift.test.remote.Remote;
+
+/**
+ * <code>POST /ixxus/assertions/tests</code>: runs a batch of test classes in
+ * the repository, one after the other in this request, and streams the test
+ * events back as JSON lines while they happen. See
+ * {@link BatchRemoteTestRunner}.
+ * <p>
+ * Classes annotated with {@link Remote} run with their remote runner class,
+ * as junit-remote does, so Spring test contexts are cached across the whole
+ * batch. The test classes must be on the repository classpath.
+ */
+public class TestBatchWebScript extends AbstractWebScript {
+
+    @Override
+    public void execute(final WebScriptRequest req, final WebScriptResponse res) throws IOException {
+        final List<String> classNames;
+        try {
+            classNames = parseClassNames(req.getContent().getContent());
+        } catch (final IllegalArgumentException e) {
+            throw new WebScriptException(Status.STATUS_BAD_REQUEST, e.getMessage(), e);
+        }
+        res.setContentType("application/x-json-stream");
+        res.setContentEncoding("UTF-8");
+        run(classNames, res.getWriter());
+    }
+
+    /**
+     * @param json the request body, <code>{"classes": [...]}</code>
+     * @return the names of the test classes to run
+     * @throws IllegalArgumentException if the body is not a list of class
+     *             names
+     */
+    static List<String> parseClassNames(final String json) {
+        final Object classes;
+        try {
+            classes = ((JSONObject) new JSONParser().parse(json)).get("classes");
+        } catch (final ParseException | ClassCastException e) {
+            throw new IllegalArgumentException("Expected {\"classes\": [...]}", e);
+        }
+        if (!(classes instanceof List)) {
+            throw new IllegalArgumentException("Expected {\"classes\": [...]}");
+        }
+        final List<String> classNames = new ArrayList<>();
+        for (final Object className : (List<?>) classes) {
+            if (!(className instanceof String)) {
+                throw new IllegalArgumentException("Expected a class name but got <" + className + ">");
+            }
+            classNames.add((String) className);
+        }
+        return classNames;
+    }
+
+    /**
+     * Run the test classes one after the other, writing every test event and
+     * a final summary as JSON lines
+     *
+     * @param classNames the names of the test classes
+     * @param writer where to stream the events
+     */
+    @SuppressWarnings("unchecked")
+    static void run(final List<String> classNames, final Writer writer) {
+        final RunNotifier notifier = new RunNotifier();
+        final Result result = new Result();
+        notifier.addListener(result.createListener());
+        notifier.addListener(new StreamingListener(writer));
+        for (final String className : classNames) {
+            final Runner runner;
+            try {
+                runner = createRunner(Class.forName(className, true, Thread.currentThread().getContextClassLoader()));
+            } catch (final Throwable e) {
+                // Reported against the class, so the client fails it and moves on
+                notifier.fireTestFailure(new Failure(Description.createSuiteDescription(className), e));
+                continue;
+            }
+            runner.run(notifier);
+        }
+        final JSONObject finished = new JSONObject();
+        putEvent(finished, "finished", null);
+        finished.put("runCount", result.getRunCount());
+        finished.put("failureCount", result.getFailureCount());
+        finished.put("runTime", result.getRunTime());
+        writeLine(writer, finished);
+    }
+
+    private static Runner createRunner(final Class<?> testClass) throws Throwable {
+        final Remote remote = testClass.getAnnotation(Remote.class);
+        if (remote != null) {
+            return remote.runnerClass().getConstructor(Class.class).newInstance(testClass);
+        }
+        return new AllDefaultPossibilitiesBuilder(true).runnerForClass(testClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putEvent(final JSONObject json, final String event, final Description description) {
+        json.put("event", event);
+        if (description != null) {
+            json.put("class", description.getClassName());
+            json.put("method", description.getMethodName());
+        }
+    }
+
+    private static synchronized void writeLine(final Writer writer, final JSONObject json) {
+        try {
+            writer.write(json.toJSONString());
+            writer.write('\n');
+            // Flushed per event, so the client sees results as tests finish
+            writer.flush();
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not stream the test event to the client", e);
+        }
+    }
+
+    /**
+     * Writes every test event as one JSON line
+     */
+    private static final class StreamingListener extends RunListener {
+        private final Writer writer;
+
+        private StreamingListener(final Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void testStarted(final Description description) {
+            write("testStarted", description);
+        }
+
+        @Override
+        public void testFinished(final Description description) {
+            write("testFinished", description);
+        }
+
+        @Override
+        public void testIgnored(final Description description) {
+            write("testIgnored", description);
+        }
+
+        @Override
+        public void testFailure(final Failure failure) {
+            writeFailure("testFailure", failure);
+        }
+
+        @Override
+        public void testAssumptionFailure(final Failure failure) {
+            writeFailure("testAssumptionFailure", failure);
+        }
+
+        private void write(final String event, final Description description) {
+            final JSONObject json = new JSONObject();
+            putEvent(json, event, description);
+            writeLine(writer, json);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void writeFailure(final String event, final Failure failure) {
+            final JSONObject json = new JSONObject();
+            putEvent(json, event, failure.getDescription());
+            final Throwable exception = failure.getException();
+            json.put("type", exception.getClass().getName());
+            json.put("message", exception.getMessage());
+            final StringWriter trace = new StringWriter();
+            exception.printStackTrace(new PrintWriter(trace));
+            json.put("trace", trace.toString());
+            writeLine(writer, json);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.snapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.sql.DataSource;
+
+/**
+ * Copy of a freshly bootstrapped Alfresco: the H2 database, taken with an
+ * online <code>BACKUP</code>, and every other file under dir.root, such as
+ * the content store. Snapshots are kept in a directory per key, so one
+ * snapshot serves every run with the same Alfresco version and modules.
+ *
+ * <pre>
+ * &lt;snapshots&gt;/&lt;key&gt;/snapshot.properties   what the key was computed from
+ *                      /h2-backup.zip         the database
+ *                      /files/                everything else under dir.root
+ * </pre>
+ */
+public class BootstrapSnapshot {
+    private static final String MANIFEST = "snapshot.properties";
+
+    private static final String H2_BACKUP = "h2-backup.zip";
+
+    private static final String FILES = "files";
+
+    private static final String H2_DIRECTORY = "h2.directory";
+
+    private static final String H2_URL_PREFIX = "jdbc:h2:";
+
+    private final Path directory;
+
+    private final Map<String, String> keySource;
+
+    /**
+     * @param snapshots the directory holding all snapshots
+     * @param keySource what identifies the bootstrapped state, e.g. the
+     *            Alfresco version and the installed modules
+     */
+    public BootstrapSnapshot(final Path snapshots, final Map<String, String> keySource) {
+        this.keySource = new TreeMap<>(keySource);
+        this.directory = snapshots.resolve(key(this.keySource));
+    }
+
+    /**
+     * @return the directory of this snapshot
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return whether the snapshot has been captured
+     */
+    public boolean exists() {
+        return Files.isRegularFile(directory.resolve(MANIFEST));
+    }
+
+    /**
+     * Capture a bootstrapped repository. The snapshot is written next to its
+     * final place and moved there once complete, so a concurrent or
+     * interrupted capture never leaves a partial snapshot behind.
+     *
+     * @param dataSource the H2 database of the repository
+     * @param dirRoot the dir.root of the repository
+     */
+    public void capture(final DataSource dataSource, final Path dirRoot) {
+        final Path target = directory.resolveSibling(directory.getFileName() + ".tmp-" + UUID.randomUUID());
+        try {
+            Files.createDirectories(target);
+            final Path root = dirRoot.toAbsolutePath().normalize();
+            final Path h2Directory;
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                h2Directory = h2Directory(connection.getMetaData().getURL());
+                statement.execute("BACKUP TO '" + target.resolve(H2_BACKUP).toAbsolutePath().toString().replace("'", "''") + "'");
+            }
+            if (!h2Directory.startsWith(root)) {
+                throw new IllegalStateException("The H2 database in " + h2Directory + " is not under dir.root " + root);
+            }
+            copyTree(root, target.resolve(FILES), h2Directory);
+
+            final Properties manifest = new Properties();
+            manifest.putAll(keySource);
+            manifest.setProperty(H2_DIRECTORY, root.relativize(h2Directory).toString());
+            try (OutputStream out = Files.newOutputStream(target.resolve(MANIFEST))) {
+                manifest.store(out, "Alfresco bootstrap snapshot");
+            }
+            try {
+                Files.move(target, directory, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final IOException e) {
+                if (!exists()) {
+                    throw e;
+                }
+                // Captured concurrently by another run, keep that one
+                deleteTree(target);
+            }
+        } catch (final IOException e) {
+            deleteQuietly(target);
+            throw new UncheckedIOException("Could not capture snapshot " + directory, e);
+        } catch (final SQLException | RuntimeException e) {
+            deleteQuietly(target);
+            throw new IllegalStateException("Could not capture snapshot " + directory, e);
+        }
+    }
+
+    /**
+     * Restore the snapshot into an empty dir.root, before the repository
+     * starts
+     *
+     * @param dirRoot the dir.root of the repository
+     */
+    public void restore(final Path dirRoot) {
+        try {
+            final Properties manifest = new Properties();
+            try (InputStream in = Files.newInputStream(directory.resolve(MANIFEST))) {
+                manifest.load(in);
+            }
+            final Path root = dirRoot.toAbsolutePath().normalize();
+            Files.createDirectories(root);
+            copyTree(directory.resolve(FILES), root, null);
+            unzip(directory.resolve(H2_BACKUP), root.resolve(manifest.getProperty(H2_DIRECTORY)));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Could not restore snapshot " + directory + " into " + dirRoot, e);
+        }
+    }
+
+    /**
+     * @return the directory holding the database files of an H2 URL such as
+     *         jdbc:h2:./target/alf_test/h2_data/alf_test;AUTO_SERVER=TRUE
+     */
+    static Path h2Directory(final String url) {
+        if (!url.startsWith(H2_URL_PREFIX)) {
+            throw new IllegalStateException("Only H2 databases can be captured, but the URL is " + url);
+        }
+        String path = url.substring(H2_URL_PREFIX.length());
+        final int settings = path.indexOf(';');
+        if (settings >= 0) {
+            path = path.substring(0, settings);
+        }
+        if (path.startsWith("file:")) {
+            path = path.substring("file:".length());
+        }
+        if (path.startsWith("~")) {
+            path = System.getProperty("user.home") + path.substring(1);
+        }
+        return Paths.get(path).toAbsolutePath().normalize().getParent();
+    }
+
+    static String key(final Map<String, String> keySource) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (final Map.Entry<String, String> entry : new TreeMap<>(keySource).entrySet()) {
+                digest.update((entry.getKey() + '=' + entry.getValue() + '\n').getBytes(StandardCharsets.UTF_8));
+            }
+            final StringBuilder key = new StringBuilder();
+            final byte[] hash = digest.digest();
+            for (int i = 0; i < 8; i++) {
+                key.append(String.format("%02x", hash[i]));
+            }
+            return key.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void copyTree(final Path source, final Path target, final Path excluded) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                if (dir.equals(excluded)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                Files.copy(file, target.resolve(source.relativize(file).toString()), StandardCopyOption.REPLACE_EXISTING);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void unzip(final Path zip, final Path target) throws IOException {
+        Files.createDirectories(target);
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                final Path file = target.resolve(entry.getName()).normalize();
+                if (!file.startsWith(target)) {
+                    throw new IOException("Unexpected entry " + entry.getName() + " in " + zip);
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(file);
+                } else {
+                    Files.createDirectories(file.getParent());
+                    Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    private static void deleteTree(final Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void deleteQuietly(final Path root) {
+        try {
+            deleteTree(root);
+        } catch (final IOException e) {
+            // Leftover temporary directories are ignored by exists()
+        }
+    }
+}
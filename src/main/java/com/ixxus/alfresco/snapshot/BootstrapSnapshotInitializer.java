@@ -0,0 +1,187 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.snapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+/**
+ * Skips the Alfresco bootstrap of a test repository after the first run.
+ * When dir.root does not exist yet, a {@link BootstrapSnapshot} for the
+ * Alfresco version, the installed modules, the active Spring profiles and
+ * the database URL is restored
+ * into it before the repository starts; if there is none, the repository
+ * bootstraps as usual and is captured once it has started.
+ *
+ * <pre>
+ * &#64;ContextConfiguration(locations = "classpath:alfresco/application-context.xml", initializers = BootstrapSnapshotInitializer.class)
+ * </pre>
+ *
+ * Only H2 databases are supported. Snapshots are kept in
+ * <code>~/.alfresco-test-assertions/snapshots</code>, or the directory in
+ * the system property <code>ixxus.assertions.snapshot.dir</code>; set
+ * <code>ixxus.assertions.snapshot=false</code> to always bootstrap.
+ */
+public class BootstrapSnapshotInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+    /**
+     * System property switching snapshots off
+     */
+    public static final String ENABLED_PROPERTY = "ixxus.assertions.snapshot";
+
+    /**
+     * System property overriding the directory holding the snapshots
+     */
+    public static final String DIRECTORY_PROPERTY = "ixxus.assertions.snapshot.dir";
+
+    private static final Log LOGGER = LogFactory.getLog(BootstrapSnapshotInitializer.class);
+
+    private static final String GLOBAL_PROPERTIES = "alfresco-global.properties";
+
+    private static final String VERSION_PROPERTIES = "alfresco/version.properties";
+
+    private static final String MODULE_PROPERTIES = "classpath*:alfresco/module/*/module.properties";
+
+    @Override
+    public void initialize(final ConfigurableApplicationContext context) {
+        if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"))) {
+            return;
+        }
+        final Properties globalProperties = load(context.getClassLoader(), GLOBAL_PROPERTIES);
+        final String dbDriver = globalProperties.getProperty("db.driver", "");
+        final String dirRootProperty = System.getProperty("dir.root", globalProperties.getProperty("dir.root"));
+        if (!dbDriver.startsWith("org.h2.") || (dirRootProperty == null)) {
+            LOGGER.info("Bootstrap snapshots need an H2 database and dir.root in " + GLOBAL_PROPERTIES + ", bootstrapping as usual");
+            return;
+        }
+        final Path dirRoot = Paths.get(dirRootProperty);
+        if (!isEmpty(dirRoot)) {
+            return;
+        }
+        final BootstrapSnapshot snapshot = new BootstrapSnapshot(snapshotsDirectory(), keySource(context, globalProperties));
+        if (snapshot.exists()) {
+            final long start = System.currentTimeMillis();
+            snapshot.restore(dirRoot);
+            LOGGER.info("Restored " + snapshot.getDirectory() + " into " + dirRoot + " in " + (System.currentTimeMillis() - start) + " ms");
+        } else {
+            // Registered as the last listener bean, so it runs after the
+            // Alfresco bootstrap that also happens on context refresh
+            context.addBeanFactoryPostProcessor(beanFactory -> beanFactory.registerSingleton("assertions.bootstrapSnapshotCapture",
+                            new CaptureListener(context, snapshot, dirRoot)));
+        }
+    }
+
+    private static Path snapshotsDirectory() {
+        final String directory = System.getProperty(DIRECTORY_PROPERTY);
+        return directory != null ? Paths.get(directory) : Paths.get(System.getProperty("user.home"), ".alfresco-test-assertions", "snapshots");
+    }
+
+    private static Map<String, String> keySource(final ConfigurableApplicationContext context, final Properties globalProperties) {
+        final ClassLoader classLoader = context.getClassLoader();
+        final Map<String, String> keySource = new HashMap<>();
+        keySource.put("db.url", globalProperties.getProperty("db.url", ""));
+        // Profiles may replace the beans writing to dir.root, e.g. the content store
+        keySource.put("spring.profiles.active", String.join(",", new TreeSet<>(Arrays.asList(context.getEnvironment().getActiveProfiles()))));
+        load(classLoader, VERSION_PROPERTIES).forEach((name, value) -> keySource.put("alfresco." + name, String.valueOf(value)));
+        try {
+            for (final Resource resource : new PathMatchingResourcePatternResolver(classLoader).getResources(MODULE_PROPERTIES)) {
+                final Properties module = new Properties();
+                try (InputStream in = resource.getInputStream()) {
+                    module.load(in);
+                }
+                keySource.put("module." + module.getProperty("module.id"), module.getProperty("module.version", ""));
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Could not list the installed modules", e);
+        }
+        return keySource;
+    }
+
+    private static Properties load(final ClassLoader classLoader, final String resource) {
+        final Properties properties = new Properties();
+        try (InputStream in = classLoader.getResourceAsStream(resource)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Could not read " + resource, e);
+        }
+        return properties;
+    }
+
+    private static boolean isEmpty(final Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return !Files.exists(directory);
+        }
+        try (Stream<Path> children = Files.list(directory)) {
+            return !children.findAny().isPresent();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Could not read " + directory, e);
+        }
+    }
+
+    /**
+     * Captures the snapshot once the repository has bootstrapped
+     */
+    private static final class CaptureListener implements ApplicationListener<ContextRefreshedEvent> {
+        private final ConfigurableApplicationContext context;
+
+        private final BootstrapSnapshot snapshot;
+
+        private final Path dirRoot;
+
+        private CaptureListener(final ConfigurableApplicationContext context, final BootstrapSnapshot snapshot, final Path dirRoot) {
+            this.context = context;
+            this.snapshot = snapshot;
+            this.dirRoot = dirRoot;
+        }
+
+        @Override
+        public void onApplicationEvent(final ContextRefreshedEvent event) {
+            // Subsystem contexts publish their refresh events to this context too
+            if ((event.getApplicationContext() != context) || snapshot.exists()) {
+                return;
+            }
+            try {
+                final long start = System.currentTimeMillis();
+                snapshot.capture(context.getBean("dataSource", DataSource.class), dirRoot);
+                LOGGER.info("Captured " + dirRoot + " into " + snapshot.getDirectory() + " in " + (System.currentTimeMillis() - start) + " ms");
+            } catch (final RuntimeException e) {
+                LOGGER.warn("Could not capture a bootstrap snapshot, the next run bootstraps again", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import static com.ixxus.alfresco.NodeAssert.assertThat;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.model.Repository;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.site.SiteInfo;
+import org.alfresco.service.cmr.site.SiteService;
+import org.alfresco.service.cmr.site.SiteVisibility;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.PropertyMap;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.tradeshift.test.remote.Remote;
+import com.tradeshift.test.remote.RemoteTestRunner;
+
+@RunWith(RemoteTestRunner.class)
+@Remote(runnerClass = SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:alfresco/application-context.xml")
+public class AssertionCacheTest extends AbstractServiceTest {
+
+    @Autowired
+    @Qualifier("NodeService")
+    private NodeService nodeService;
+
+    @Autowired
+    @Qualifier("SiteService")
+    private SiteService siteService;
+
+    @Autowired
+    private Repository repository;
+
+    private NodeRef nodeRef;
+
+    @Before
+    public void setUp() {
+        AuthenticationUtil.setAdminUserAsFullyAuthenticatedUser();
+        final String nodeName = "AssertionCacheTest-" + UUID.randomUUID();
+        final PropertyMap propertyMap = new PropertyMap();
+        propertyMap.put(ContentModel.PROP_NAME, nodeName);
+        nodeRef = nodeService.createNode(repository.getCompanyHome(), ContentModel.ASSOC_CONTAINS,
+                QName.createQName(ContentModel.USER_MODEL_URI, nodeName), ContentModel.TYPE_CONTENT, propertyMap).getChildRef();
+        AssertionCache.setEnabled(true);
+        AssertionCache.resetStatistics();
+    }
+
+    @After
+    public void tearDown() {
+        AssertionCache.setEnabled(false);
+    }
+
+    @Test
+    public void repeated_assertions_are_served_from_the_cache() {
+        assertThat(nodeRef).exists().isType(ContentModel.TYPE_CONTENT);
+        assertThat(nodeRef).doesNotHaveAspect(ContentModel.ASPECT_TITLED);
+
+        Assertions.assertThat(AssertionCache.getMisses()).isEqualTo(1);
+        Assertions.assertThat(AssertionCache.getHits()).isGreaterThanOrEqualTo(3);
+    }
+
+    @Test
+    public void added_aspect_invalidates_the_node() {
+        assertThat(nodeRef).doesNotHaveAspect(ContentModel.ASPECT_TITLED);
+
+        nodeService.addAspect(nodeRef, ContentModel.ASPECT_TITLED, null);
+
+        assertThat(nodeRef).hasAspect(ContentModel.ASPECT_TITLED);
+    }
+
+    @Test
+    public void updated_property_invalidates_the_node() {
+        assertThat(nodeRef).doesNotHavePropertyValue(ContentModel.PROP_DESCRIPTION, "Updated");
+
+        nodeService.setProperty(nodeRef, ContentModel.PROP_DESCRIPTION, "Updated");
+
+        assertThat(nodeRef).hasPropertyValue(ContentModel.PROP_DESCRIPTION, "Updated");
+    }
+
+    @Test
+    public void deleted_node_invalidates_the_node() {
+        assertThat(nodeRef).exists();
+
+        nodeService.deleteNode(nodeRef);
+
+        assertThat(nodeRef).doesNotExist();
+    }
+
+    @Test
+    public void disabled_cache_is_not_used() {
+        AssertionCache.setEnabled(false);
+
+        assertThat(nodeRef).exists().isType(ContentModel.TYPE_CONTENT);
+        assertThat(nodeRef).exists();
+
+        Assertions.assertThat(AssertionCache.getHits()).isZero();
+        Assertions.assertThat(AssertionCache.getMisses()).isZero();
+    }
+
+    @Test
+    public void cache_is_off_by_default() {
+        AssertionCache.setEnabled(false);
+
+        assertThat(nodeRef).exists();
+        assertThat(nodeRef).exists();
+
+        Assertions.assertThat(AssertionCache.getHits()).isZero();
+    }
+
+    @Test
+    public void cache_can_be_enabled_for_one_context() {
+        AssertionCache.setEnabled(false);
+        final AssertionContext context = new AssertionContext();
+        context.setNodeService(nodeService);
+        context.setCacheEnabled(true);
+
+        try (AssertionContext.Binding binding = context.bind()) {
+            assertThat(nodeRef).exists();
+            assertThat(nodeRef).exists();
+        }
+
+        Assertions.assertThat(AssertionCache.getHits()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void moved_ancestor_invalidates_the_site_of_descendants() {
+        final String siteName = "AssertionCacheTest-" + UUID.randomUUID();
+        final SiteInfo siteInfo = siteService.createSite("preset", siteName, siteName, siteName, SiteVisibility.PUBLIC);
+        final NodeRef doclib = siteService.createContainer(siteName, SiteService.DOCUMENT_LIBRARY, ContentModel.TYPE_FOLDER,
+                Collections.emptyMap());
+        final NodeRef folder = nodeService.createNode(doclib, ContentModel.ASSOC_CONTAINS, ContentModel.ASSOC_CONTAINS, ContentModel.TYPE_FOLDER)
+                .getChildRef();
+        final NodeRef document = nodeService.createNode(folder, ContentModel.ASSOC_CONTAINS, ContentModel.ASSOC_CONTAINS,
+                ContentModel.TYPE_CONTENT).getChildRef();
+        SiteAssert.assertThat(siteInfo).isNodeInSite(document);
+
+        nodeService.moveNode(folder, repository.getCompanyHome(), ContentModel.ASSOC_CONTAINS, ContentModel.ASSOC_CONTAINS);
+
+        SiteAssert.assertThat(siteInfo).isNodeNotInSite(document);
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import static com.ixxus.alfresco.NodeAssert.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.model.Repository;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.transaction.TransactionService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.tradeshift.test.remote.Remote;
+import com.tradeshift.test.remote.RemoteTestRunner;
+
+/**
+ * The checks only see committed state, so the fixture is committed rather
+ * than created in a test transaction.
+ */
+@RunWith(RemoteTestRunner.class)
+@Remote(runnerClass = SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:alfresco/application-context.xml")
+public class EventuallyNodeAssertTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Autowired
+    @Qualifier("NodeService")
+    private NodeService nodeService;
+
+    @Autowired
+    private Repository repository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    private NodeRef nodeRef;
+
+    @Before
+    public void setUp() {
+        AuthenticationUtil.setAdminUserAsFullyAuthenticatedUser();
+        nodeRef = transactionService.getRetryingTransactionHelper().doInTransaction(() -> nodeService.createNode(repository.getCompanyHome(),
+                ContentModel.ASSOC_CONTAINS, ContentModel.ASSOC_CONTAINS, ContentModel.TYPE_CONTENT).getChildRef(), false, true);
+    }
+
+    @After
+    public void tearDown() {
+        transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+            if (nodeService.exists(nodeRef)) {
+                nodeService.deleteNode(nodeRef);
+            }
+            return null;
+        }, false, true);
+    }
+
+    @Test
+    public void passes_immediately_when_satisfied() {
+        assertThat(nodeRef).eventually(Duration.ofSeconds(1)).exists().doesNotHaveAspect(ContentModel.ASPECT_TITLED);
+    }
+
+    @Test
+    public void passes_once_a_change_commits() {
+        final CompletableFuture<Void> change = inBackground(() -> {
+            nodeService.addAspect(nodeRef, ContentModel.ASPECT_TITLED, null);
+            nodeService.setProperty(nodeRef, ContentModel.PROP_TITLE, "Changed asynchronously");
+        });
+
+        assertThat(nodeRef).eventually(Duration.ofSeconds(30)).hasAspect(ContentModel.ASPECT_TITLED)
+                .hasPropertyValue(ContentModel.PROP_TITLE, "Changed asynchronously");
+        change.join();
+    }
+
+    @Test
+    public void passes_once_the_node_is_deleted() {
+        final CompletableFuture<Void> change = inBackground(() -> nodeService.deleteNode(nodeRef));
+
+        assertThat(nodeRef).eventually(Duration.ofSeconds(30)).doesNotExist();
+        change.join();
+    }
+
+    @Test
+    public void fails_after_timeout() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Not satisfied within <200> ms");
+
+        assertThat(nodeRef).eventually(Duration.ofMillis(200)).hasAspect(ContentModel.ASPECT_TITLED);
+    }
+
+    private CompletableFuture<Void> inBackground(final Runnable change) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            AuthenticationUtil.runAsSystem(() -> transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+                change.run();
+                return null;
+            }, false, true));
+        });
+    }
+}
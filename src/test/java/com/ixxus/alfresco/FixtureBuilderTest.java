@@ -0,0 +1,127 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import static com.ixxus.alfresco.FixtureBuilder.fixture;
+import static com.ixxus.alfresco.FixtureNode.document;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.model.Repository;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.transaction.TransactionService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.tradeshift.test.remote.Remote;
+import com.tradeshift.test.remote.RemoteTestRunner;
+
+/**
+ * The fixture is created in its own transactions, so the checks run in new
+ * transactions too rather than in a test transaction.
+ */
+@RunWith(RemoteTestRunner.class)
+@Remote(runnerClass = SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:alfresco/application-context.xml")
+public class FixtureBuilderTest {
+
+    private static final int NUMBER_OF_DOCUMENTS = 250;
+
+    @Autowired
+    private Repository repository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    private Fixture fixture;
+
+    @Before
+    public void setUp() {
+        AuthenticationUtil.setAdminUserAsFullyAuthenticatedUser();
+    }
+
+    @After
+    public void tearDown() {
+        if (fixture != null) {
+            fixture.drop();
+        }
+    }
+
+    @Test
+    public void the_tree_is_created_in_batches_and_indexed_by_path() {
+        fixture = fixture().withThreads(2).withBatchSize(50)
+                .folder("reports/2017")
+                .addAll("reports/2017", NUMBER_OF_DOCUMENTS, i -> document("report-" + i + ".txt")
+                        .withAspect(ContentModel.ASPECT_TITLED)
+                        .withProperty(ContentModel.PROP_TITLE, "Report " + i)
+                        .withContent("Report " + i))
+                .association("reports/2017/report-1.txt", "reports/2017/report-2.txt", ContentModel.ASSOC_REFERENCES)
+                .build(repository.getCompanyHome());
+
+        assertThat(fixture.size()).isEqualTo(NUMBER_OF_DOCUMENTS + 2);
+        assertThat(fixture.getChildren("reports/2017")).hasSize(NUMBER_OF_DOCUMENTS);
+        inTransaction(() -> {
+            NodeAssert.assertThat(fixture.get("reports/2017")).hasChildCount(NUMBER_OF_DOCUMENTS);
+            NodeAssert.assertThat(fixture.get("reports/2017/report-42.txt"))
+                    .hasAspect(ContentModel.ASPECT_TITLED)
+                    .hasPropertyValue(ContentModel.PROP_TITLE, "Report 42")
+                    .hasContent("Report 42");
+            NodeAssert.assertThat(fixture.get("reports/2017/report-1.txt")).hasTargetAssociationCount(ContentModel.ASSOC_REFERENCES, 1);
+        });
+    }
+
+    @Test
+    public void dropping_deletes_the_whole_tree() {
+        fixture = fixture().folder("reports").add("reports", document("report.txt")).build(repository.getCompanyHome());
+        fixture.drop();
+
+        inTransaction(() -> {
+            NodeAssert.assertThat(fixture.getRoot()).doesNotExist();
+            NodeAssert.assertThat(fixture.get("reports/report.txt")).doesNotExist();
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nodes_can_only_be_added_to_declared_folders() {
+        fixture().add("missing", document("report.txt"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void paths_are_unique() {
+        fixture().folder("reports").add("reports", document("report.txt")).add("reports", document("report.txt"));
+    }
+
+    private void inTransaction(final Runnable assertions) {
+        final AssertionError failure = transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+            // Caught inside the transaction, as errors thrown from a callback
+            // are wrapped by the transaction helper
+            try {
+                assertions.run();
+                return null;
+            } catch (final AssertionError e) {
+                return e;
+            }
+        }, true, true);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
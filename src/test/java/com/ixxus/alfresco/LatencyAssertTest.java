@@ -0,0 +1,95 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import static com.ixxus.alfresco.PerformanceAssert.assertThatOperation;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.tradeshift.test.remote.Remote;
+import com.tradeshift.test.remote.RemoteTestRunner;
+
+@RunWith(RemoteTestRunner.class)
+@Remote(runnerClass = SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:alfresco/application-context.xml")
+public class LatencyAssertTest extends AbstractServiceTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Before
+    public void setUp() {
+        AuthenticationUtil.setAdminUserAsFullyAuthenticatedUser();
+    }
+
+    @Test
+    public void latency_below_limit() {
+        assertThatOperation(() -> AuthenticationUtil.getFullyAuthenticatedUser()).afterWarmup(5).overIterations(20)
+                .hasMedianBelow(Duration.ofSeconds(10))
+                .hasP99Below(Duration.ofSeconds(10))
+                .hasMaxBelow(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void latency_above_limit_reports_distribution() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("over <10> iterations after <2> warmup iterations");
+        exception.expectMessage("Percentile");
+
+        assertThatOperation(() -> sleep(2)).afterWarmup(2).overIterations(10).hasP99Below(Duration.ofMillis(1));
+    }
+
+    @Test
+    public void each_iteration_runs_in_its_own_transaction() {
+        final String testTransaction = AlfrescoTransactionSupport.getTransactionId();
+        final Set<String> transactions = new HashSet<>();
+
+        final LatencyAssert latencyAssert = assertThatOperation(() -> transactions.add(AlfrescoTransactionSupport.getTransactionId())).afterWarmup(3)
+                .overIterations(7);
+
+        assertThat(latencyAssert.getHistogram().getCount()).isEqualTo(7);
+        assertThat(transactions).hasSize(10).doesNotContain(testTransaction);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void iterations_cannot_change_after_measuring() {
+        final LatencyAssert latencyAssert = assertThatOperation(() -> {
+        }).overIterations(1).hasMaxBelow(Duration.ofSeconds(10));
+
+        latencyAssert.overIterations(2);
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -17,10 +17,15 @@ package com.ixxus.alfresco;
 
 import static com.ixxus.alfresco.NodeAssert.assertThat;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.model.Repository;
@@ -253,6 +258,77 @@ public class NodeAssertTest extends AbstractServiceTest {
         assertThat(nodeRef).doesNotHaveTargetAssociationTo(assoc, nodeRef);
     }
 
+    @Test
+    public void a_chain_of_checks_can_be_evaluated_against_a_snapshot() {
+        nodeService.addAspect(nodeRef, ContentModel.ASPECT_CHECKED_OUT, null);
+        nodeService.setProperty(nodeRef, ContentModel.PROP_COMPANYEMAIL, "my@email.com");
+        assertThat(nodeRef).snapshot()
+                .exists()
+                .isType(ContentModel.TYPE_CONTENT)
+                .hasAspect(ContentModel.ASPECT_CHECKED_OUT)
+                .doesNotHaveAspect(ContentModel.ASPECT_EMAILED)
+                .hasPropertyValue(ContentModel.PROP_COMPANYEMAIL, "my@email.com");
+    }
+
+    @Test
+    public void a_snapshot_does_not_see_later_changes() {
+        final NodeAssert snapshot = assertThat(nodeRef).snapshot();
+        nodeService.addAspect(nodeRef, ContentModel.ASPECT_CHECKED_OUT, null);
+        snapshot.doesNotHaveAspect(ContentModel.ASPECT_CHECKED_OUT);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void a_snapshot_of_a_non_existing_node_is_an_assertion_error() {
+        assertThat(new NodeRef("workspace://SpacesStore/whatevs")).snapshot();
+    }
+
+    @Test
+    public void the_number_of_target_associations_can_be_asserted() {
+        final QName assoc = ContentModel.ASSOC_CONTAINS;
+        nodeService.createAssociation(nodeRef, nodeRef, assoc);
+        assertThat(nodeRef).hasTargetAssociationCount(assoc, 1);
+    }
+
+    @Test
+    public void the_number_of_children_can_be_asserted() {
+        nodeService.setType(nodeRef, ContentModel.TYPE_FOLDER);
+        createChild();
+        createChild();
+        assertThat(nodeRef).hasChildCount(2).hasChildCount(ContentModel.ASSOC_CONTAINS, 2).hasAtMostChildren(2).hasAtLeastChildren(2);
+    }
+
+    @Test
+    public void more_children_than_expected_is_an_assertion_error() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("should have at most <1> children but has more");
+
+        nodeService.setType(nodeRef, ContentModel.TYPE_FOLDER);
+        createChild();
+        createChild();
+        assertThat(nodeRef).hasAtMostChildren(1);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void fewer_children_than_expected_is_an_assertion_error() {
+        nodeService.setType(nodeRef, ContentModel.TYPE_FOLDER);
+        createChild();
+        assertThat(nodeRef).hasChildCount(2);
+    }
+
+    @Test
+    public void child_count_bounds_of_max_int_do_not_overflow() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("should have <" + Integer.MAX_VALUE + "> children but has <1>");
+
+        nodeService.setType(nodeRef, ContentModel.TYPE_FOLDER);
+        createChild();
+        assertThat(nodeRef).hasAtMostChildren(Integer.MAX_VALUE).hasChildCount(Integer.MAX_VALUE);
+    }
+
+    private void createChild() {
+        nodeService.createNode(nodeRef, ContentModel.ASSOC_CONTAINS, ContentModel.ASSOC_CONTAINS, ContentModel.TYPE_CONTENT);
+    }
+
     @Test(expected = AssertionError.class)
     public void ensure_node_without_content_throws_exception() {
         assertThat(nodeRef).hasContent(ContentModel.PROP_CONTENT);
@@ -286,6 +362,48 @@ public class NodeAssertTest extends AbstractServiceTest {
         assertThat(nodeRef).hasContent("different content");
     }
 
+    @Test
+    public void ensure_node_has_content_larger_than_one_chunk() {
+        final String content = String.join("", Collections.nCopies(10000, "content \u00e9\u20ac "));
+        final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        w.setEncoding("UTF-8");
+        w.putContent(content);
+        assertThat(nodeRef).hasContent(content);
+    }
+
+    @Test
+    public void ensure_node_with_different_content_of_the_same_size_reports_the_first_difference() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("differs at byte <3>");
+
+        final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        w.putContent("content");
+        assertThat(nodeRef).hasContent("conTent");
+    }
+
+    @Test
+    public void ensure_node_with_different_content_reports_the_text_around_the_difference() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("differs at byte <56>");
+        exception.expectMessage("expected: <... reader straight to the content in the end of the node, and then...>");
+        exception.expectMessage("but was:  <... reader straight to the content at the end of the node, and then...>");
+
+        final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        w.setEncoding("UTF-8");
+        w.putContent("Some text that takes the reader straight to the content at the end of the node, and then some more");
+        assertThat(nodeRef).hasContent("Some text that takes the reader straight to the content in the end of the node, and then some more");
+    }
+
+    @Test
+    public void ensure_node_with_content_of_a_different_size_reports_both_sizes() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("has <8> bytes of content where <7> were expected");
+
+        final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        w.putContent("content!");
+        assertThat(nodeRef).hasContent("content");
+    }
+
     @Test
     public void ensure_node_content_contains_our_string() {
         final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
@@ -293,10 +411,126 @@ public class NodeAssertTest extends AbstractServiceTest {
         assertThat(nodeRef).containsContent("custom");
     }
 
+    @Test
+    public void ensure_node_content_contains_our_string_after_a_partial_match() {
+        final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        w.putContent("aaab aaaab");
+        assertThat(nodeRef).containsContent("aaaab");
+    }
+
+    @Test
+    public void ensure_node_content_contains_our_string_across_chunks() {
+        final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        w.putContent(String.join("", Collections.nCopies(8190, "x")) + "needle" + String.join("", Collections.nCopies(8190, "x")));
+        assertThat(nodeRef).containsContent("needle").containsContentMatching(Pattern.compile("ne+dle"));
+    }
+
+    @Test
+    public void ensure_node_content_matches_our_pattern() {
+        final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        w.putContent("<status>PUBLISHED</status>");
+        assertThat(nodeRef).containsContentMatching(Pattern.compile("<status>[A-Z]+</status>"));
+    }
+
+    @Test(expected = AssertionError.class)
+    public void ensure_node_content_that_does_not_match_our_pattern_throws_exception() {
+        final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        w.putContent("<status>draft</status>");
+        assertThat(nodeRef).containsContentMatching(Pattern.compile("<status>[A-Z]+</status>"));
+    }
+
     @Test(expected = AssertionError.class)
     public void ensure_node_content_that_does_not_contain_our_string_throws_exception() {
         final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
         w.putContent("content");
         assertThat(nodeRef).containsContent("different content");
     }
+
+    @Test
+    public void ensure_node_content_has_digest() {
+        final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        w.putContent("content");
+        assertThat(nodeRef).hasContentDigest("SHA-256", "ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73")
+                .hasContentDigest("MD5", "9A0364B9E99BB480DD25E1F0284C8555");
+    }
+
+    @Test(expected = AssertionError.class)
+    public void ensure_node_content_with_different_digest_throws_exception() {
+        final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        w.putContent("different content");
+        assertThat(nodeRef).hasContentDigest("SHA-256", "ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73");
+    }
+
+    @Test
+    public void ensure_node_content_matches_digest_of_file() throws IOException {
+        final Path file = Files.createTempFile("NodeAssertTest", ".bin");
+        try {
+            Files.write(file, new byte[] { 0, 1, 2, (byte) 0xff });
+            final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+            w.putContent(file.toFile());
+            assertThat(nodeRef).hasContentDigestMatching(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void ensure_node_sharing_the_content_url_has_same_content() {
+        final ContentWriter w = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        w.putContent("content");
+        final NodeRef copy = createNode();
+        nodeService.setProperty(copy, ContentModel.PROP_CONTENT, nodeService.getProperty(nodeRef, ContentModel.PROP_CONTENT));
+        assertThat(copy).hasSameContentAs(nodeRef);
+    }
+
+    @Test
+    public void ensure_node_with_equal_content_has_same_content() {
+        contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true).putContent("content");
+        final NodeRef copy = createNode();
+        contentService.getWriter(copy, ContentModel.PROP_CONTENT, true).putContent("content");
+        assertThat(copy).hasSameContentAs(nodeRef);
+    }
+
+    @Test
+    public void ensure_node_with_different_content_of_the_same_size_does_not_have_same_content() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("differs at byte <3>");
+
+        contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true).putContent("content");
+        final NodeRef copy = createNode();
+        contentService.getWriter(copy, ContentModel.PROP_CONTENT, true).putContent("conTent");
+        assertThat(copy).hasSameContentAs(nodeRef);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void ensure_node_with_content_of_a_different_size_does_not_have_same_content() {
+        contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true).putContent("content");
+        final NodeRef copy = createNode();
+        contentService.getWriter(copy, ContentModel.PROP_CONTENT, true).putContent("different content");
+        assertThat(copy).hasSameContentAs(nodeRef);
+    }
+
+    @Test
+    public void ensure_nodes_without_content_do_not_have_same_content() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("neither has content");
+
+        assertThat(createNode()).hasSameContentAs(nodeRef);
+    }
+
+    @Test
+    public void ensure_missing_other_node_does_not_have_same_content() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("that node does not exist");
+
+        contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true).putContent("content");
+        final NodeRef deleted = createNode();
+        nodeService.deleteNode(deleted);
+        assertThat(nodeRef).hasSameContentAs(deleted);
+    }
+
+    private NodeRef createNode() {
+        return nodeService.createNode(nodeService.getPrimaryParent(nodeRef).getParentRef(), ContentModel.ASSOC_CONTAINS,
+                ContentModel.ASSOC_CONTAINS, ContentModel.TYPE_CONTENT).getChildRef();
+    }
 }
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import static com.ixxus.alfresco.NodeAssert.assertThatNodes;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.model.Repository;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.PropertyMap;
+import org.assertj.core.api.Condition;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.tradeshift.test.remote.Remote;
+import com.tradeshift.test.remote.RemoteTestRunner;
+
+@RunWith(RemoteTestRunner.class)
+@Remote(runnerClass = SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:alfresco/application-context.xml")
+public class NodesAssertTest extends AbstractServiceTest {
+
+    private static final int NUMBER_OF_NODES = 5;
+
+    private final List<NodeRef> nodeRefs = new ArrayList<>();
+
+    @Autowired
+    @Qualifier("NodeService")
+    private NodeService nodeService;
+
+    @Autowired
+    private Repository repository;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Before
+    public void setUp() {
+        AuthenticationUtil.setAdminUserAsFullyAuthenticatedUser();
+        for (int i = 0; i < NUMBER_OF_NODES; i++) {
+            final String nodeName = "NodesAssertTest-" + UUID.randomUUID();
+            final PropertyMap propertyMap = new PropertyMap();
+            propertyMap.put(ContentModel.PROP_NAME, nodeName);
+            propertyMap.put(ContentModel.PROP_COMPANYEMAIL, "my@email.com");
+            nodeRefs.add(nodeService.createNode(repository.getCompanyHome(), ContentModel.ASSOC_CONTAINS,
+                    QName.createQName(ContentModel.USER_MODEL_URI, nodeName), ContentModel.TYPE_CONTENT, propertyMap).getChildRef());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (final NodeRef nodeRef : nodeRefs) {
+            if (nodeService.exists(nodeRef)) {
+                nodeService.deleteNode(nodeRef);
+            }
+        }
+    }
+
+    @Test
+    public void all_nodes_can_be_checked_at_once() {
+        nodeRefs.forEach(nodeRef -> nodeService.addAspect(nodeRef, ContentModel.ASPECT_CHECKED_OUT, null));
+        final Condition<Serializable> endsWithDomain = new Condition<>(value -> ((String) value).endsWith("@email.com"), "Should end with '@email.com'");
+        assertThatNodes(nodeRefs).withBatchSize(2)
+                .allExist()
+                .allAreType(ContentModel.TYPE_CONTENT)
+                .allHaveAspect(ContentModel.ASPECT_CHECKED_OUT)
+                .noneHaveAspect(ContentModel.ASPECT_EMAILED)
+                .allHavePropertyValue(ContentModel.PROP_COMPANYEMAIL, "my@email.com")
+                .allPropertyValues(ContentModel.PROP_COMPANYEMAIL, endsWithDomain);
+    }
+
+    @Test
+    public void every_offending_node_is_reported() {
+        nodeService.addAspect(nodeRefs.get(0), ContentModel.ASPECT_CHECKED_OUT, null);
+        exception.expect(AssertionError.class);
+        exception.expectMessage("but <4> did not");
+        exception.expectMessage(nodeRefs.get(1).toString());
+        exception.expectMessage(nodeRefs.get(4).toString());
+
+        assertThatNodes(nodeRefs).allHaveAspect(ContentModel.ASPECT_CHECKED_OUT);
+    }
+
+    @Test
+    public void duplicated_nodes_are_reported_for_every_occurrence() {
+        nodeRefs.add(nodeRefs.get(0));
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Expected all <6> nodes");
+        exception.expectMessage("but <6> did not");
+
+        assertThatNodes(nodeRefs).withBatchSize(2).allHaveAspect(ContentModel.ASPECT_CHECKED_OUT);
+    }
+
+    @Test
+    public void multilingual_properties_are_checked_as_text() {
+        nodeRefs.forEach(nodeRef -> nodeService.setProperty(nodeRef, ContentModel.PROP_TITLE, "A title"));
+        assertThatNodes(nodeRefs).allHavePropertyValue(ContentModel.PROP_TITLE, "A title");
+    }
+
+    @Test(expected = AssertionError.class)
+    public void a_non_existing_node_is_an_assertion_error() {
+        nodeRefs.add(new NodeRef("workspace://SpacesStore/whatevs"));
+        assertThatNodes(nodeRefs).allExist();
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.model.Repository;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.transaction.TransactionService;
+import org.assertj.core.api.SoftAssertionError;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.tradeshift.test.remote.Remote;
+import com.tradeshift.test.remote.RemoteTestRunner;
+
+/**
+ * The checks run in their own transactions, so the fixture is committed
+ * rather than created in a test transaction.
+ */
+@RunWith(RemoteTestRunner.class)
+@Remote(runnerClass = SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:alfresco/application-context.xml")
+public class ParallelSoftAssertionsTest {
+
+    private static final int NUMBER_OF_NODES = 20;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Autowired
+    @Qualifier("NodeService")
+    private NodeService nodeService;
+
+    @Autowired
+    private Repository repository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    private final List<NodeRef> nodeRefs = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        AuthenticationUtil.setAdminUserAsFullyAuthenticatedUser();
+        transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+            for (int i = 0; i < NUMBER_OF_NODES; i++) {
+                final NodeRef nodeRef = nodeService.createNode(repository.getCompanyHome(), ContentModel.ASSOC_CONTAINS,
+                        ContentModel.ASSOC_CONTAINS, ContentModel.TYPE_CONTENT).getChildRef();
+                if ((i % 2) == 0) {
+                    nodeService.addAspect(nodeRef, ContentModel.ASPECT_CHECKED_OUT, null);
+                }
+                nodeRefs.add(nodeRef);
+            }
+            return null;
+        }, false, true);
+    }
+
+    @After
+    public void tearDown() {
+        transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+            nodeRefs.forEach(nodeService::deleteNode);
+            return null;
+        }, false, true);
+    }
+
+    @Test
+    public void passing_checks_do_not_fail() {
+        final ParallelSoftAssertions softly = new ParallelSoftAssertions(4);
+        nodeRefs.forEach(nodeRef -> softly.check(nodeRef, node -> node.exists().isType(ContentModel.TYPE_CONTENT)));
+        softly.assertAll();
+    }
+
+    @Test
+    public void all_failures_are_reported_together() {
+        exception.expect(SoftAssertionError.class);
+        exception.expectMessage(nodeRefs.get(1).toString());
+        exception.expectMessage(nodeRefs.get(NUMBER_OF_NODES - 1).toString());
+
+        final ParallelSoftAssertions softly = new ParallelSoftAssertions(4);
+        nodeRefs.forEach(nodeRef -> softly.check(nodeRef, node -> node.hasAspect(ContentModel.ASPECT_CHECKED_OUT)));
+        softly.assertAll();
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import static com.ixxus.alfresco.PerformanceAssert.assertThatCalls;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.model.Repository;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.alfresco.service.cmr.repository.MimetypeService;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.PropertyMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.tradeshift.test.remote.Remote;
+import com.tradeshift.test.remote.RemoteTestRunner;
+
+@RunWith(RemoteTestRunner.class)
+@Remote(runnerClass = SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:alfresco/application-context.xml")
+public class PerformanceAssertTest extends AbstractServiceTest {
+
+    private static final int NUMBER_OF_NODES = 3;
+
+    private static final String CONTENT = "Content read by the code under test";
+
+    private final List<NodeRef> nodeRefs = new ArrayList<>();
+
+    @Autowired
+    @Qualifier("NodeService")
+    private NodeService nodeService;
+
+    @Autowired
+    @Qualifier("ContentService")
+    private ContentService contentService;
+
+    @Autowired
+    private Repository repository;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Before
+    public void setUp() {
+        AuthenticationUtil.setAdminUserAsFullyAuthenticatedUser();
+        for (int i = 0; i < NUMBER_OF_NODES; i++) {
+            final String nodeName = "PerformanceAssertTest-" + UUID.randomUUID();
+            final PropertyMap propertyMap = new PropertyMap();
+            propertyMap.put(ContentModel.PROP_NAME, nodeName);
+            final NodeRef nodeRef = nodeService.createNode(repository.getCompanyHome(), ContentModel.ASSOC_CONTAINS,
+                    QName.createQName(ContentModel.USER_MODEL_URI, nodeName), ContentModel.TYPE_CONTENT, propertyMap).getChildRef();
+            final ContentWriter writer = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+            writer.setMimetype(MimetypeService.MIMETYPE_TEXT_PLAIN);
+            writer.setEncoding(StandardCharsets.UTF_8.name());
+            writer.putContent(CONTENT);
+            nodeRefs.add(nodeRef);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        nodeRefs.forEach(nodeService::deleteNode);
+    }
+
+    @Test
+    public void calls_within_budget() {
+        assertThatCalls(() -> nodeService.getProperty(nodeRefs.get(0), ContentModel.PROP_NAME))
+                .makesAtMostCalls(NodeService.class, "getProperty", 1)
+                .makesAtMostCalls(1)
+                .makesNoCalls(NodeService.class, "getProperties")
+                .readsAtMostBytes(0);
+    }
+
+    @Test
+    public void calls_over_budget() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Expected at most <1> calls to NodeService.getProperty, but <2> were made");
+
+        assertThatCalls(() -> {
+            nodeService.getProperty(nodeRefs.get(0), ContentModel.PROP_NAME);
+            nodeService.getProperty(nodeRefs.get(0), ContentModel.PROP_TITLE);
+        }).makesAtMostCalls(NodeService.class, "getProperty", 1);
+    }
+
+    @Test
+    public void calls_per_unit_within_budget() {
+        assertThatCalls(() -> nodeRefs.forEach(nodeRef -> nodeService.getProperty(nodeRef, ContentModel.PROP_NAME))).per(NUMBER_OF_NODES)
+                .makesAtMostCalls(NodeService.class, "getProperty", 1);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void calls_per_unit_over_budget() {
+        assertThatCalls(() -> nodeRefs.forEach(nodeRef -> {
+            nodeService.getProperty(nodeRef, ContentModel.PROP_NAME);
+            nodeService.getProperty(nodeRef, ContentModel.PROP_TITLE);
+        })).per(NUMBER_OF_NODES).makesAtMostCalls(NodeService.class, "getProperty", 1);
+    }
+
+    @Test
+    public void calls_outside_the_block_are_not_recorded() {
+        nodeService.getProperty(nodeRefs.get(0), ContentModel.PROP_NAME);
+
+        assertThatCalls(() -> {
+        }).makesAtMostCalls(0);
+    }
+
+    @Test
+    public void content_read_within_budget() {
+        final int size = CONTENT.getBytes(StandardCharsets.UTF_8).length;
+
+        assertThatCalls(() -> contentService.getReader(nodeRefs.get(0), ContentModel.PROP_CONTENT).getContentString())
+                .makesAtMostCalls(ContentService.class, "getReader", 1)
+                .readsAtMostBytes(size);
+    }
+
+    @Test
+    public void content_read_over_budget() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Expected at most <0> content bytes to be read");
+
+        assertThatCalls(() -> contentService.getReader(nodeRefs.get(0), ContentModel.PROP_CONTENT).getContentString()).readsAtMostBytes(0);
+    }
+}
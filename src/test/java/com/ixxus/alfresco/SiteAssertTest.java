@@ -20,19 +20,25 @@ import com.tradeshift.test.remote.RemoteTestRunner;
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.model.Repository;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.site.SiteModel;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.security.AuthorityService;
+import org.alfresco.service.cmr.security.AuthorityType;
 import org.alfresco.service.cmr.site.SiteInfo;
 import org.alfresco.service.cmr.site.SiteService;
 import org.alfresco.service.cmr.site.SiteVisibility;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.UUID;
 
@@ -56,6 +62,13 @@ public class SiteAssertTest {
     @Autowired
     private Repository repository;
 
+    @Autowired
+    @Qualifier("AuthorityService")
+    private AuthorityService authorityService;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
     private SiteInfo testSiteInfo;
 
     @Before
@@ -129,4 +142,86 @@ public class SiteAssertTest {
         assertThat(testSiteInfo).doesNotHaveContainer("forums");
     }
 
+    @Test
+    public void test_has_members_through_nested_groups() {
+        final String[] groups = createNestedGroups();
+        assertThat(testSiteInfo)
+                .hasMembers(Arrays.asList(AuthenticationUtil.getAdminUserName(), groups[0], groups[1], "guest"))
+                .hasMemberWithRole("guest", SiteModel.SITE_COLLABORATOR)
+                .hasMemberWithRole(AuthenticationUtil.getAdminUserName(), SiteModel.SITE_MANAGER);
+    }
+
+    @Test
+    public void test_has_exactly_members_lists_direct_members() {
+        final String[] groups = createNestedGroups();
+        assertThat(testSiteInfo).hasExactlyMembers(AuthenticationUtil.getAdminUserName(), groups[0]);
+    }
+
+    @Test
+    public void test_has_members_reports_every_missing_authority() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("[nobody1, nobody2]");
+        assertThat(testSiteInfo).hasMembers(AuthenticationUtil.getAdminUserName(), "nobody1", "nobody2");
+    }
+
+    @Test
+    public void test_has_member_with_other_role() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("to have role <" + SiteModel.SITE_CONSUMER + ">");
+        createNestedGroups();
+        assertThat(testSiteInfo).hasMemberWithRole("guest", SiteModel.SITE_CONSUMER);
+    }
+
+    @Test
+    public void test_has_member_with_highest_of_direct_and_group_roles() {
+        createNestedGroups();
+        siteService.setMembership(testSiteInfo.getShortName(), AuthenticationUtil.getGuestUserName(), SiteModel.SITE_CONSUMER);
+        assertThat(testSiteInfo).hasMemberWithRole("guest", SiteModel.SITE_COLLABORATOR);
+    }
+
+    @Test
+    public void test_has_member_with_lower_direct_role_fails() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("but had <" + SiteModel.SITE_COLLABORATOR + ">");
+        createNestedGroups();
+        siteService.setMembership(testSiteInfo.getShortName(), AuthenticationUtil.getGuestUserName(), SiteModel.SITE_CONSUMER);
+        assertThat(testSiteInfo).hasMemberWithRole("guest", SiteModel.SITE_CONSUMER);
+    }
+
+    @Test
+    public void test_contains_nodes_of_one_folder() {
+        final NodeRef folder = nodeService.createNode(getDoclib(testSiteInfo), ContentModel.ASSOC_CONTAINS, ContentModel.ASSOC_CONTAINS,
+                ContentModel.TYPE_FOLDER).getChildRef();
+        assertThat(testSiteInfo).containsNodes(Arrays.asList(folder, createNode(folder), createNode(folder), createNode(getDoclib(testSiteInfo))));
+    }
+
+    @Test
+    public void test_contains_none_of_the_nodes_of_other_sites() {
+        final NodeRef otherSiteNode = createNode(getDoclib(createTestSite()));
+        assertThat(testSiteInfo).containsNoneOf(Arrays.asList(repository.getCompanyHome(), otherSiteNode));
+    }
+
+    @Test
+    public void test_contains_nodes_reports_every_node_outside_the_site() {
+        final NodeRef otherSiteNode = createNode(getDoclib(createTestSite()));
+        exception.expect(AssertionError.class);
+        exception.expectMessage("<2> did not");
+        exception.expectMessage(repository.getCompanyHome() + " is not in any site");
+        exception.expectMessage(otherSiteNode + " is in site");
+        assertThat(testSiteInfo).containsNodes(Arrays.asList(createNode(getDoclib(testSiteInfo)), repository.getCompanyHome(), otherSiteNode));
+    }
+
+    /**
+     * @return a group made a collaborator of the test site, and a group inside
+     *         it containing the guest user
+     */
+    private String[] createNestedGroups() {
+        final String suffix = UUID.randomUUID().toString();
+        final String parent = authorityService.createAuthority(AuthorityType.GROUP, "parent-" + suffix);
+        final String child = authorityService.createAuthority(AuthorityType.GROUP, "child-" + suffix);
+        authorityService.addAuthority(parent, child);
+        authorityService.addAuthority(child, AuthenticationUtil.getGuestUserName());
+        siteService.setMembership(testSiteInfo.getShortName(), parent, SiteModel.SITE_COLLABORATOR);
+        return new String[] { parent, child };
+    }
 }
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco;
+
+import static com.ixxus.alfresco.StressAssert.assertThatConcurrently;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.model.Repository;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.transaction.TransactionService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.tradeshift.test.remote.Remote;
+import com.tradeshift.test.remote.RemoteTestRunner;
+
+/**
+ * The action runs in its own transactions, so the fixture is committed
+ * rather than created in a test transaction.
+ */
+@RunWith(RemoteTestRunner.class)
+@Remote(runnerClass = SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:alfresco/application-context.xml")
+public class StressAssertTest {
+
+    private static final int THREADS = 4;
+
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Autowired
+    @Qualifier("NodeService")
+    private NodeService nodeService;
+
+    @Autowired
+    private Repository repository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    private NodeRef nodeRef;
+
+    @Before
+    public void setUp() {
+        AuthenticationUtil.setAdminUserAsFullyAuthenticatedUser();
+        nodeRef = transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+            final NodeRef counter = nodeService.createNode(repository.getCompanyHome(), ContentModel.ASSOC_CONTAINS, ContentModel.ASSOC_CONTAINS,
+                    ContentModel.TYPE_CONTENT).getChildRef();
+            nodeService.setProperty(counter, ContentModel.PROP_TITLE, "0");
+            return counter;
+        }, false, true);
+    }
+
+    @After
+    public void tearDown() {
+        transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+            nodeService.deleteNode(nodeRef);
+            return null;
+        }, false, true);
+    }
+
+    @Test
+    public void concurrent_updates_are_retried_not_lost() {
+        assertThatConcurrently(() -> {
+            final int count = Integer.parseInt((String) nodeService.getProperty(nodeRef, ContentModel.PROP_TITLE));
+            nodeService.setProperty(nodeRef, ContentModel.PROP_TITLE, String.valueOf(count + 1));
+            return null;
+        }).withThreads(THREADS).overIterations(ITERATIONS)
+                .hasNoUnretriedFailures()
+                .hasThroughputAbove(0)
+                .hasFinalState(nodeRef, node -> node.hasPropertyValue(ContentModel.PROP_TITLE, String.valueOf(THREADS * ITERATIONS)));
+    }
+
+    @Test
+    public void failed_iterations_are_reported() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("Expected every iteration to commit, but <" + (THREADS * ITERATIONS) + "> failed");
+
+        assertThatConcurrently(() -> {
+            throw new IllegalStateException("Broken behaviour");
+        }).withThreads(THREADS).overIterations(ITERATIONS).hasNoUnretriedFailures();
+    }
+
+    @Test
+    public void retries_are_counted() {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final StressAssert stressAssert = assertThatConcurrently(() -> {
+            // Every other attempt fails with a retryable exception
+            if ((attempts.incrementAndGet() % 2) == 1) {
+                throw new ConcurrencyFailureException("Simulated conflict");
+            }
+            return null;
+        }).withThreads(1).overIterations(ITERATIONS).hasNoUnretriedFailures();
+
+        assertThat(stressAssert.getResult().getRetries()).isEqualTo(ITERATIONS);
+        assertThat(stressAssert.getResult().getRetryRate()).isEqualTo(1d);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void retry_rate_above_limit() {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertThatConcurrently(() -> {
+            if ((attempts.incrementAndGet() % 2) == 1) {
+                throw new ConcurrencyFailureException("Simulated conflict");
+            }
+            return null;
+        }).withThreads(1).overIterations(ITERATIONS).retryRateBelow(0.5);
+    }
+}
@@ -94,6 +94,16 @@ public class WorkflowAssertTest extends AbstractServiceTest {
                         .hasPackageItemAttached(unknownNode);
     }
 
+    @Test
+    public void test_failure_lists_missing_and_unexpected_items() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("the items [" + unknownNode + "] are missing");
+        exception.expectMessage("the items [" + attachment2 + "] are unexpected");
+
+        WorkflowAssert.assertThat(workflowInstance)
+                        .hasPackageItemsAttached(ImmutableSet.of(attachment1, unknownNode));
+    }
+
     @Test
     public void test_failure_when_workflow_has_incorrect_nr_of_items_attached() {
         exception.expect(AssertionError.class);
@@ -102,6 +112,31 @@ public class WorkflowAssertTest extends AbstractServiceTest {
                         .hasNumberOfPackageItems(1);
     }
 
+    @Test
+    public void test_upper_bound_on_the_nr_of_items_attached() {
+        WorkflowAssert.assertThat(workflowInstance)
+                        .hasAtMostPackageItems(2)
+                        .hasAtMostPackageItems(3);
+    }
+
+    @Test
+    public void test_nr_of_items_bounds_of_max_int_do_not_overflow() {
+        exception.expect(AssertionError.class);
+        exception.expectMessage("expected <" + Integer.MAX_VALUE + "> but was <2>");
+
+        WorkflowAssert.assertThat(workflowInstance)
+                        .hasAtMostPackageItems(Integer.MAX_VALUE)
+                        .hasNumberOfPackageItems(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void test_failure_when_workflow_has_more_items_attached_than_allowed() {
+        exception.expect(AssertionError.class);
+
+        WorkflowAssert.assertThat(workflowInstance)
+                        .hasAtMostPackageItems(1);
+    }
+
     @Test
     public void test_failure_when_workflow_has_different_initiator() {
         exception.expect(AssertionError.class);
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.memory;
+
+import static com.ixxus.alfresco.NodeAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.ixxus.alfresco.AssertionContext;
+import com.ixxus.alfresco.AssertionContextRule;
+import com.ixxus.alfresco.NodeAssert;
+
+/**
+ * Two repositories with a node each, checked from threads bound to one or
+ * the other
+ */
+public class AssertionContextTest {
+
+    private final InMemoryServices firstServices = new InMemoryServices();
+
+    private final InMemoryServices secondServices = new InMemoryServices();
+
+    private final AssertionContext firstContext = firstServices.createAssertionContext();
+
+    private final AssertionContext secondContext = secondServices.createAssertionContext();
+
+    @Rule
+    public AssertionContextRule context = new AssertionContextRule(() -> firstContext);
+
+    private NodeRef firstNode;
+
+    private NodeRef secondNode;
+
+    @Before
+    public void setUp() {
+        firstNode = createNode(firstServices.getNodeService());
+        secondNode = createNode(secondServices.getNodeService());
+    }
+
+    @After
+    public void tearDown() {
+        firstServices.clear();
+        secondServices.clear();
+    }
+
+    @Test
+    public void rule_binds_the_context_to_the_test_thread() {
+        assertThat(firstNode).exists();
+        assertThat(secondNode).doesNotExist();
+    }
+
+    @Test
+    public void binding_is_restored_when_closed() {
+        try (AssertionContext.Binding binding = secondContext.bind()) {
+            assertThat(secondNode).exists();
+            assertThat(firstNode).doesNotExist();
+        }
+        assertThat(firstNode).exists();
+    }
+
+    @Test
+    public void assertion_keeps_the_context_it_was_created_in() {
+        final NodeAssert nodeAssert;
+        try (AssertionContext.Binding binding = secondContext.bind()) {
+            nodeAssert = assertThat(secondNode);
+        }
+        nodeAssert.exists();
+    }
+
+    @Test
+    public void threads_use_their_own_context_concurrently() throws Exception {
+        final int tasks = 200;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                final boolean first = (i % 2) == 0;
+                final AssertionContext taskContext = first ? firstContext : secondContext;
+                final Callable<Void> task = () -> {
+                    start.await();
+                    assertThat(first ? firstNode : secondNode).exists();
+                    assertThat(first ? secondNode : firstNode).doesNotExist();
+                    return null;
+                };
+                results.add(executor.submit(taskContext.wrap(task)));
+            }
+            start.countDown();
+            for (final Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void static_setters_set_the_default_context() throws Exception {
+        final NodeService previous = AssertionContext.getDefault().getNodeService();
+        final ExecutorService unboundThread = Executors.newSingleThreadExecutor();
+        try {
+            NodeAssert.setNodeService(secondServices.getNodeService());
+            final Callable<Void> unbound = () -> {
+                assertThat(secondNode).exists();
+                return null;
+            };
+            unboundThread.submit(unbound).get();
+        } finally {
+            unboundThread.shutdownNow();
+            NodeAssert.setNodeService(previous);
+        }
+    }
+
+    private static NodeRef createNode(final NodeService nodeService) {
+        final NodeRef root = nodeService.getRootNode(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE);
+        return nodeService.createNode(root, ContentModel.ASSOC_CHILDREN, ContentModel.ASSOC_CHILDREN, ContentModel.TYPE_CONTENT).getChildRef();
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.memory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.alfresco.repo.content.ContentContext;
+import org.alfresco.repo.content.filestore.FileContentStore;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InMemoryContentStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void content_is_read_back_from_the_heap() {
+        assertRoundTrip(new InMemoryContentStore());
+    }
+
+    @Test
+    public void content_is_read_back_from_direct_buffers() {
+        assertRoundTrip(new InMemoryContentStore(true));
+    }
+
+    @Test
+    public void content_of_the_fallback_store_is_read_but_not_deleted() throws Exception {
+        final FileContentStore fileContentStore = new FileContentStore(folder.getRoot().getAbsolutePath());
+        final ContentWriter writer = fileContentStore.getWriter(ContentContext.NULL_CONTEXT);
+        writer.putContent("bootstrapped content");
+
+        final InMemoryContentStore store = new InMemoryContentStore();
+        store.setFallbackStore(fileContentStore);
+
+        assertThat(store.exists(writer.getContentUrl())).isTrue();
+        assertThat(store.getReader(writer.getContentUrl()).getContentString()).isEqualTo("bootstrapped content");
+        assertThat(store.delete(writer.getContentUrl())).isFalse();
+        assertThat(fileContentStore.exists(writer.getContentUrl())).isTrue();
+    }
+
+    @Test
+    public void content_larger_than_the_initial_buffer_is_read_back_from_direct_buffers() {
+        final InMemoryContentStore store = new InMemoryContentStore(true);
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append(i).append('\n');
+        }
+        final ContentWriter writer = store.getWriter(ContentContext.NULL_CONTEXT);
+        writer.setEncoding("UTF-8");
+        writer.putContent(text.toString());
+
+        assertThat(store.getReader(writer.getContentUrl()).getSize()).isEqualTo(text.length());
+        assertThat(store.getReader(writer.getContentUrl()).getContentString()).isEqualTo(text.toString());
+    }
+
+    @Test
+    public void content_is_written_to_the_fallback_store_until_started() {
+        final FileContentStore fileContentStore = new FileContentStore(folder.getRoot().getAbsolutePath());
+        final InMemoryContentStore store = new InMemoryContentStore();
+        store.setFallbackStore(fileContentStore);
+
+        final ContentWriter bootstrapWriter = store.getWriter(ContentContext.NULL_CONTEXT);
+        bootstrapWriter.putContent("bootstrapped content");
+        store.start();
+        final ContentWriter testWriter = store.getWriter(ContentContext.NULL_CONTEXT);
+        testWriter.putContent("test content");
+
+        assertThat(bootstrapWriter.getContentUrl()).doesNotStartWith(InMemoryContentStore.PROTOCOL + "://");
+        assertThat(fileContentStore.getReader(bootstrapWriter.getContentUrl()).getContentString()).isEqualTo("bootstrapped content");
+        assertThat(testWriter.getContentUrl()).startsWith(InMemoryContentStore.PROTOCOL + "://");
+        assertThat(store.getReader(testWriter.getContentUrl()).getContentString()).isEqualTo("test content");
+    }
+
+    private static void assertRoundTrip(final InMemoryContentStore store) {
+        final ContentWriter writer = store.getWriter(ContentContext.NULL_CONTEXT);
+        writer.setEncoding("UTF-8");
+        writer.putContent("my custom content");
+
+        assertThat(writer.getContentUrl()).startsWith(InMemoryContentStore.PROTOCOL + "://");
+        assertThat(store.exists(writer.getContentUrl())).isTrue();
+        assertThat(store.getReader(writer.getContentUrl()).getSize()).isEqualTo(17L);
+        // Read twice, as readers must not consume the stored buffer
+        assertThat(store.getReader(writer.getContentUrl()).getContentString()).isEqualTo("my custom content");
+        assertThat(store.getReader(writer.getContentUrl()).getContentString()).isEqualTo("my custom content");
+
+        assertThat(store.delete(writer.getContentUrl())).isTrue();
+        assertThat(store.exists(writer.getContentUrl())).isFalse();
+    }
+}
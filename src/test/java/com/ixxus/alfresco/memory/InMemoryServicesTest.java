@@ -0,0 +1,134 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.memory;
+
+import static com.ixxus.alfresco.NodeAssert.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.cmr.site.SiteInfo;
+import org.alfresco.service.cmr.site.SiteService;
+import org.alfresco.service.cmr.site.SiteVisibility;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.ixxus.alfresco.SiteAssert;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:alfresco/module/alfresco-test-assertions/in-memory-context.xml")
+public class InMemoryServicesTest {
+
+    @Autowired
+    private InMemoryServices inMemoryServices;
+
+    @Autowired
+    @Qualifier("NodeService")
+    private NodeService nodeService;
+
+    @Autowired
+    @Qualifier("ContentService")
+    private ContentService contentService;
+
+    @Autowired
+    @Qualifier("SiteService")
+    private SiteService siteService;
+
+    private NodeRef nodeRef;
+
+    @Before
+    public void setUp() {
+        final NodeRef root = nodeService.getRootNode(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE);
+        nodeRef = nodeService.createNode(root, ContentModel.ASSOC_CHILDREN, ContentModel.ASSOC_CHILDREN, ContentModel.TYPE_CONTENT)
+                .getChildRef();
+    }
+
+    @After
+    public void tearDown() {
+        inMemoryServices.clear();
+    }
+
+    @Test
+    public void node_assertions_run_against_the_in_memory_node_service() {
+        nodeService.addAspect(nodeRef, ContentModel.ASPECT_CHECKED_OUT, null);
+        nodeService.setProperty(nodeRef, ContentModel.PROP_COMPANYEMAIL, "my@email.com");
+        assertThat(nodeRef).exists()
+                .isType(ContentModel.TYPE_CONTENT)
+                .hasAspect(ContentModel.ASPECT_CHECKED_OUT)
+                .hasPropertyValue(ContentModel.PROP_COMPANYEMAIL, "my@email.com");
+    }
+
+    @Test
+    public void deleted_nodes_do_not_exist() {
+        nodeService.deleteNode(nodeRef);
+        assertThat(nodeRef).doesNotExist();
+    }
+
+    @Test
+    public void content_assertions_run_against_the_in_memory_content_store() {
+        contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true).putContent("my custom content");
+        assertThat(nodeRef).hasContent().hasContent("my custom content").containsContent("custom");
+    }
+
+    @Test
+    public void site_assertions_run_against_the_in_memory_site_service() {
+        final SiteInfo siteInfo = siteService.createSite("preset", "in-memory-site", "title", "description", SiteVisibility.PUBLIC);
+        final NodeRef doclib = siteService.createContainer(siteInfo.getShortName(), SiteService.DOCUMENT_LIBRARY, ContentModel.TYPE_FOLDER,
+                Collections.emptyMap());
+        final NodeRef document = nodeService.createNode(doclib, ContentModel.ASSOC_CONTAINS, ContentModel.ASSOC_CONTAINS,
+                ContentModel.TYPE_CONTENT).getChildRef();
+        siteService.setMembership(siteInfo.getShortName(), "someone", "SiteConsumer");
+
+        SiteAssert.assertThat("in-memory-site")
+                .isSitePreset("preset")
+                .hasContainer(SiteService.DOCUMENT_LIBRARY)
+                .isNodeInSite(document)
+                .isNodeNotInSite(nodeRef)
+                .containsNodes(Collections.singletonList(document))
+                .containsNoneOf(Collections.singletonList(nodeRef))
+                .isMember("someone");
+    }
+
+    @Test
+    public void properties_set_to_null_are_kept() {
+        nodeService.setProperty(nodeRef, ContentModel.PROP_TITLE, null);
+
+        assertThat(nodeService.getProperties(nodeRef)).containsEntry(ContentModel.PROP_TITLE, null);
+        assertThat(nodeService.getProperty(nodeRef, ContentModel.PROP_TITLE)).isNull();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void members_cannot_be_listed_with_collapsed_groups() {
+        siteService.createSite("preset", "in-memory-site", "title", "description", SiteVisibility.PUBLIC);
+        siteService.listMembers("in-memory-site", null, null, 0, true);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void unsupported_service_methods_fail_loudly() {
+        nodeService.getPath(nodeRef);
+    }
+}
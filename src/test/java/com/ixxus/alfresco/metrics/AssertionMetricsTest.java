@@ -0,0 +1,149 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.model.Repository;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.alfresco.service.cmr.repository.MimetypeService;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.PropertyMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.ixxus.alfresco.AbstractServiceTest;
+import com.ixxus.alfresco.AssertionCache;
+import com.ixxus.alfresco.NodeAssert;
+import com.tradeshift.test.remote.Remote;
+import com.tradeshift.test.remote.RemoteTestRunner;
+
+@RunWith(RemoteTestRunner.class)
+@Remote(runnerClass = SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:alfresco/application-context.xml")
+public class AssertionMetricsTest extends AbstractServiceTest {
+
+    private static final String CONTENT = "Some content for the metrics";
+
+    @Autowired
+    @Qualifier("NodeService")
+    private NodeService nodeService;
+
+    @Autowired
+    @Qualifier("ContentService")
+    private ContentService contentService;
+
+    @Autowired
+    @Qualifier("assertions.NodeService")
+    private NodeService assertionsNodeService;
+
+    @Autowired
+    private Repository repository;
+
+    private NodeRef nodeRef;
+
+    private boolean wasEnabled;
+
+    private boolean wasCacheEnabled;
+
+    @Before
+    public void setUp() {
+        AuthenticationUtil.setAdminUserAsFullyAuthenticatedUser();
+        final String nodeName = "AssertionMetricsTest-" + UUID.randomUUID();
+        final PropertyMap propertyMap = new PropertyMap();
+        propertyMap.put(ContentModel.PROP_NAME, nodeName);
+        nodeRef = nodeService.createNode(repository.getCompanyHome(), ContentModel.ASSOC_CONTAINS,
+                QName.createQName(ContentModel.USER_MODEL_URI, nodeName), ContentModel.TYPE_CONTENT, propertyMap).getChildRef();
+        final ContentWriter writer = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        writer.setMimetype(MimetypeService.MIMETYPE_TEXT_PLAIN);
+        writer.setEncoding(StandardCharsets.UTF_8.name());
+        writer.putContent(CONTENT);
+
+        // Service calls are counted as made, not served from the cache
+        wasCacheEnabled = AssertionCache.isEnabled();
+        AssertionCache.setEnabled(false);
+        wasEnabled = AssertionMetrics.isEnabled();
+        AssertionMetrics.setEnabled(true);
+        AssertionMetrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        AssertionMetrics.reset();
+        AssertionMetrics.setEnabled(wasEnabled);
+        AssertionCache.setEnabled(wasCacheEnabled);
+        nodeService.deleteNode(nodeRef);
+    }
+
+    @Test
+    public void records_calls_against_the_assertion_called() {
+        NodeAssert.assertThat(nodeRef).hasAspect(ContentModel.ASPECT_AUDITABLE);
+
+        final AssertionStats stats = AssertionMetrics.getStats("NodeAssert.hasAspect");
+        assertThat(stats).isNotNull();
+        assertThat(stats.getCalls("NodeService.hasAspect")).isEqualTo(1);
+        assertThat(stats.getTotalNanos()).isPositive();
+        assertThat(AssertionMetrics.getStats("NodeAssert.exists")).isNull();
+    }
+
+    @Test
+    public void records_content_bytes_read() {
+        NodeAssert.assertThat(nodeRef).hasContent(CONTENT);
+
+        final AssertionStats stats = AssertionMetrics.getStats("NodeAssert.hasContent");
+        assertThat(stats.getCalls("ContentService.getReader")).isEqualTo(1);
+        assertThat(stats.getBytesRead()).isEqualTo(CONTENT.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    public void records_calls_after_an_assertion_as_other() {
+        NodeAssert.assertThat(nodeRef).hasAspect(ContentModel.ASPECT_AUDITABLE);
+        assertionsNodeService.exists(nodeRef);
+
+        assertThat(AssertionMetrics.getStats("NodeAssert.hasAspect").getCalls("NodeService.exists")).isEqualTo(1);
+        assertThat(AssertionMetrics.getStats(AssertionMetrics.OTHER).getCalls("NodeService.exists")).isEqualTo(1);
+    }
+
+    @Test
+    public void records_nothing_when_disabled() {
+        AssertionMetrics.setEnabled(false);
+
+        NodeAssert.assertThat(nodeRef).exists().hasAspect(ContentModel.ASPECT_AUDITABLE);
+
+        assertThat(AssertionMetrics.getStats()).isEmpty();
+    }
+
+    @Test
+    public void report_lists_each_assertion() {
+        NodeAssert.assertThat(nodeRef).exists().hasAspect(ContentModel.ASPECT_AUDITABLE);
+
+        assertThat(AssertionMetrics.report()).contains("NodeAssert.exists").contains("NodeAssert.hasAspect");
+    }
+}
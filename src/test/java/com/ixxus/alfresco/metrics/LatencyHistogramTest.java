@@ -0,0 +1,69 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void small_values_are_exact() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(100);
+        assertThat(histogram.getValueAtPercentile(50)).isEqualTo(50);
+        assertThat(histogram.getValueAtPercentile(99)).isEqualTo(99);
+        assertThat(histogram.getMin()).isEqualTo(1);
+        assertThat(histogram.getMax()).isEqualTo(100);
+    }
+
+    @Test
+    public void large_values_are_within_relative_precision() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(5000000, within(5000000 * 0.016));
+        assertThat((double) histogram.getValueAtPercentile(99)).isCloseTo(9900000, within(9900000 * 0.016));
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(10000000);
+    }
+
+    @Test
+    public void bucket_indexes_are_contiguous() {
+        for (long value = 1; value < 1 << 20; value++) {
+            final int index = LatencyHistogram.index(value);
+            assertThat(LatencyHistogram.highestValue(index)).isGreaterThanOrEqualTo(value);
+            assertThat(index - LatencyHistogram.index(value - 1)).isBetween(0, 1);
+        }
+        assertThat(LatencyHistogram.highestValue(LatencyHistogram.index(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void empty_histogram() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.getValueAtPercentile(99)).isZero();
+        assertThat(histogram.getMin()).isZero();
+        assertThat(histogram.toDistribution()).contains("Count = 0");
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.Collections;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.model.Repository;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.transaction.TransactionService;
+import org.assertj.core.api.SoftAssertionError;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.tradeshift.test.remote.Remote;
+import com.tradeshift.test.remote.RemoteTestRunner;
+
+/**
+ * The plan runs in its own transaction, so the fixture is committed rather
+ * than created in a test transaction.
+ */
+@RunWith(RemoteTestRunner.class)
+@Remote(runnerClass = SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:alfresco/application-context.xml")
+public class AssertionPlanTest {
+
+    @Autowired
+    @Qualifier("NodeService")
+    private NodeService nodeService;
+
+    @Autowired
+    private Repository repository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    @Qualifier("assertions.planExecutor")
+    private AssertionPlanExecutor planExecutor;
+
+    private NodeRef nodeRef;
+
+    @Before
+    public void setUp() {
+        AuthenticationUtil.setAdminUserAsFullyAuthenticatedUser();
+        nodeRef = transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+            final NodeRef node = nodeService.createNode(repository.getCompanyHome(), ContentModel.ASSOC_CONTAINS, ContentModel.ASSOC_CONTAINS,
+                    ContentModel.TYPE_CONTENT, Collections.singletonMap(ContentModel.PROP_TITLE, "title")).getChildRef();
+            nodeService.addAspect(node, ContentModel.ASPECT_TITLED, null);
+            return node;
+        }, false, true);
+    }
+
+    @After
+    public void tearDown() {
+        transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+            nodeService.deleteNode(nodeRef);
+            return null;
+        }, false, true);
+    }
+
+    @Test
+    public void passing_plan_has_no_failures() {
+        final AssertionPlan plan = new AssertionPlan()
+                .node(nodeRef, "exists")
+                .node(nodeRef, "isType", ContentModel.TYPE_CONTENT)
+                .node(nodeRef, "hasAspect", ContentModel.ASPECT_TITLED)
+                .node(nodeRef, "hasPropertyValue", ContentModel.PROP_TITLE, "title")
+                .node(nodeRef, "hasChildCount", 0);
+
+        final AssertionPlanResult result = planExecutor.execute(plan);
+
+        assertThat(result.getChecks()).isEqualTo(5);
+        assertThat(result.isPassed()).isTrue();
+    }
+
+    @Test
+    public void every_failed_check_is_reported() {
+        final AssertionPlan plan = new AssertionPlan()
+                .node(nodeRef, "doesNotExist")
+                .node(nodeRef, "exists")
+                .node(nodeRef, "hasAspect", ContentModel.ASPECT_CHECKED_OUT)
+                .site("no-such-site", "hasContainer", "documentLibrary");
+
+        final AssertionPlanResult result = planExecutor.execute(plan);
+
+        assertThat(result.getFailures()).extracting(AssertionPlanResult.Failure::getIndex).containsExactly(0, 2, 3);
+        assertThat(result.getFailures().get(2).getCheck()).isEqualTo("site no-such-site.hasContainer(documentLibrary)");
+    }
+
+    @Test
+    public void plans_and_results_survive_json() {
+        final AssertionPlan plan = AssertionPlan.fromJson(new AssertionPlan()
+                .node(nodeRef, "hasAspect", ContentModel.ASPECT_TITLED)
+                .node(nodeRef, "hasChildCount", 0)
+                .node(nodeRef, "hasAspect", ContentModel.ASPECT_CHECKED_OUT)
+                .toJson());
+
+        assertThat(plan.getChecks()).hasSize(3);
+        assertThat(plan.getChecks().get(0).getArgs()).containsExactly(ContentModel.ASPECT_TITLED);
+        assertThat(plan.getChecks().get(1).getArgs()).containsExactly(0);
+
+        final AssertionPlanResult result = AssertionPlanResult.fromJson(planExecutor.execute(plan).toJson());
+        assertThat(result.getChecks()).isEqualTo(3);
+        assertThat(result.getFailures()).extracting(AssertionPlanResult.Failure::getIndex).containsExactly(2);
+    }
+
+    @Test(expected = SoftAssertionError.class)
+    public void assert_passed_fails_with_all_failures() {
+        planExecutor.execute(new AssertionPlan().node(nodeRef, "doesNotExist")).assertPassed();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknown_methods_are_rejected_when_building_the_plan() {
+        new AssertionPlan().node(nodeRef, "hasNoSuchThing", 1);
+    }
+
+    @Test
+    public void static_setters_are_rejected_with_bad_request() {
+        final Throwable thrown = catchThrowable(() -> AssertionPlanWebScript.parsePlan(
+                "{\"checks\": [{\"target\": \"node\", \"id\": \"" + nodeRef + "\", \"method\": \"setNodeService\", \"args\": [null]}]}"));
+
+        assertThat(thrown).isInstanceOf(WebScriptException.class);
+        assertThat(((WebScriptException) thrown).getStatus()).isEqualTo(Status.STATUS_BAD_REQUEST);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void methods_inherited_from_abstract_assert_are_rejected() {
+        new AssertionPlan().node(nodeRef, "isNotNull");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void null_is_rejected_where_a_property_value_is_not_expected() {
+        new AssertionPlan().node(nodeRef, "hasAspect", (Object) null);
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.notification.RunListener;
+import org.junit.runners.Suite.SuiteClasses;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Replays test events from a fake repository, as TestBatchWebScript streams
+ * them
+ */
+public class BatchRemoteTestRunnerTest {
+
+    private HttpServer server;
+
+    private String events;
+
+    private String requestBody;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/alfresco/service/ixxus/assertions/tests", exchange -> {
+            requestBody = HttpRequests.read(exchange.getRequestBody());
+            final byte[] body = events.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        System.setProperty("ixxus.assertions.remote.url", "http://localhost:" + server.getAddress().getPort() + "/alfresco/service");
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("ixxus.assertions.remote.url");
+        server.stop(0);
+    }
+
+    @Test
+    public void remote_events_are_reported_against_the_suite_tests() throws Exception {
+        events = event("testStarted", "passes") + event("testFinished", "passes")
+                + event("testStarted", "fails")
+                + "{\"event\":\"testFailure\",\"class\":\"" + SampleTest.class.getName()
+                + "\",\"method\":\"fails\",\"type\":\"java.lang.AssertionError\",\"message\":\"expected\",\"trace\":\"remote trace\"}\n"
+                + event("testFinished", "fails")
+                + "{\"event\":\"finished\"}\n";
+        final List<Description> finished = new ArrayList<>();
+        final JUnitCore core = new JUnitCore();
+        core.addListener(new RunListener() {
+            @Override
+            public void testFinished(final Description description) {
+                finished.add(description);
+            }
+        });
+
+        final Result result = core.run(Request.runner(new BatchRemoteTestRunner(SampleSuite.class)));
+
+        assertThat(requestBody).contains(SampleTest.class.getName());
+        assertThat(result.getRunCount()).isEqualTo(2);
+        assertThat(result.getFailureCount()).isEqualTo(1);
+        assertThat(result.getFailures().get(0).getMessage()).isEqualTo("expected");
+        assertThat(result.getFailures().get(0).getTrace()).isEqualTo("remote trace");
+        assertThat(finished).containsExactly(Description.createTestDescription(SampleTest.class, "passes"),
+                Description.createTestDescription(SampleTest.class, "fails"));
+    }
+
+    @Test
+    public void a_session_ending_early_fails_the_suite() throws Exception {
+        events = event("testStarted", "passes");
+
+        final Result result = new JUnitCore().run(Request.runner(new BatchRemoteTestRunner(SampleSuite.class)));
+
+        assertThat(result.getFailures()).extracting(failure -> failure.getException().getMessage())
+                .contains("The repository ended the test session early");
+    }
+
+    @Test
+    public void the_suite_lists_the_test_methods() throws Exception {
+        assertThat(new BatchRemoteTestRunner(SampleSuite.class).getDescription().testCount()).isEqualTo(2);
+    }
+
+    private static String event(final String event, final String method) {
+        return "{\"event\":\"" + event + "\",\"class\":\"" + SampleTest.class.getName() + "\",\"method\":\"" + method + "\"}\n";
+    }
+
+    @SuiteClasses(SampleTest.class)
+    public static class SampleSuite {
+    }
+
+    public static class SampleTest {
+        @Test
+        public void passes() {
+        }
+
+        @Test
+        public void fails() {
+        }
+    }
+}
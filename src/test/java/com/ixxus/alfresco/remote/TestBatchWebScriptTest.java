@@ -0,0 +1,88 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.remote;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Runs test classes the way the web script does for a BatchRemoteTestRunner
+ * suite, without a repository
+ */
+public class TestBatchWebScriptTest {
+
+    @Test
+    public void test_classes_run_one_after_the_other_and_stream_their_events() throws Exception {
+        final StringWriter writer = new StringWriter();
+
+        TestBatchWebScript.run(Arrays.asList(FirstSample.class.getName(), "com.example.Missing", SecondSample.class.getName()), writer);
+
+        final List<String> events = new ArrayList<>();
+        JSONObject finished = null;
+        for (final String line : writer.toString().split("\n")) {
+            final JSONObject json = (JSONObject) new JSONParser().parse(line);
+            events.add(json.get("event") + " " + json.get("class") + (json.get("method") != null ? "." + json.get("method") : ""));
+            finished = json;
+        }
+        assertThat(events).containsExactly(
+                "testStarted " + FirstSample.class.getName() + ".passes",
+                "testFinished " + FirstSample.class.getName() + ".passes",
+                "testFailure com.example.Missing",
+                "testStarted " + SecondSample.class.getName() + ".fails",
+                "testFailure " + SecondSample.class.getName() + ".fails",
+                "testFinished " + SecondSample.class.getName() + ".fails",
+                "finished null");
+        assertThat(finished.get("runCount")).isEqualTo(2L);
+        assertThat(finished.get("failureCount")).isEqualTo(2L);
+    }
+
+    @Test
+    public void class_names_are_read_from_the_request_body() {
+        assertThat(TestBatchWebScript.parseClassNames("{\"classes\": [\"a.First\", \"b.Second\"]}")).containsExactly("a.First", "b.Second");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void a_body_without_classes_is_rejected() {
+        TestBatchWebScript.parseClassNames("{\"tests\": []}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void a_class_name_that_is_not_a_string_is_rejected() {
+        TestBatchWebScript.parseClassNames("{\"classes\": [\"a.First\", 42]}");
+    }
+
+    public static class FirstSample {
+        @Test
+        public void passes() {
+        }
+    }
+
+    public static class SecondSample {
+        @Test
+        public void fails() {
+            Assert.fail("expected");
+        }
+    }
+}
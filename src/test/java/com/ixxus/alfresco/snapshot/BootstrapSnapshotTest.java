@@ -0,0 +1,128 @@
+/**
+ * Copyright 2017 Ixxus Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.ixxus.alfresco.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BootstrapSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path dirRoot;
+
+    private BootstrapSnapshot snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        dirRoot = folder.newFolder("alf_data").toPath();
+        final Map<String, String> keySource = new HashMap<>();
+        keySource.put("alfresco.version.major", "5");
+        snapshot = new BootstrapSnapshot(folder.newFolder("snapshots").toPath(), keySource);
+    }
+
+    @Test
+    public void restore_brings_back_the_database_and_the_content() throws Exception {
+        final JdbcDataSource dataSource = dataSource();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE bootstrapped (name VARCHAR(32))");
+            statement.execute("INSERT INTO bootstrapped VALUES ('company home')");
+        }
+        Files.createDirectories(dirRoot.resolve("contentstore"));
+        Files.write(dirRoot.resolve("contentstore/content.bin"), "my content".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(snapshot.exists()).isFalse();
+        snapshot.capture(dataSource, dirRoot);
+        assertThat(snapshot.exists()).isTrue();
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        deleteTree(dirRoot);
+
+        snapshot.restore(dirRoot);
+        assertThat(dirRoot.resolve("contentstore/content.bin")).hasContent("my content");
+        try (Connection connection = dataSource().getConnection(); Statement statement = connection.createStatement();
+                        ResultSet resultSet = statement.executeQuery("SELECT name FROM bootstrapped")) {
+            assertThat(resultSet.next()).isTrue();
+            assertThat(resultSet.getString(1)).isEqualTo("company home");
+        }
+    }
+
+    @Test
+    public void the_database_directory_is_read_from_the_url() {
+        assertThat(BootstrapSnapshot.h2Directory("jdbc:h2:/data/alf_data/h2_data/alf_test;AUTO_SERVER=TRUE;MVCC=TRUE"))
+                        .isEqualTo(Paths.get("/data/alf_data/h2_data"));
+        assertThat(BootstrapSnapshot.h2Directory("jdbc:h2:file:/data/alf_data/h2_data/alf_test"))
+                        .isEqualTo(Paths.get("/data/alf_data/h2_data"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void only_h2_databases_can_be_captured() {
+        BootstrapSnapshot.h2Directory("jdbc:postgresql://localhost/alfresco");
+    }
+
+    @Test
+    public void the_key_does_not_depend_on_the_order_of_its_source() {
+        final Map<String, String> first = new LinkedHashMap<>();
+        first.put("alfresco.version.major", "5");
+        first.put("module.alfresco-test-assertions", "1.0");
+        final Map<String, String> second = new LinkedHashMap<>();
+        second.put("module.alfresco-test-assertions", "1.0");
+        second.put("alfresco.version.major", "5");
+        assertThat(BootstrapSnapshot.key(first)).isEqualTo(BootstrapSnapshot.key(second));
+
+        second.put("module.alfresco-test-assertions", "1.1");
+        assertThat(BootstrapSnapshot.key(first)).isNotEqualTo(BootstrapSnapshot.key(second));
+    }
+
+    private JdbcDataSource dataSource() {
+        final JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:" + dirRoot.resolve("h2_data/alf_test").toAbsolutePath());
+        dataSource.setUser("alfresco");
+        dataSource.setPassword("alfresco");
+        return dataSource;
+    }
+
+    private static void deleteTree(final Path root) throws IOException {
+        Files.walk(root).sorted((a, b) -> b.compareTo(a)).forEach(path -> {
+            try {
+                Files.delete(path);
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}